@@ -0,0 +1,55 @@
+package com.hubspot.imap.benchmarks;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.hubspot.imap.ImapChannelAttrs;
+import com.hubspot.imap.client.ImapClientState;
+import com.hubspot.imap.protocol.ResponseDecoder;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.concurrent.ImmediateEventExecutor;
+
+/**
+ * What each connection costs the decoder. Run with {@code -prof gc}: gc.alloc.rate.norm is the number of bytes
+ * allocated per connection, most of which a connection keeps for as long as it is open.
+ * <p>
+ * {@link #newConnection()} also decodes a greeting, so it includes anything a decoder allocates on first use. Both
+ * include the fixed cost of the client state, and the second that of an EmbeddedChannel, neither of which depends on
+ * the decoder.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConnectionFootprintBenchmark {
+  private static final byte[] GREETING = "* OK Gimap ready for requests\r\n".getBytes(StandardCharsets.US_ASCII);
+
+  @Benchmark
+  public ResponseDecoder newDecoder() {
+    ImapClientState clientState = new ImapClientState("benchmark", ImmediateEventExecutor.INSTANCE);
+    return new ResponseDecoder(Transcripts.CONFIGURATION, clientState, ImmediateEventExecutor.INSTANCE);
+  }
+
+  @Benchmark
+  public EmbeddedChannel newConnection() {
+    EmbeddedChannel channel = new EmbeddedChannel(newDecoder());
+    channel.attr(ImapChannelAttrs.CONFIGURATION).set(Transcripts.CONFIGURATION);
+    channel.writeInbound(Unpooled.wrappedBuffer(GREETING));
+
+    return channel;
+  }
+}
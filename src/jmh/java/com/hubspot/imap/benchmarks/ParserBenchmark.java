@@ -0,0 +1,202 @@
+package com.hubspot.imap.benchmarks;
+
+import java.nio.charset.StandardCharsets;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.hubspot.imap.utils.SoftReferencedAppendableCharSequence;
+import com.hubspot.imap.utils.parsers.NestedArrayParser;
+import com.hubspot.imap.utils.parsers.fetch.EnvelopeDateParser;
+import com.hubspot.imap.utils.parsers.fetch.EnvelopeParser;
+import com.hubspot.imap.utils.parsers.string.AtomOrStringParser;
+import com.hubspot.imap.utils.parsers.string.LineParser;
+import com.hubspot.imap.utils.parsers.string.LiteralStringParser;
+import com.hubspot.imap.utils.parsers.string.WordParser;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+/**
+ * Each operation feeds a whole transcript (or every matching section of one) through a single parser.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParserBenchmark {
+  private LineParser lineParser;
+  private WordParser wordParser;
+  private AtomOrStringParser atomOrStringParser;
+  private LiteralStringParser literalStringParser;
+  private NestedArrayParser.Recycler<String> nestedArrayParserRecycler;
+  private EnvelopeParser envelopeParser;
+  private EnvelopeParser singlePassEnvelopeParser;
+
+  private byte[] fetchHeaders;
+  private byte[] search;
+  private int searchWords;
+  private List<byte[]> listNames;
+  private List<byte[]> envelopes;
+  private List<List<Object>> parsedEnvelopes;
+  private List<String> envelopeDates;
+  private List<byte[]> literals;
+
+  @Setup
+  public void setup() {
+    SoftReferencedAppendableCharSequence charSeq = new SoftReferencedAppendableCharSequence(Transcripts.CONFIGURATION.defaultResponseBufferSize());
+    int maxLineLength = Transcripts.CONFIGURATION.maxLineLength();
+
+    lineParser = new LineParser(charSeq, maxLineLength);
+    wordParser = new WordParser(maxLineLength);
+    atomOrStringParser = new AtomOrStringParser(maxLineLength);
+    literalStringParser = new LiteralStringParser(charSeq, maxLineLength);
+    nestedArrayParserRecycler = new NestedArrayParser.Recycler<>(literalStringParser);
+    envelopeParser = new EnvelopeParser();
+    singlePassEnvelopeParser = new EnvelopeParser(literalStringParser);
+
+    fetchHeaders = Transcripts.load("fetch-headers");
+
+    byte[] searchTranscript = Transcripts.load("search");
+    String searchLine = new String(searchTranscript, StandardCharsets.US_ASCII).split("\r\n")[0];
+    search = (searchLine + "\r\n").getBytes(StandardCharsets.US_ASCII);
+    searchWords = searchLine.split(" ").length;
+
+    // The mailbox delimiter and name of each LIST response, e.g. "/" "INBOX"
+    listNames = Arrays.stream(new String(Transcripts.load("list"), StandardCharsets.US_ASCII).split("\r\n"))
+        .filter(line -> line.startsWith("* LIST"))
+        .map(line -> line.substring(line.indexOf(')') + 1) + "\r\n")
+        .map(line -> line.getBytes(StandardCharsets.US_ASCII))
+        .collect(Collectors.toList());
+
+    envelopes = Transcripts.sections(fetchHeaders, "ENVELOPE ");
+    parsedEnvelopes = envelopes.stream()
+        .map(this::parseNestedArray)
+        .collect(Collectors.toList());
+    envelopeDates = parsedEnvelopes.stream()
+        .map(envelope -> envelope.get(0))
+        .filter(date -> date instanceof String)
+        .map(date -> ((String) date))
+        .collect(Collectors.toList());
+
+    literals = Transcripts.literals(Transcripts.load("fetch-body"));
+  }
+
+  @Benchmark
+  public void lineParser(Blackhole blackhole, Transcripts.ByteCounter counter) {
+    ByteBuf buf = Unpooled.wrappedBuffer(fetchHeaders);
+    while (buf.isReadable()) {
+      blackhole.consume(lineParser.parse(buf));
+    }
+
+    counter.bytes += fetchHeaders.length;
+  }
+
+  @Benchmark
+  public void wordParser(Blackhole blackhole, Transcripts.ByteCounter counter) {
+    ByteBuf buf = Unpooled.wrappedBuffer(search);
+    for (int i = 0; i < searchWords; i++) {
+      blackhole.consume(wordParser.parse(buf));
+    }
+
+    counter.bytes += search.length;
+  }
+
+  @Benchmark
+  public void atomOrStringParser(Blackhole blackhole, Transcripts.ByteCounter counter) {
+    for (byte[] listName : listNames) {
+      ByteBuf buf = Unpooled.wrappedBuffer(listName);
+      blackhole.consume(atomOrStringParser.parse(buf));
+      blackhole.consume(atomOrStringParser.parse(buf));
+
+      counter.bytes += listName.length;
+    }
+  }
+
+  @Benchmark
+  public void literalStringParser(Blackhole blackhole, Transcripts.ByteCounter counter) {
+    for (byte[] literal : literals) {
+      blackhole.consume(literalStringParser.parse(Unpooled.wrappedBuffer(literal)));
+
+      counter.bytes += literal.length;
+    }
+  }
+
+  @Benchmark
+  public void nestedArrayParser(Blackhole blackhole, Transcripts.ByteCounter counter) {
+    for (byte[] envelope : envelopes) {
+      blackhole.consume(parseNestedArray(envelope));
+
+      counter.bytes += envelope.length;
+    }
+  }
+
+  @Benchmark
+  public void envelopeParser(Blackhole blackhole) {
+    for (List<Object> envelope : parsedEnvelopes) {
+      blackhole.consume(envelopeParser.parse(envelope));
+    }
+  }
+
+  /**
+   * Reads the same bytes as {@link #nestedArrayParser} followed by {@link #envelopeParser}.
+   */
+  @Benchmark
+  public void envelopeSinglePass(Blackhole blackhole, Transcripts.ByteCounter counter) {
+    for (byte[] envelope : envelopes) {
+      blackhole.consume(singlePassEnvelopeParser.parse(Unpooled.wrappedBuffer(envelope)));
+
+      counter.bytes += envelope.length;
+    }
+  }
+
+  @Benchmark
+  public void envelopeDateFormatter(Blackhole blackhole) {
+    for (String date : envelopeDates) {
+      // The transcript has dates with the wrong day name, which only the formatter rejects
+      try {
+        blackhole.consume(EnvelopeDateParser.parseWithFormatter(date));
+      } catch (DateTimeParseException e) {
+        blackhole.consume(e);
+      }
+    }
+  }
+
+  @Benchmark
+  public void envelopeDateParser(Blackhole blackhole) {
+    for (String date : envelopeDates) {
+      blackhole.consume(EnvelopeDateParser.parseUncached(date));
+    }
+  }
+
+  @Benchmark
+  public void envelopeDateParserCached(Blackhole blackhole) {
+    for (String date : envelopeDates) {
+      blackhole.consume(EnvelopeDateParser.parse(date));
+    }
+  }
+
+  private List<Object> parseNestedArray(byte[] bytes) {
+    NestedArrayParser<String> arrayParser = nestedArrayParserRecycler.get();
+    List<Object> result = arrayParser.parse(Unpooled.wrappedBuffer(bytes));
+    arrayParser.recycle();
+
+    return result;
+  }
+}
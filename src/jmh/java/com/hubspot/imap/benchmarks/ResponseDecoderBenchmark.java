@@ -0,0 +1,96 @@
+package com.hubspot.imap.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.hubspot.imap.ImapChannelAttrs;
+import com.hubspot.imap.client.ImapClientState;
+import com.hubspot.imap.protocol.ResponseDecoder;
+import com.hubspot.imap.protocol.command.BaseImapCommand;
+import com.hubspot.imap.protocol.command.ImapCommandType;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.ImmediateEventExecutor;
+
+/**
+ * Feeds transcripts through the full {@link ResponseDecoder} state machine. With a non-zero chunk size the transcript
+ * arrives in packets of that many bytes, which exercises replaying of partially received responses the way a real
+ * socket does.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseDecoderBenchmark {
+
+  @Param({"fetch-headers", "fetch-body", "search", "list"})
+  public String transcript;
+
+  @Param({"0", "1460"})
+  public int chunkSize;
+
+  private byte[] bytes;
+  private EmbeddedChannel channel;
+
+  @Setup
+  public void setup() {
+    bytes = Transcripts.load(transcript);
+
+    ImapClientState clientState = new ImapClientState("benchmark", ImmediateEventExecutor.INSTANCE);
+    clientState.setCurrentCommand(new BaseImapCommand(commandType(transcript)));
+
+    channel = new EmbeddedChannel(new ResponseDecoder(Transcripts.CONFIGURATION, clientState, ImmediateEventExecutor.INSTANCE));
+    channel.attr(ImapChannelAttrs.CONFIGURATION).set(Transcripts.CONFIGURATION);
+  }
+
+  @TearDown
+  public void tearDown() {
+    channel.finish();
+  }
+
+  @Benchmark
+  public void decode(Blackhole blackhole, Transcripts.ByteCounter counter) {
+    if (chunkSize <= 0) {
+      channel.writeInbound(Unpooled.wrappedBuffer(bytes));
+    } else {
+      for (int offset = 0; offset < bytes.length; offset += chunkSize) {
+        channel.writeInbound(Unpooled.wrappedBuffer(bytes, offset, Math.min(chunkSize, bytes.length - offset)));
+      }
+    }
+
+    Object response;
+    while ((response = channel.readInbound()) != null) {
+      blackhole.consume(response);
+      ReferenceCountUtil.release(response);
+    }
+
+    counter.bytes += bytes.length;
+  }
+
+  private static ImapCommandType commandType(String transcript) {
+    if (transcript.startsWith("fetch")) {
+      return ImapCommandType.FETCH;
+    } else if (transcript.equals("search")) {
+      return ImapCommandType.SEARCH;
+    } else {
+      return ImapCommandType.LIST;
+    }
+  }
+}
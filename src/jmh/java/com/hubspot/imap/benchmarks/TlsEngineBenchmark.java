@@ -0,0 +1,193 @@
+package com.hubspot.imap.benchmarks;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLEngineResult.HandshakeStatus;
+import javax.net.ssl.SSLException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.handler.ssl.OpenSsl;
+import io.netty.handler.ssl.OpenSslEngine;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.SslProvider;
+import io.netty.handler.ssl.util.InsecureTrustManagerFactory;
+import io.netty.handler.ssl.util.SelfSignedCertificate;
+
+/**
+ * Moves a large BODY[] FETCH response from a server engine to a client engine of the same provider, the way a sync
+ * downloading messages spends most of its TLS time. Every operation encrypts and decrypts the whole response, the
+ * {@code :bytes} secondary result is response bytes per second.
+ * <p>
+ * The benchmark runs on one thread and never blocks, so CPU seconds per GB is 1e9 divided by {@code :bytes}. The
+ * OPENSSL runs need netty-tcnative, add the openssl profile: {@code -Pbenchmark,openssl}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TlsEngineBenchmark {
+  private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+  @Param({"JDK", "OPENSSL"})
+  public SslProvider provider;
+
+  @Param({"65536", "1048576"})
+  public int bodySize;
+
+  private SelfSignedCertificate certificate;
+  private SSLEngine clientEngine;
+  private SSLEngine serverEngine;
+
+  private ByteBuffer response;
+  private ByteBuffer network;
+  private ByteBuffer application;
+
+  @Setup
+  public void setup() throws Exception {
+    if (provider == SslProvider.OPENSSL) {
+      OpenSsl.ensureAvailability();
+    }
+
+    certificate = new SelfSignedCertificate("imap.example.com");
+
+    SslContext serverContext = SslContextBuilder.forServer(certificate.certificate(), certificate.privateKey())
+        .sslProvider(provider)
+        .build();
+    SslContext clientContext = SslContextBuilder.forClient()
+        .sslProvider(provider)
+        .trustManager(InsecureTrustManagerFactory.INSTANCE)
+        .build();
+
+    serverEngine = serverContext.newEngine(ByteBufAllocator.DEFAULT);
+    clientEngine = clientContext.newEngine(ByteBufAllocator.DEFAULT, "imap.example.com", 993);
+    handshake();
+
+    response = ByteBuffer.wrap(fetchResponse(bodySize));
+    network = ByteBuffer.allocate(serverEngine.getSession().getPacketBufferSize());
+    application = ByteBuffer.allocate(clientEngine.getSession().getApplicationBufferSize());
+  }
+
+  @TearDown
+  public void tearDown() {
+    close(clientEngine);
+    close(serverEngine);
+    certificate.delete();
+  }
+
+  @Benchmark
+  public int transfer(Transcripts.ByteCounter counter) throws SSLException {
+    response.clear();
+
+    int received = 0;
+    while (response.hasRemaining()) {
+      network.clear();
+      serverEngine.wrap(response, network);
+      network.flip();
+
+      while (network.hasRemaining()) {
+        application.clear();
+        SSLEngineResult result = clientEngine.unwrap(network, application);
+        if (result.bytesConsumed() == 0) {
+          throw new IllegalStateException("Client engine made no progress: " + result);
+        }
+
+        received += result.bytesProduced();
+      }
+    }
+
+    counter.bytes += received;
+    return received;
+  }
+
+  private static byte[] fetchResponse(int bodySize) {
+    byte[] prefix = ("* 1 FETCH (UID 1 BODY[] {" + bodySize + "}\r\n").getBytes(StandardCharsets.US_ASCII);
+    byte[] suffix = ")\r\n".getBytes(StandardCharsets.US_ASCII);
+
+    byte[] bytes = new byte[prefix.length + bodySize + suffix.length];
+    System.arraycopy(prefix, 0, bytes, 0, prefix.length);
+    Arrays.fill(bytes, prefix.length, prefix.length + bodySize, (byte) 'x');
+    System.arraycopy(suffix, 0, bytes, prefix.length + bodySize, suffix.length);
+    return bytes;
+  }
+
+  private void handshake() throws SSLException {
+    int bufferSize = Math.max(clientEngine.getSession().getPacketBufferSize(), serverEngine.getSession().getPacketBufferSize()) * 4;
+    ByteBuffer clientToServer = ByteBuffer.allocate(bufferSize);
+    ByteBuffer serverToClient = ByteBuffer.allocate(bufferSize);
+    ByteBuffer ignored = ByteBuffer.allocate(bufferSize);
+
+    clientEngine.beginHandshake();
+    serverEngine.beginHandshake();
+
+    for (int round = 0; !isDone(clientEngine) || !isDone(serverEngine); round++) {
+      if (round > 100) {
+        throw new IllegalStateException("Handshake did not finish");
+      }
+
+      clientEngine.wrap(EMPTY, clientToServer);
+      runTasks(clientEngine);
+      serverEngine.wrap(EMPTY, serverToClient);
+      runTasks(serverEngine);
+
+      clientToServer.flip();
+      serverToClient.flip();
+      unwrapAll(serverEngine, clientToServer, ignored);
+      unwrapAll(clientEngine, serverToClient, ignored);
+      clientToServer.compact();
+      serverToClient.compact();
+    }
+  }
+
+  private static void unwrapAll(SSLEngine engine, ByteBuffer in, ByteBuffer out) throws SSLException {
+    while (in.hasRemaining()) {
+      out.clear();
+      SSLEngineResult result = engine.unwrap(in, out);
+      runTasks(engine);
+      if (result.bytesConsumed() == 0) {
+        return;
+      }
+    }
+  }
+
+  private static void close(SSLEngine engine) {
+    if (engine instanceof OpenSslEngine) {
+      // Frees the native SSL, the JDK engine has nothing to release
+      ((OpenSslEngine) engine).shutdown();
+    } else {
+      engine.closeOutbound();
+    }
+  }
+
+  private static boolean isDone(SSLEngine engine) {
+    HandshakeStatus status = engine.getHandshakeStatus();
+    return status == HandshakeStatus.NOT_HANDSHAKING || status == HandshakeStatus.FINISHED;
+  }
+
+  private static void runTasks(SSLEngine engine) {
+    Runnable task;
+    while ((task = engine.getDelegatedTask()) != null) {
+      task.run();
+    }
+  }
+}
@@ -0,0 +1,137 @@
+package com.hubspot.imap.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.google.common.io.ByteStreams;
+import com.google.common.net.HostAndPort;
+import com.hubspot.imap.ImapConfiguration;
+import com.hubspot.imap.ImapConfigurationIF.AuthType;
+
+/**
+ * Server responses captured from Gmail-shaped mailboxes (addresses and subjects are synthetic), stored under
+ * src/jmh/resources/transcripts:
+ * <p>
+ * - fetch-headers - 200 x UID FETCH (X-GM-THRID X-GM-MSGID X-GM-LABELS UID FLAGS INTERNALDATE RFC822.SIZE ENVELOPE)
+ * - fetch-body - 20 x UID FETCH (UID FLAGS BODY[]) with 2-10KB plain text bodies
+ * - search - UID SEARCH returning 10,000 UIDs
+ * - list - LIST "" "*" for 59 folders
+ */
+public final class Transcripts {
+  public static final ImapConfiguration CONFIGURATION = ImapConfiguration.builder()
+      .hostAndPort(HostAndPort.fromParts("localhost", 993))
+      .authType(AuthType.PASSWORD)
+      .build();
+
+  private Transcripts() {}
+
+  public static byte[] load(String name) {
+    try (InputStream in = Transcripts.class.getResourceAsStream("/transcripts/" + name + ".txt")) {
+      if (in == null) {
+        throw new IllegalArgumentException("No transcript named " + name);
+      }
+
+      return ByteStreams.toByteArray(in);
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * @return the parenthesized section following each occurrence of {@code prefix}, e.g. every ENVELOPE.
+   */
+  public static List<byte[]> sections(byte[] transcript, String prefix) {
+    byte[] needle = prefix.getBytes(StandardCharsets.US_ASCII);
+    List<byte[]> sections = new ArrayList<>();
+
+    for (int i = indexOf(transcript, needle, 0); i >= 0; i = indexOf(transcript, needle, i + 1)) {
+      int start = i + needle.length;
+      int depth = 0;
+      boolean quoted = false;
+      for (int j = start; j < transcript.length; j++) {
+        byte b = transcript[j];
+        if (quoted) {
+          if (b == '\\') {
+            j++;
+          } else if (b == '"') {
+            quoted = false;
+          }
+        } else if (b == '"') {
+          quoted = true;
+        } else if (b == '(') {
+          depth++;
+        } else if (b == ')' && --depth == 0) {
+          sections.add(Arrays.copyOfRange(transcript, start, j + 1));
+          break;
+        }
+      }
+    }
+
+    return sections;
+  }
+
+  /**
+   * @return every literal ({size}CRLF followed by size bytes) in the transcript, including its size prefix.
+   */
+  public static List<byte[]> literals(byte[] transcript) {
+    List<byte[]> literals = new ArrayList<>();
+
+    for (int i = 0; i < transcript.length; i++) {
+      if (transcript[i] != '{') {
+        continue;
+      }
+
+      int size = 0;
+      int j = i + 1;
+      while (j < transcript.length && Character.isDigit(transcript[j])) {
+        size = size * 10 + (transcript[j++] - '0');
+      }
+
+      if (j > i + 1 && j + 1 < transcript.length && transcript[j] == '}' && transcript[j + 1] == '\r') {
+        int end = j + 3 + size;
+        literals.add(Arrays.copyOfRange(transcript, i, end));
+        i = end - 1;
+      }
+    }
+
+    return literals;
+  }
+
+  private static int indexOf(byte[] haystack, byte[] needle, int from) {
+    outer:
+    for (int i = from; i <= haystack.length - needle.length; i++) {
+      for (int j = 0; j < needle.length; j++) {
+        if (haystack[i + j] != needle[j]) {
+          continue outer;
+        }
+      }
+      return i;
+    }
+
+    return -1;
+  }
+
+  /**
+   * Reports bytes parsed per second next to ops/s.
+   */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  public static class ByteCounter {
+    public long bytes;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      bytes = 0;
+    }
+  }
+}
@@ -0,0 +1,68 @@
+package com.hubspot.imap;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+import com.google.common.base.Preconditions;
+
+import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopGroup;
+import io.netty.util.concurrent.EventExecutor;
+
+/**
+ * Picks the event loop a new client's channel is registered with. A client keeps its loop for reconnects and resumes,
+ * so a selector decides which connections share an I/O thread.
+ * <p>
+ * Selectors are called concurrently from every thread that creates clients. A selector may return a loop from a group
+ * other than the factory's, as long as it uses the same transport; the factory does not shut such groups down.
+ */
+@FunctionalInterface
+public interface EventLoopSelector {
+
+  EventLoop select(String clientName, String userName, EventLoopGroup group);
+
+  /**
+   * Spreads clients over the group in turn, the default.
+   */
+  static EventLoopSelector roundRobin() {
+    return (clientName, userName, group) -> ((EventLoop) group.next());
+  }
+
+  /**
+   * Keeps all the clients of an account on one loop, so an account syncing several folders at once can't occupy more
+   * than one I/O thread.
+   */
+  static EventLoopSelector byUserName() {
+    return (clientName, userName, group) -> {
+      List<EventLoop> loops = eventLoops(group);
+      return loops.get(Math.floorMod(userName.hashCode(), loops.size()));
+    };
+  }
+
+  /**
+   * Reserves the first {@code bulkLoops} loops of the group for clients whose name matches {@code isBulk}, for example
+   * backfills, and keeps every other client on the remaining loops. Within each side accounts are pinned as in
+   * {@link #byUserName()}, so a few large backfills can't delay the responses of interactive clients.
+   */
+  static EventLoopSelector partitioned(Predicate<String> isBulk, int bulkLoops) {
+    Preconditions.checkArgument(bulkLoops > 0, "bulkLoops must be positive");
+
+    return (clientName, userName, group) -> {
+      List<EventLoop> loops = eventLoops(group);
+      Preconditions.checkState(bulkLoops < loops.size(), "Can't reserve %s of %s event loops for bulk clients", bulkLoops, loops.size());
+
+      List<EventLoop> partition = isBulk.test(clientName) ? loops.subList(0, bulkLoops) : loops.subList(bulkLoops, loops.size());
+      return partition.get(Math.floorMod(userName.hashCode(), partition.size()));
+    };
+  }
+
+  static List<EventLoop> eventLoops(EventLoopGroup group) {
+    List<EventLoop> loops = new ArrayList<>();
+    for (EventExecutor executor : group) {
+      loops.add(((EventLoop) executor));
+    }
+
+    return loops;
+  }
+}
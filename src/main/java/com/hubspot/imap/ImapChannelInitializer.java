@@ -1,6 +1,15 @@
 package com.hubspot.imap;
 
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSessionContext;
+
+import com.hubspot.imap.metrics.ImapMetrics;
 
 import io.netty.channel.ChannelHandler.Sharable;
 import io.netty.channel.ChannelInitializer;
@@ -8,6 +17,7 @@ import io.netty.channel.ChannelPipeline;
 import io.netty.channel.socket.SocketChannel;
 import io.netty.handler.codec.string.StringEncoder;
 import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslHandler;
 
 @Sharable
 public class ImapChannelInitializer extends ChannelInitializer<SocketChannel> {
@@ -15,10 +25,16 @@ public class ImapChannelInitializer extends ChannelInitializer<SocketChannel> {
 
   private final SslContext sslContext;
   private final ImapConfiguration configuration;
+  private final ImapMetrics metrics;
 
   public ImapChannelInitializer(SslContext sslContext, ImapConfiguration configuration) {
+    this(sslContext, configuration, ImapMetrics.disabled());
+  }
+
+  public ImapChannelInitializer(SslContext sslContext, ImapConfiguration configuration, ImapMetrics metrics) {
     this.sslContext = sslContext;
     this.configuration = configuration;
+    this.metrics = metrics;
   }
 
   public ImapChannelInitializer(ImapConfiguration configuration) {
@@ -30,12 +46,48 @@ public class ImapChannelInitializer extends ChannelInitializer<SocketChannel> {
     ChannelPipeline channelPipeline = socketChannel.pipeline();
 
     if (sslContext != null) {
-      channelPipeline.addLast(sslContext.newHandler(socketChannel.alloc(),
-        configuration.hostAndPort().getHostText(),
-        configuration.hostAndPort().getPortOrDefault(993)));
-    }
+      // The host and port let the engine look up a cached session for this server and resume it
+      String host = configuration.hostAndPort().getHostText();
+      int port = configuration.hostAndPort().getPortOrDefault(993);
+      SslHandler sslHandler = sslContext.newHandler(socketChannel.alloc(), host, port);
+      channelPipeline.addLast(sslHandler);
 
+      if (metrics.isEnabled()) {
+        timeHandshake(sslHandler, cachedSessionIds(host, port));
+      }
+    }
 
     channelPipeline.addLast(STRING_ENCODER);
   }
+
+  /**
+   * @param offeredSessionIds the IDs of the cached sessions for this server when the handler was added, the engine can
+   *                          only resume one of these. A full handshake creates a session with a new ID.
+   */
+  private void timeHandshake(SslHandler sslHandler, Set<ByteBuffer> offeredSessionIds) {
+    long startNanos = System.nanoTime();
+
+    sslHandler.handshakeFuture().addListener(future -> {
+      if (future.isSuccess()) {
+        boolean resumed = offeredSessionIds.contains(ByteBuffer.wrap(sslHandler.engine().getSession().getId()));
+        metrics.timeHandshake(resumed, System.nanoTime() - startNanos);
+      }
+    });
+  }
+
+  private Set<ByteBuffer> cachedSessionIds(String host, int port) {
+    Set<ByteBuffer> sessionIds = new HashSet<>();
+    SSLSessionContext sessionContext = sslContext.sessionContext();
+
+    Enumeration<byte[]> ids = sessionContext.getIds();
+    while (ids.hasMoreElements()) {
+      byte[] id = ids.nextElement();
+      SSLSession session = sessionContext.getSession(id);
+      if (session != null && host.equalsIgnoreCase(session.getPeerHost()) && session.getPeerPort() == port) {
+        sessionIds.add(ByteBuffer.wrap(id));
+      }
+    }
+
+    return sessionIds;
+  }
 }
@@ -6,6 +6,9 @@ import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
 
 import javax.net.ssl.SSLException;
 import javax.net.ssl.TrustManagerFactory;
@@ -14,21 +17,26 @@ import org.apache.commons.lang.SystemUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.codahale.metrics.MetricRegistry;
 import com.google.common.base.Throwables;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.hubspot.imap.client.ImapClient;
+import com.hubspot.imap.metrics.ImapMetrics;
 
 import io.netty.bootstrap.Bootstrap;
 import io.netty.buffer.PooledByteBufAllocator;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoop;
 import io.netty.channel.EventLoopGroup;
 import io.netty.channel.epoll.EpollEventLoopGroup;
 import io.netty.channel.epoll.EpollSocketChannel;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.ssl.OpenSsl;
 import io.netty.handler.ssl.SslContext;
 import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.SslProvider;
 import io.netty.util.concurrent.DefaultEventExecutorGroup;
 import io.netty.util.concurrent.EventExecutorGroup;
 
@@ -39,11 +47,39 @@ public class ImapClientFactory implements Closeable {
   private final ImapConfiguration configuration;
   private final Bootstrap bootstrap;
   private final EventLoopGroup eventLoopGroup;
+  private final EventLoopSelector eventLoopSelector;
+  private final ConcurrentMap<EventLoop, Bootstrap> eventLoopBootstraps;
   private final EventExecutorGroup promiseExecutorGroup;
   private final EventExecutorGroup idleExecutorGroup;
+  private final Executor callbackExecutor;
+  private final ImapMetrics metrics;
 
   public ImapClientFactory(ImapConfiguration configuration) {
+    this(configuration, Optional.empty());
+  }
+
+  public ImapClientFactory(ImapConfiguration configuration, Optional<MetricRegistry> metricRegistry) {
+    this(configuration, metricRegistry, EventLoopSelector.roundRobin());
+  }
+
+  public ImapClientFactory(ImapConfiguration configuration, Optional<MetricRegistry> metricRegistry, EventLoopSelector eventLoopSelector) {
+    this(configuration, metricRegistry, eventLoopSelector, Optional.empty());
+  }
+
+  /**
+   * @param callbackExecutor runs streaming fetch functions and message add and open event listeners, instead of the
+   *                         {@link ImapConfiguration#numExecutorThreads()} executor threads. Consumers that block, for
+   *                         example on a database, can use an executor without a fixed number of threads, such as
+   *                         one virtual thread per task on Java 21. The factory does not shut it down.
+   */
+  public ImapClientFactory(ImapConfiguration configuration,
+                           Optional<MetricRegistry> metricRegistry,
+                           EventLoopSelector eventLoopSelector,
+                           Optional<Executor> callbackExecutor) {
     this.configuration = configuration;
+    this.eventLoopSelector = eventLoopSelector;
+    this.eventLoopBootstraps = new ConcurrentHashMap<>();
+    this.metrics = new ImapMetrics(metricRegistry);
     this.bootstrap = new Bootstrap();
 
     final Class<? extends Channel> channelClass;
@@ -62,6 +98,7 @@ public class ImapClientFactory implements Closeable {
 
     this.promiseExecutorGroup = new DefaultEventExecutorGroup(configuration.numExecutorThreads(), baseThreadFactoryBuilder.setNameFormat("imap-promise-executor-%d").build());
     this.idleExecutorGroup = new DefaultEventExecutorGroup(configuration.numExecutorThreads(), baseThreadFactoryBuilder.setNameFormat("imap-idle-executor-%d").build());
+    this.callbackExecutor = callbackExecutor.orElse(promiseExecutorGroup);
 
     SslContext context = null;
     if (configuration.useSsl()) {
@@ -70,29 +107,36 @@ public class ImapClientFactory implements Closeable {
         trustManagerFactory.init(((KeyStore) null));
 
         context = SslContextBuilder.forClient()
+            .sslProvider(sslProvider(configuration))
             .trustManager(trustManagerFactory)
+            .sessionCacheSize(configuration.sslSessionCacheSize())
+            .sessionTimeout(configuration.sslSessionTimeoutSec())
             .build();
       } catch (NoSuchAlgorithmException | SSLException | KeyStoreException e) {
         throw Throwables.propagate(e);
       }
     }
 
-    bootstrap.group(eventLoopGroup)
-        .option(ChannelOption.SO_LINGER, configuration.soLinger())
+    // The group is set per event loop in create
+    bootstrap.option(ChannelOption.SO_LINGER, configuration.soLinger())
         .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, configuration.connectTimeoutMillis())
         .option(ChannelOption.SO_KEEPALIVE, false)
         .option(ChannelOption.AUTO_CLOSE, true)
         .option(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
         .option(ChannelOption.WRITE_BUFFER_HIGH_WATER_MARK, 32 * 1024)
         .option(ChannelOption.WRITE_BUFFER_LOW_WATER_MARK, 8 * 1024)
-        .handler(configuration.useSsl() ? new ImapChannelInitializer(context, configuration) : new ImapChannelInitializer(configuration));
+        .handler(configuration.useSsl() ? new ImapChannelInitializer(context, configuration, metrics) : new ImapChannelInitializer(configuration));
 
     bootstrap.channel(channelClass);
   }
 
   public ImapClient create(String clientName, String userName, String authToken, Optional<ImapConfiguration> newConfig) {
     ImapConfiguration finalConfig = newConfig.orElse(configuration);
-    return new ImapClient(finalConfig, bootstrap, promiseExecutorGroup, idleExecutorGroup, clientName, userName, authToken);
+
+    EventLoop eventLoop = eventLoopSelector.select(clientName, userName, eventLoopGroup);
+    Bootstrap clientBootstrap = eventLoopBootstraps.computeIfAbsent(eventLoop, loop -> bootstrap.clone().group(loop));
+
+    return new ImapClient(finalConfig, clientBootstrap, promiseExecutorGroup, idleExecutorGroup, callbackExecutor, metrics, clientName, userName, authToken);
   }
 
   public ImapClient connect(String userName, String authToken) throws InterruptedException {
@@ -109,10 +153,39 @@ public class ImapClientFactory implements Closeable {
     return client;
   }
 
+  public ImapConfiguration getConfiguration() {
+    return configuration;
+  }
+
+  public ImapMetrics getMetrics() {
+    return metrics;
+  }
+
+  /**
+   * The executors that client response futures complete on, for callers that complete their own futures alongside
+   * them. Shut down with the factory.
+   */
+  public EventExecutorGroup getPromiseExecutorGroup() {
+    return promiseExecutorGroup;
+  }
+
   @Override
   public void close() {
     promiseExecutorGroup.shutdownGracefully();
     idleExecutorGroup.shutdownGracefully();
     eventLoopGroup.shutdownGracefully();
   }
+
+  private static SslProvider sslProvider(ImapConfiguration configuration) {
+    if (configuration.sslProvider() == SslProvider.OPENSSL) {
+      if (OpenSsl.isAvailable()) {
+        LOGGER.info("Using OpenSSL {}", OpenSsl.versionString());
+        return SslProvider.OPENSSL;
+      }
+
+      LOGGER.warn("OpenSSL is not available, falling back to the JDK TLS engine", OpenSsl.unavailabilityCause());
+    }
+
+    return SslProvider.JDK;
+  }
 }
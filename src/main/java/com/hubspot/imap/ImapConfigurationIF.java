@@ -9,6 +9,7 @@ import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import com.google.common.net.HostAndPort;
 
 import io.netty.channel.epoll.EpollMode;
+import io.netty.handler.ssl.SslProvider;
 
 @Immutable
 @Style(
@@ -37,11 +38,80 @@ public interface ImapConfigurationIF {
     return true;
   }
 
+  /**
+   * The TLS engine. {@link SslProvider#OPENSSL} needs netty-tcnative on the classpath, see the openssl profile, and
+   * falls back to the JDK engine when the native library can't be loaded.
+   */
+  @Default
+  default SslProvider sslProvider() {
+    return SslProvider.JDK;
+  }
+
+  /**
+   * Size of the TLS session cache that the connections of a factory share, so reconnects to the same host can resume a
+   * session instead of doing a full handshake. 0 uses the JDK default.
+   * <p>
+   * Only applies to the JDK engine. The {@link SslProvider#OPENSSL} client engine of Netty 4.0 never offers a cached
+   * session, so this and {@link #sslSessionTimeoutSec()} have no effect with it.
+   */
+  @Default
+  default long sslSessionCacheSize() {
+    return 0;
+  }
+
+  /**
+   * How long a cached TLS session can be resumed, 0 uses the JDK default. Like {@link #sslSessionCacheSize()}, only
+   * applies to the JDK engine.
+   */
+  @Default
+  default long sslSessionTimeoutSec() {
+    return 0;
+  }
+
   @Default
   default int noopKeepAliveIntervalSec() {
     return -1;
   }
 
+  /**
+   * After this long without a command the client logs out and closes its connection, keeping the credentials and the
+   * selected folder. The next command reconnects, logs in and re-selects the folder before it runs. Keep-alive NOOPs
+   * do not count as use. 0 or less disables hibernation.
+   * <p>
+   * Connection listeners see the disconnect and the reconnect. A client that has handlers which are not
+   * {@code @Sharable} never hibernates, as they can not be added to the new connection.
+   */
+  @Default
+  default int hibernateAfterIdleMs() {
+    return -1;
+  }
+
+  /**
+   * How many times a logged in client tries to reconnect when its connection drops. Each attempt logs in again and
+   * re-selects the folder, then the command that was in flight is replayed if it was a FETCH, SEARCH or NOOP, and the
+   * queued commands are sent. 0 disables reconnects.
+   * <p>
+   * Handlers have to be {@code @Sharable}, as for {@link #hibernateAfterIdleMs()}.
+   */
+  @Default
+  default int reconnectAttempts() {
+    return 0;
+  }
+
+  /**
+   * The backoff before the first reconnect attempt, doubled for every further attempt up to
+   * {@link #maxReconnectBackoffMs()}. Each delay is jittered between half and all of the backoff.
+   */
+  @Default
+  default int reconnectBackoffMs() {
+    return 200;
+  }
+
+  @Default
+  default int maxReconnectBackoffMs() {
+    return 30000;
+  }
+
   @Default
   default int socketTimeoutMs() {
     return 90000;
@@ -62,6 +132,16 @@ public interface ImapConfigurationIF {
     return Runtime.getRuntime().availableProcessors() * 2;
   }
 
+  /**
+   * Handle responses and write the next command on the connection's event loop instead of on an executor thread, which
+   * saves two thread handoffs per command. Response futures, listeners, handlers and streaming fetch functions still
+   * run on the executor threads, so they may block.
+   */
+  @Default
+  default boolean handleResponsesOnEventLoop() {
+    return false;
+  }
+
   @Default
   default int maxLineLength() {
     return 100000;
@@ -97,6 +177,32 @@ public interface ImapConfigurationIF {
     return 10000;
   }
 
+  /**
+   * Build fetched messages as {@link com.hubspot.imap.protocol.message.CompactImapMessage}, which keeps uids, sizes,
+   * flags and Gmail ids in primitive fields. Worth turning on for syncs that hold many messages in memory.
+   */
+  @Default
+  default boolean useCompactMessages() {
+    return false;
+  }
+
+  /**
+   * Keep each ENVELOPE as raw bytes and decode its fields on first access, see
+   * {@link com.hubspot.imap.protocol.message.LazyEnvelope}.
+   */
+  @Default
+  default boolean useLazyEnvelopes() {
+    return false;
+  }
+
+  /**
+   * Lazy envelopes of the same response are copied into shared arrays of this size. 0 gives each envelope its own.
+   */
+  @Default
+  default int lazyEnvelopeChunkSize() {
+    return 64 * 1024;
+  }
+
   enum AuthType {
     PASSWORD,
     XOAUTH2;
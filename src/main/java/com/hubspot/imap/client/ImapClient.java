@@ -1,12 +1,16 @@
 package com.hubspot.imap.client;
 
 import java.io.Closeable;
+import java.io.IOException;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Function;
@@ -18,6 +22,8 @@ import com.google.common.base.Throwables;
 import com.google.common.collect.Lists;
 import com.hubspot.imap.ImapChannelAttrs;
 import com.hubspot.imap.ImapConfiguration;
+import com.hubspot.imap.metrics.ByteCountingHandler;
+import com.hubspot.imap.metrics.ImapMetrics;
 import com.hubspot.imap.protocol.ResponseDecoder;
 import com.hubspot.imap.protocol.command.BaseImapCommand;
 import com.hubspot.imap.protocol.command.ImapCommand;
@@ -28,6 +34,7 @@ import com.hubspot.imap.protocol.command.SilentStoreCommand;
 import com.hubspot.imap.protocol.command.StoreCommand.StoreAction;
 import com.hubspot.imap.protocol.command.XOAuth2Command;
 import com.hubspot.imap.protocol.command.fetch.FetchCommand;
+import com.hubspot.imap.protocol.command.fetch.FlagSyncCommand;
 import com.hubspot.imap.protocol.command.fetch.SetFetchCommand;
 import com.hubspot.imap.protocol.command.fetch.StreamingFetchCommand;
 import com.hubspot.imap.protocol.command.fetch.UidCommand;
@@ -35,35 +42,47 @@ import com.hubspot.imap.protocol.command.fetch.items.FetchDataItem;
 import com.hubspot.imap.protocol.command.search.SearchCommand;
 import com.hubspot.imap.protocol.command.search.keys.SearchKey;
 import com.hubspot.imap.protocol.exceptions.AuthenticationFailedException;
+import com.hubspot.imap.protocol.exceptions.CommandFailedException;
 import com.hubspot.imap.protocol.exceptions.ConnectionClosedException;
+import com.hubspot.imap.protocol.exceptions.FolderOpenFailedException;
+import com.hubspot.imap.protocol.exceptions.UidValidityChangedException;
+import com.hubspot.imap.protocol.message.FlagSnapshot;
 import com.hubspot.imap.protocol.message.ImapMessage;
 import com.hubspot.imap.protocol.message.MessageFlag;
 import com.hubspot.imap.protocol.response.ContinuationResponse;
 import com.hubspot.imap.protocol.response.ResponseCode;
 import com.hubspot.imap.protocol.response.events.ByeEvent;
 import com.hubspot.imap.protocol.response.tagged.FetchResponse;
+import com.hubspot.imap.protocol.response.tagged.FlagSyncResponse;
 import com.hubspot.imap.protocol.response.tagged.ListResponse;
 import com.hubspot.imap.protocol.response.tagged.NoopResponse;
 import com.hubspot.imap.protocol.response.tagged.OpenResponse;
 import com.hubspot.imap.protocol.response.tagged.SearchResponse;
 import com.hubspot.imap.protocol.response.tagged.StreamingFetchResponse;
 import com.hubspot.imap.protocol.response.tagged.TaggedResponse;
+import com.hubspot.imap.utils.CommandUtils;
 import com.hubspot.imap.utils.LogUtils;
 
 import io.netty.bootstrap.Bootstrap;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandler.Sharable;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.ssl.SslHandler;
 import io.netty.handler.timeout.IdleStateEvent;
 import io.netty.handler.timeout.IdleStateHandler;
+import io.netty.handler.timeout.ReadTimeoutException;
 import io.netty.handler.timeout.ReadTimeoutHandler;
 import io.netty.util.Recycler;
 import io.netty.util.Recycler.Handle;
 import io.netty.util.concurrent.EventExecutorGroup;
 import io.netty.util.concurrent.Future;
 import io.netty.util.concurrent.Promise;
+import io.netty.util.concurrent.ScheduledFuture;
 
+// Added to each new channel when the client resumes from hibernation
+@Sharable
 public class ImapClient extends ChannelDuplexHandler implements AutoCloseable, Closeable {
 
   private static final String KEEP_ALIVE_HANDLER = "imap noop keep alive";
@@ -73,18 +92,38 @@ public class ImapClient extends ChannelDuplexHandler implements AutoCloseable, C
   private final Bootstrap bootstrap;
   private final EventExecutorGroup promiseExecutor;
   private final EventExecutorGroup idleExecutor;
+  private final Executor callbackExecutor;
   private final String userName;
   private final String authToken;
   private final ImapClientState clientState;
   private final ImapCodec codec;
-  private final ConcurrentLinkedQueue<PendingCommand> pendingWriteQueue;
+  private final ConcurrentLinkedDeque<PendingCommand> pendingWriteQueue;
   private final AtomicBoolean connectionClosed;
+  private final ImapMetrics metrics;
 
   private Channel channel;
 
   private final Promise<TaggedResponse> loginPromise;
 
+  private volatile ImapCommand currentCommand;
   private volatile Promise currentCommandPromise;
+  private volatile long currentCommandStartNanos;
+  // Commands written behind the current one by openSession, completed in order as their tagged responses arrive
+  private final ConcurrentLinkedQueue<PendingCommand> pipelinedCommands;
+  private ChannelFuture connectFuture;
+  private volatile long sessionStartNanos;
+
+  // A client is suspended while it has no usable connection, because it hibernated (see
+  // ImapConfiguration#hibernateAfterIdleMs()) or because its connection dropped and it is reconnecting (see
+  // ImapConfiguration#reconnectAttempts()). Commands sent while suspended wait in the pending queue until the
+  // connection has been resumed.
+  private volatile long lastUsedNanos;
+  private volatile OpenCommand selectedFolder;
+  private volatile long selectedUidValidity;
+  private volatile boolean suspended;
+  private volatile boolean reconnecting;
+  private boolean resuming;
+  private int reconnectAttempt;
 
   public ImapClient(ImapConfiguration configuration,
                     Bootstrap bootstrap,
@@ -93,34 +132,81 @@ public class ImapClient extends ChannelDuplexHandler implements AutoCloseable, C
                     String clientName,
                     String userName,
                     String authToken) {
+    this(configuration, bootstrap, promiseExecutor, idleExecutor, ImapMetrics.disabled(), clientName, userName, authToken);
+  }
+
+  public ImapClient(ImapConfiguration configuration,
+                    Bootstrap bootstrap,
+                    EventExecutorGroup promiseExecutor,
+                    EventExecutorGroup idleExecutor,
+                    ImapMetrics metrics,
+                    String clientName,
+                    String userName,
+                    String authToken) {
+    this(configuration, bootstrap, promiseExecutor, idleExecutor, promiseExecutor, metrics, clientName, userName, authToken);
+  }
+
+  /**
+   * @param callbackExecutor runs streaming fetch functions and message add and open event listeners. Response futures
+   *                         complete on {@code promiseExecutor}, so their listeners run there.
+   */
+  public ImapClient(ImapConfiguration configuration,
+                    Bootstrap bootstrap,
+                    EventExecutorGroup promiseExecutor,
+                    EventExecutorGroup idleExecutor,
+                    Executor callbackExecutor,
+                    ImapMetrics metrics,
+                    String clientName,
+                    String userName,
+                    String authToken) {
     this.logger = LogUtils.loggerWithName(ImapClient.class, clientName);
     this.configuration = configuration;
     this.bootstrap = bootstrap;
     this.promiseExecutor = promiseExecutor;
     this.idleExecutor = idleExecutor;
+    this.callbackExecutor = callbackExecutor;
     this.userName = userName;
     this.authToken = authToken;
-    this.clientState = new ImapClientState(clientName, promiseExecutor);
+    this.clientState = new ImapClientState(clientName, promiseExecutor, callbackExecutor);
     this.codec = new ImapCodec(clientState);
-    this.pendingWriteQueue = new ConcurrentLinkedQueue<>();
+    this.pendingWriteQueue = new ConcurrentLinkedDeque<>();
+    this.pipelinedCommands = new ConcurrentLinkedQueue<>();
     this.connectionClosed = new AtomicBoolean(false);
+    this.metrics = metrics;
+    this.lastUsedNanos = System.nanoTime();
 
     loginPromise = promiseExecutor.next().newPromise();
+    loginPromise.addListener(future -> {
+      if (future.isSuccess()) {
+        startKeepAlive();
+        scheduleHibernation(TimeUnit.MILLISECONDS.toNanos(configuration.hibernateAfterIdleMs()));
+      }
+    });
   }
 
   public synchronized ChannelFuture connect() {
     ChannelFuture future = bootstrap.connect(configuration.hostAndPort().getHostText(),
         configuration.hostAndPort().getPort());
+    connectFuture = future;
 
     future.addListener(f -> {
       if (f.isSuccess()) {
-        configureChannel(((ChannelFuture) f).channel());
+        // Commands sent before the connect finished are queued under this lock, so hold it while we look at the queue.
+        synchronized (this) {
+          if (connectionClosed.get()) {
+            // Closed while connecting, e.g. during a reconnect
+            ((ChannelFuture) f).channel().close();
+            return;
+          }
 
-        if (pendingWriteQueue.peek() != null) {
-          idleExecutor.submit(() -> {
-            writeNext();
-            return null;
-          });
+          configureChannel(((ChannelFuture) f).channel());
+
+          if (pendingWriteQueue.peek() != null) {
+            idleExecutor.submit(() -> {
+              writeNext();
+              return null;
+            });
+          }
         }
       }
     });
@@ -132,12 +218,27 @@ public class ImapClient extends ChannelDuplexHandler implements AutoCloseable, C
     this.channel = channel;
     this.channel.pipeline()
         .addLast(new ReadTimeoutHandler(configuration.socketTimeoutMs(), TimeUnit.MILLISECONDS))
-        .addLast(new ResponseDecoder(configuration, clientState, promiseExecutor))
+        .addLast(new ResponseDecoder(configuration, clientState, promiseExecutor, callbackExecutor, metrics))
         .addLast(codec)
-        .addLast(promiseExecutor, this)
-        .addLast(promiseExecutor, this.clientState);
+        .addLast(handlerExecutor(), this)
+        .addLast(handlerExecutor(), this.clientState);
 
     this.channel.attr(ImapChannelAttrs.CONFIGURATION).set(configuration);
+    this.channel.closeFuture().addListener(f -> channelClosed(channel));
+
+    if (metrics.isEnabled()) {
+      this.channel.pipeline().addFirst(new ByteCountingHandler(metrics));
+
+      metrics.connectionOpened();
+      this.channel.closeFuture().addListener(f -> metrics.connectionClosed());
+    }
+  }
+
+  /**
+   * @return the group to run this client's handlers on, or null for the channel's event loop
+   */
+  private EventExecutorGroup handlerExecutor() {
+    return configuration.handleResponsesOnEventLoop() ? null : promiseExecutor;
   }
 
   public ImapClientState getState() {
@@ -145,15 +246,7 @@ public class ImapClient extends ChannelDuplexHandler implements AutoCloseable, C
   }
 
   public Future<TaggedResponse> login() {
-    Future<TaggedResponse> loginFuture;
-    switch (configuration.authType()) {
-      case XOAUTH2:
-        loginFuture = oauthLogin();
-        break;
-      default:
-        loginFuture = passwordLogin();
-        break;
-    }
+    Future<TaggedResponse> loginFuture = send(newLoginCommand());
 
     loginFuture.addListener(future -> {
       final Object response = future.get();
@@ -178,13 +271,104 @@ public class ImapClient extends ChannelDuplexHandler implements AutoCloseable, C
       }
     });
 
-    loginPromise.addListener(future -> {
-      if (future.isSuccess()) {
-        startKeepAlive();
+    return loginPromise;
+  }
+
+  /**
+   * Connects if {@link #connect()} has not been called yet, then logs in, enables the given extensions and opens a folder
+   * with the commands written back to back instead of one round trip each. XOAUTH2 already sends its credentials with
+   * the AUTHENTICATE command (SASL-IR), so no continuation is needed when login succeeds.
+   * <p>
+   * Has to be the first command of the client. If the login fails the other commands fail with it; the login is
+   * reported through {@link #login()}'s future as well, so {@link #awaitLogin()} and {@link #isLoggedIn()} work as usual.
+   *
+   * @return the response to the SELECT or EXAMINE, failed with an {@link AuthenticationFailedException} if the login failed
+   */
+  public synchronized Future<OpenResponse> openSession(String folderName, FolderOpenMode openMode, String... enableExtensions) {
+    Preconditions.checkState(currentCommandPromise == null && pendingWriteQueue.isEmpty() && !loginPromise.isDone(),
+        "openSession must be the first command of a client");
+    sessionStartNanos = System.nanoTime();
+    lastUsedNanos = sessionStartNanos;
+
+    List<ImapCommand> commands = Lists.newArrayList(newLoginCommand());
+    if (enableExtensions.length > 0) {
+      commands.add(new BaseImapCommand(ImapCommandType.ENABLE, enableExtensions));
+    }
+    commands.add(new OpenCommand(folderName, openMode));
+
+    List<Promise<Object>> promises = Lists.newArrayListWithCapacity(commands.size());
+    for (int i = 0; i < commands.size(); i++) {
+      promises.add(promiseExecutor.next().newPromise());
+    }
+
+    Promise<Object> loginResponsePromise = promises.get(0);
+    Promise<Object> openResponsePromise = promises.get(promises.size() - 1);
+    Promise<OpenResponse> sessionPromise = promiseExecutor.next().newPromise();
+
+    loginResponsePromise.addListener(future -> {
+      Object response = future.getNow();
+      if (!future.isSuccess()) {
+        loginPromise.tryFailure(future.cause());
+      } else if (response instanceof ContinuationResponse) {
+        loginPromise.tryFailure(AuthenticationFailedException.fromContinuation(((ContinuationResponse) response).getMessage()));
+      } else if (((TaggedResponse) response).getCode() != ResponseCode.OK) {
+        loginPromise.tryFailure(new AuthenticationFailedException(((TaggedResponse) response).getMessage()));
+      } else {
+        loginPromise.trySuccess(((TaggedResponse) response));
       }
     });
 
-    return loginPromise;
+    // The login listener above may not have run yet when the open completes
+    openResponsePromise.addListener(future -> loginPromise.addListener(login -> {
+      if (!login.isSuccess()) {
+        sessionPromise.tryFailure(login.cause());
+      } else if (!future.isSuccess()) {
+        sessionPromise.tryFailure(future.cause());
+      } else {
+        OpenResponse response = ((OpenResponse) future.getNow());
+        if (response.getCode() == ResponseCode.OK) {
+          metrics.timeSessionOpen(System.nanoTime() - sessionStartNanos);
+        }
+
+        sessionPromise.trySuccess(response);
+      }
+
+      writeNext();
+    }));
+
+    // Commands sent from here on queue behind the session
+    currentCommandPromise = loginResponsePromise;
+    currentCommand = commands.get(0);
+
+    if (connectFuture == null) {
+      connect();
+    }
+
+    connectFuture.addListener(f -> {
+      if (!f.isSuccess()) {
+        promises.forEach(promise -> promise.tryFailure(f.cause()));
+      } else if (connectionClosed.get()) {
+        promises.forEach(promise -> promise.tryFailure(new ConnectionClosedException("Client closed before the session was opened.")));
+      } else {
+        sendPipelined(commands, promises);
+      }
+    });
+
+    return sessionPromise;
+  }
+
+  private synchronized void sendPipelined(List<ImapCommand> commands, List<Promise<Object>> promises) {
+    for (int i = 1; i < commands.size(); i++) {
+      pipelinedCommands.add(PendingCommand.newInstance(commands.get(i), promises.get(i)));
+    }
+
+    currentCommand = commands.get(0);
+    currentCommandPromise = promises.get(0);
+    currentCommandStartNanos = System.nanoTime();
+
+    clientState.setPipelinedCommands(commands);
+    commands.forEach(channel::write);
+    channel.flush();
   }
 
   private void startKeepAlive() {
@@ -196,12 +380,254 @@ public class ImapClient extends ChannelDuplexHandler implements AutoCloseable, C
     }
   }
 
-  private Future<TaggedResponse> passwordLogin() {
-    return send(new BaseImapCommand(ImapCommandType.LOGIN, userName, authToken));
+  private ImapCommand newLoginCommand() {
+    switch (configuration.authType()) {
+      case XOAUTH2:
+        return new XOAuth2Command(userName, authToken);
+      default:
+        return new BaseImapCommand(ImapCommandType.LOGIN, userName, authToken);
+    }
+  }
+
+  private void scheduleHibernation(long delayNanos) {
+    if (configuration.hibernateAfterIdleMs() > 0) {
+      idleExecutor.next().schedule(this::hibernateIfIdle, delayNanos, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  private synchronized void hibernateIfIdle() {
+    if (connectionClosed.get() || suspended || !isConnected()) {
+      return;
+    }
+
+    if (!clientState.canReconnect()) {
+      logger.debug("Not hibernating, the client has handlers that can not be added to a new connection");
+      return;
+    }
+
+    long hibernateAfterNanos = TimeUnit.MILLISECONDS.toNanos(configuration.hibernateAfterIdleMs());
+    long idleNanos = System.nanoTime() - lastUsedNanos;
+    boolean busy = (currentCommandPromise != null && !currentCommandPromise.isDone()) || pendingWriteQueue.peek() != null;
+    if (busy || idleNanos < hibernateAfterNanos) {
+      scheduleHibernation(busy ? hibernateAfterNanos : hibernateAfterNanos - idleNanos);
+      return;
+    }
+
+    logger.debug("Hibernating after {}ms idle", TimeUnit.NANOSECONDS.toMillis(idleNanos));
+    suspended = true;
+
+    Channel hibernatingChannel = channel;
+    hibernatingChannel.closeFuture().addListener(f -> releaseChannel(hibernatingChannel));
+
+    Promise<TaggedResponse> logoutPromise = promiseExecutor.next().newPromise();
+    actuallySend(new BaseImapCommand(ImapCommandType.LOGOUT), logoutPromise);
+    logoutPromise.addListener(f -> closeAfterLogout(hibernatingChannel, f, hibernatingChannel::close));
   }
 
-  private Future<TaggedResponse> oauthLogin() {
-    return send(new XOAuth2Command(userName, authToken));
+  private synchronized void releaseChannel(Channel closedChannel) {
+    if (channel == closedChannel) {
+      channel = null;
+    }
+
+    if (suspended && !resuming && !reconnecting && pendingWriteQueue.peek() != null) {
+      resume();
+    }
+  }
+
+  /**
+   * Starts reconnecting when the connection of a logged in client drops, if reconnects are enabled. The command in
+   * flight is replayed after the reconnect if it is safe to run twice, otherwise it fails. Commands still in the queue
+   * were never sent and run as usual once the client has reconnected.
+   */
+  private synchronized void channelClosed(Channel closedChannel) {
+    if (closedChannel != channel || suspended || connectionClosed.get()) {
+      return;
+    }
+
+    failPipelined(new ConnectionClosedException("Connection closed before the pipelined command completed."));
+
+    if (configuration.reconnectAttempts() <= 0 || !loginPromise.isSuccess() || !clientState.canReconnect()) {
+      return;
+    }
+
+    // The server closes the connection after a LOGOUT we sent
+    if (currentCommand != null && currentCommand.getCommandType() == ImapCommandType.LOGOUT) {
+      return;
+    }
+
+    logger.debug("Connection dropped, reconnecting");
+    channel = null;
+    suspended = true;
+    reconnecting = true;
+    reconnectAttempt = 0;
+
+    Promise inFlightPromise = currentCommandPromise;
+    ImapCommand inFlightCommand = currentCommand;
+    if (inFlightPromise != null && !inFlightPromise.isDone()) {
+      if (isReplayable(inFlightCommand)) {
+        // Rows from the first attempt may include messages expunged since
+        CommandUtils.getFlagSyncCommand(inFlightCommand).ifPresent(command -> command.getSnapshotBuilder().reset());
+        pendingWriteQueue.addFirst(PendingCommand.newInstance(inFlightCommand, inFlightPromise));
+      } else {
+        inFlightPromise.tryFailure(new ConnectionClosedException(
+            String.format("Connection closed while %s was in progress.", inFlightCommand.getCommandType())));
+      }
+    }
+
+    scheduleReconnect();
+  }
+
+  /**
+   * FETCH, SEARCH and NOOP can be sent again without changing the outcome. A streaming fetch is left out as its
+   * consumer would see the messages it already got a second time.
+   */
+  private static boolean isReplayable(ImapCommand imapCommand) {
+    switch (imapCommand.getCommandType()) {
+      case FETCH:
+        return !CommandUtils.isStreamingFetch(imapCommand);
+      case SEARCH:
+      case NOOP:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  private void scheduleReconnect() {
+    // Equal jitter: half the exponential backoff, plus a random part of the other half
+    long ceilingMs = Math.min(configuration.maxReconnectBackoffMs(),
+        ((long) configuration.reconnectBackoffMs()) << Math.min(reconnectAttempt, 20));
+    long delayMs = ceilingMs / 2 + ThreadLocalRandom.current().nextLong(ceilingMs / 2 + 1);
+    reconnectAttempt++;
+
+    logger.debug("Reconnect attempt {} in {}ms", reconnectAttempt, delayMs);
+    idleExecutor.next().schedule(() -> {
+      synchronized (this) {
+        if (!connectionClosed.get() && !resuming) {
+          resume();
+        }
+      }
+    }, delayMs, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Reconnects a suspended client, logs in and re-selects the folder that was selected, then sends the commands that
+   * were queued in the meantime. If the folder's UIDVALIDITY changed the queued commands fail, as the uids they refer to
+   * may now be other messages.
+   * <p>
+   * If any step fails while reconnecting the next attempt is scheduled, until the attempts run out. Then, or if any
+   * step fails when resuming from hibernation, the queued commands fail with the cause. A hibernated client stays
+   * hibernated so the next command tries again, a reconnecting client is closed.
+   */
+  private synchronized void resume() {
+    logger.debug("Resuming connection");
+    resuming = true;
+
+    connect().addListener(connectFuture -> {
+      if (!connectFuture.isSuccess()) {
+        resumeFailed(connectFuture.cause());
+        return;
+      }
+
+      if (connectionClosed.get()) {
+        resumeFailed(new ConnectionClosedException("Client closed while resuming."));
+        return;
+      }
+
+      ((ChannelFuture) connectFuture).channel().closeFuture().addListener(closeFuture ->
+          resumeFailed(new ConnectionClosedException("Connection closed while resuming.")));
+
+      sendWhileResuming(newLoginCommand()).addListener(loginFuture -> {
+        Object response = loginFuture.getNow();
+        if (!loginFuture.isSuccess()) {
+          resumeFailed(loginFuture.cause());
+        } else if (response instanceof ContinuationResponse) {
+          resumeFailed(AuthenticationFailedException.fromContinuation(((ContinuationResponse) response).getMessage()));
+        } else if (((TaggedResponse) response).getCode() != ResponseCode.OK) {
+          resumeFailed(new AuthenticationFailedException(((TaggedResponse) response).getMessage()));
+        } else if (selectedFolder == null) {
+          resumed();
+        } else {
+          OpenCommand folder = selectedFolder;
+          long uidValidity = selectedUidValidity;
+          sendWhileResuming(folder).addListener(openFuture -> {
+            if (!openFuture.isSuccess()) {
+              resumeFailed(openFuture.cause());
+            } else if (((TaggedResponse) openFuture.getNow()).getCode() != ResponseCode.OK) {
+              resumeFailed(new FolderOpenFailedException(folder.getFolderName(), ((TaggedResponse) openFuture.getNow()).getMessage()));
+            } else {
+              long newUidValidity = ((OpenResponse) openFuture.getNow()).getUidValidity();
+              if (newUidValidity != uidValidity) {
+                failPending(new UidValidityChangedException(folder.getFolderName(), uidValidity, newUidValidity));
+              }
+
+              resumed();
+            }
+          });
+        }
+      });
+    });
+  }
+
+  private Future<Object> sendWhileResuming(ImapCommand imapCommand) {
+    Promise<Object> promise = promiseExecutor.next().newPromise();
+    actuallySend(imapCommand, promise);
+    return promise;
+  }
+
+  private synchronized void resumed() throws ConnectionClosedException {
+    suspended = false;
+    reconnecting = false;
+    resuming = false;
+    lastUsedNanos = System.nanoTime();
+
+    startKeepAlive();
+    scheduleHibernation(TimeUnit.MILLISECONDS.toNanos(configuration.hibernateAfterIdleMs()));
+    writeNext();
+  }
+
+  private synchronized void resumeFailed(Throwable cause) {
+    if (!resuming) {
+      return;
+    }
+
+    logger.debug("Could not resume connection", cause);
+    resuming = false;
+
+    if (channel != null) {
+      Channel failedChannel = channel;
+      failedChannel.closeFuture().addListener(f -> releaseChannel(failedChannel));
+      failedChannel.close();
+    }
+
+    if (reconnecting) {
+      if (reconnectAttempt < configuration.reconnectAttempts() && !connectionClosed.get()) {
+        scheduleReconnect();
+        return;
+      }
+
+      logger.debug("Giving up after {} reconnect attempts", reconnectAttempt);
+      reconnecting = false;
+      connectionClosed.set(true);
+    }
+
+    failPending(cause);
+  }
+
+  private void failPipelined(Throwable cause) {
+    PendingCommand pendingCommand;
+    while ((pendingCommand = pipelinedCommands.poll()) != null) {
+      pendingCommand.promise.tryFailure(cause);
+      pendingCommand.recycle();
+    }
+  }
+
+  private synchronized void failPending(Throwable cause) {
+    PendingCommand pendingCommand;
+    while ((pendingCommand = pendingWriteQueue.poll()) != null) {
+      pendingCommand.promise.tryFailure(cause);
+      pendingCommand.recycle();
+    }
   }
 
   public Future<TaggedResponse> logout() {
@@ -280,6 +706,14 @@ public class ImapClient extends ChannelDuplexHandler implements AutoCloseable, C
     return send(new UidCommand(ImapCommandType.FETCH, new StreamingFetchCommand<>(startId, stopId, messageFunction, fetchDataItems)));
   }
 
+  /**
+   * Fetches the flags of every message in the open folder into a compact {@link FlagSnapshot}. Pass the snapshot from
+   * the previous sync of this folder (with the same UIDVALIDITY) to get a diff and to keep keyword ids stable.
+   */
+  public Future<FlagSyncResponse> syncFlags(Optional<FlagSnapshot> previousSnapshot) {
+    return send(new UidCommand(ImapCommandType.FETCH, new FlagSyncCommand(previousSnapshot)));
+  }
+
   public Future<TaggedResponse> uidstore(StoreAction action,
                                          long startId,
                                          Optional<Long> stopId,
@@ -312,7 +746,7 @@ public class ImapClient extends ChannelDuplexHandler implements AutoCloseable, C
   }
 
   public boolean isLoggedIn() {
-    return loginPromise.isSuccess() && channel.isActive();
+    return loginPromise.isSuccess() && isConnected();
   }
 
   public boolean isConnected() {
@@ -323,6 +757,22 @@ public class ImapClient extends ChannelDuplexHandler implements AutoCloseable, C
     return connectionClosed.get();
   }
 
+  /**
+   * @return whether the client has logged out to save resources and will reconnect on the next command, see
+   * {@link ImapConfiguration#hibernateAfterIdleMs()}
+   */
+  public boolean isHibernated() {
+    return suspended && !reconnecting;
+  }
+
+  /**
+   * @return whether the connection dropped and the client is reconnecting, see
+   * {@link ImapConfiguration#reconnectAttempts()}
+   */
+  public boolean isReconnecting() {
+    return reconnecting;
+  }
+
   public void awaitLogin() throws InterruptedException, ExecutionException {
     loginPromise.get();
   }
@@ -341,10 +791,17 @@ public class ImapClient extends ChannelDuplexHandler implements AutoCloseable, C
    * @return Response future. Will be completed when a tagged response is received for this command.
    */
   public synchronized <T extends TaggedResponse> Future<T> send(ImapCommand imapCommand) {
+    lastUsedNanos = System.nanoTime();
+    return enqueue(imapCommand);
+  }
+
+  private synchronized <T extends TaggedResponse> Future<T> enqueue(ImapCommand imapCommand) {
     final Promise<T> commandPromise = promiseExecutor.next().newPromise();
-    commandPromise.addListener((f) -> {
-      writeNext();
-    });
+    if (!configuration.handleResponsesOnEventLoop()) {
+      commandPromise.addListener((f) -> {
+        writeNext();
+      });
+    }
 
     send(imapCommand, commandPromise);
 
@@ -357,7 +814,12 @@ public class ImapClient extends ChannelDuplexHandler implements AutoCloseable, C
       return;
     }
 
-    if ((currentCommandPromise != null && !currentCommandPromise.isDone()) || !isConnected()) {
+    if (suspended) {
+      pendingWriteQueue.add(PendingCommand.newInstance(imapCommand, promise));
+      if (channel == null && !resuming && !reconnecting) {
+        resume();
+      }
+    } else if ((currentCommandPromise != null && !currentCommandPromise.isDone()) || !isConnected()) {
       PendingCommand pendingCommand = PendingCommand.newInstance(imapCommand, promise);
       pendingWriteQueue.add(pendingCommand);
     } else {
@@ -366,20 +828,29 @@ public class ImapClient extends ChannelDuplexHandler implements AutoCloseable, C
   }
 
   public void actuallySend(ImapCommand imapCommand, Promise promise) {
+    currentCommand = imapCommand;
     currentCommandPromise = promise;
+    currentCommandStartNanos = System.nanoTime();
+    CommandUtils.getStreamingFetchCommand(imapCommand).ifPresent(command -> command.setWrittenAtNanos(currentCommandStartNanos));
 
     clientState.setCurrentCommand(imapCommand);
     channel.writeAndFlush(imapCommand);
   }
 
   public synchronized void writeNext() throws ConnectionClosedException {
-    if (connectionClosed.get()) {
+    if (connectionClosed.get() || suspended) {
+      return;
+    }
+
+    // The command in progress sends the next one when it completes
+    if (currentCommandPromise != null && !currentCommandPromise.isDone()) {
       return;
     }
 
     if (pendingWriteQueue.peek() != null) {
       if (channel.isWritable()) {
         PendingCommand pendingCommand = pendingWriteQueue.poll();
+        metrics.timePendingWrite(System.nanoTime() - pendingCommand.enqueuedAtNanos);
         send(pendingCommand.imapCommand, pendingCommand.promise);
 
         pendingCommand.recycle();
@@ -402,18 +873,62 @@ public class ImapClient extends ChannelDuplexHandler implements AutoCloseable, C
   public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
     if (msg instanceof ContinuationResponse) {
       currentCommandPromise.setSuccess(msg);
+
+      if (pipelinedCommands.peek() != null) {
+        // The server took the next pipelined command as the reply to this continuation, so the session is out of step
+        failPipelined(new CommandFailedException(currentCommand.getCommandType(), ResponseCode.BAD,
+            "Pipelined commands were read as the reply to a continuation"));
+        ctx.close();
+      }
+
+      commandCompleted();
     } else if (msg instanceof TaggedResponse) {
       TaggedResponse taggedResponse = ((TaggedResponse) msg);
+      ImapCommand command = currentCommand;
+      Promise currentCommandPromise = this.currentCommandPromise;
+      metrics.timeCommand(command.getCommandType(), System.nanoTime() - currentCommandStartNanos);
+
+      // Move on to the next pipelined command before completing this one, so a command sent from a listener queues
+      PendingCommand next = pipelinedCommands.poll();
+      if (next != null) {
+        this.currentCommand = next.imapCommand;
+        this.currentCommandPromise = next.promise;
+        next.recycle();
+      }
+
+      if (command.getCommandType() == ImapCommandType.FETCH && sessionStartNanos != 0) {
+        metrics.timeFirstFetch(System.nanoTime() - sessionStartNanos);
+        sessionStartNanos = 0;
+      }
+
+      if (command instanceof OpenCommand) {
+        // A failed SELECT or EXAMINE leaves no folder selected
+        boolean opened = taggedResponse.getCode() == ResponseCode.OK;
+        selectedFolder = opened ? ((OpenCommand) command) : null;
+        selectedUidValidity = opened ? ((OpenResponse) taggedResponse).getUidValidity() : 0;
+      }
 
       if (currentCommandPromise.isDone() && !currentCommandPromise.isSuccess()) {
         logger.debug("Got tagged response to failed imapCommand, skipping");
-        return;
-      }
-      try {
-        currentCommandPromise.setSuccess(taggedResponse);
-      } catch (IllegalStateException e) {
-        logger.debug("Could not complete current imapCommand", e);
+      } else {
+        try {
+          currentCommandPromise.setSuccess(taggedResponse);
+        } catch (IllegalStateException e) {
+          logger.debug("Could not complete current imapCommand", e);
+        }
       }
+
+      commandCompleted();
+    }
+  }
+
+  /**
+   * With handlers on the event loop the next command is written right away, instead of from a listener on the command's
+   * promise that would run on an executor thread.
+   */
+  private void commandCompleted() throws ConnectionClosedException {
+    if (configuration.handleResponsesOnEventLoop()) {
+      writeNext();
     }
   }
 
@@ -421,11 +936,16 @@ public class ImapClient extends ChannelDuplexHandler implements AutoCloseable, C
   public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
     if (evt instanceof IdleStateEvent) {
       if (!connectionClosed.get()) {
-        noop();
+        enqueue(new BaseImapCommand(ImapCommandType.NOOP));
       }
     } else if (evt instanceof ByeEvent) {
-      if (channel.isOpen() && clientState.getCurrentCommand().getCommandType() != ImapCommandType.LOGOUT) {
-        closeNow();
+      // After hibernation the BYE may belong to a channel that has already been replaced
+      if (ctx.channel() == channel && channel.isOpen() && clientState.getCurrentCommand().getCommandType() != ImapCommandType.LOGOUT) {
+        if (configuration.reconnectAttempts() > 0) {
+          channel.close();
+        } else {
+          closeNow();
+        }
       }
     }
 
@@ -434,15 +954,24 @@ public class ImapClient extends ChannelDuplexHandler implements AutoCloseable, C
 
   @Override
   public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
-    if (currentCommandPromise != null) {
+    if (configuration.reconnectAttempts() > 0 && isConnectionError(cause) && ctx.channel() == channel) {
+      // The command in flight is replayed or failed once the channel has closed, see channelClosed
+      logger.debug("Connection error while executing {}", clientState.getCurrentCommand().getCommandType(), cause);
+      ctx.close();
+    } else if (currentCommandPromise != null) {
       logger.debug("Error while executing {}", clientState.getCurrentCommand().getCommandType(), cause);
       currentCommandPromise.tryFailure(cause);
+      commandCompleted();
     } else {
       logger.error("Error in handler", cause);
       ctx.pipeline().fireExceptionCaught(cause);
     }
   }
 
+  private static boolean isConnectionError(Throwable cause) {
+    return cause instanceof IOException || cause instanceof ReadTimeoutException;
+  }
+
   public Future closeAsync() {
     if (isConnected() && !connectionClosed.get()) {
       connectionClosed.set(true);
@@ -458,14 +987,49 @@ public class ImapClient extends ChannelDuplexHandler implements AutoCloseable, C
 
   private Future sendLogout() {
     Promise<TaggedResponse> logoutPromise = promiseExecutor.next().newPromise();
+    Channel logoutChannel = channel;
     actuallySend(new BaseImapCommand(ImapCommandType.LOGOUT), logoutPromise);
 
-    return logoutPromise.addListener(future1 -> closeNow());
+    return logoutPromise.addListener(future1 -> closeAfterLogout(logoutChannel, future1, this::closeNow));
+  }
+
+  /**
+   * Runs {@code close} once the server has ended the connection after a LOGOUT, or after
+   * {@link ImapConfiguration#closeTimeoutSec()}. A JDK TLS engine closed before it has read the peer's close_notify
+   * invalidates its session, so closing as soon as the tagged response arrives would stop the next connection from
+   * resuming it.
+   */
+  private void closeAfterLogout(Channel logoutChannel, Future<?> logoutFuture, Runnable close) {
+    SslHandler sslHandler = logoutChannel.pipeline().get(SslHandler.class);
+    if (!logoutFuture.isSuccess() || sslHandler == null || !logoutChannel.isOpen()) {
+      close.run();
+      return;
+    }
+
+    ScheduledFuture<?> timeout = logoutChannel.eventLoop().schedule(close, configuration.closeTimeoutSec(), TimeUnit.SECONDS);
+    sslHandler.sslCloseFuture().addListener(f -> close.run());
+    logoutChannel.closeFuture().addListener(f -> {
+      timeout.cancel(false);
+      close.run();
+    });
   }
 
+  /**
+   * Closes the connection without logging out. Waits up to {@link ImapConfiguration#closeTimeoutSec()} for the channel
+   * to close, unless called on the channel's event loop, which can't wait for itself.
+   */
   public void closeNow() {
     connectionClosed.set(true);
+    // Commands queued while hibernated or reconnecting would otherwise never complete
+    failPending(new ConnectionClosedException("Client closed before the command was sent."));
+
+    Channel channel = this.channel;
     if (channel != null && channel.isOpen()) {
+      if (channel.eventLoop().inEventLoop()) {
+        channel.close();
+        return;
+      }
+
       try {
         channel.close().get(configuration.closeTimeoutSec(), TimeUnit.SECONDS);
       } catch (ExecutionException | TimeoutException e) {
@@ -491,6 +1055,13 @@ public class ImapClient extends ChannelDuplexHandler implements AutoCloseable, C
     return configuration;
   }
 
+  /**
+   * The executors this client's response futures complete on.
+   */
+  public EventExecutorGroup getPromiseExecutor() {
+    return promiseExecutor;
+  }
+
   private static final class PendingCommand {
     private static final Recycler<PendingCommand> RECYCLER = new Recycler<PendingCommand>() {
       @Override
@@ -503,6 +1074,7 @@ public class ImapClient extends ChannelDuplexHandler implements AutoCloseable, C
 
     private ImapCommand imapCommand;
     private Promise promise;
+    private long enqueuedAtNanos;
 
     public PendingCommand(Handle handle) {
       this.handle = handle;
@@ -513,6 +1085,7 @@ public class ImapClient extends ChannelDuplexHandler implements AutoCloseable, C
 
       pendingCommand.imapCommand = imapCommand;
       pendingCommand.promise = promise;
+      pendingCommand.enqueuedAtNanos = System.nanoTime();
 
       return pendingCommand;
     }
@@ -1,7 +1,10 @@
 package com.hubspot.imap.client;
 
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BiConsumer;
@@ -10,6 +13,7 @@ import java.util.function.Consumer;
 import com.hubspot.imap.client.listener.ConnectionListener;
 import com.hubspot.imap.client.listener.MessageAddConsumer;
 import com.hubspot.imap.protocol.command.ImapCommand;
+import com.hubspot.imap.protocol.extension.gmail.GMailLabelRegistry;
 import com.hubspot.imap.protocol.response.events.ExistsEvent;
 import com.hubspot.imap.protocol.response.events.ExpungeEvent;
 import com.hubspot.imap.protocol.response.events.OpenEvent;
@@ -17,15 +21,21 @@ import com.hubspot.imap.protocol.response.tagged.OpenResponse;
 
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandler.Sharable;
+import io.netty.channel.ChannelHandlerAdapter;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.util.concurrent.EventExecutorGroup;
 
+// Added to each new channel of a client that hibernates and resumes
+@Sharable
 public class ImapClientState extends ChannelInboundHandlerAdapter {
   private final String clientName;
   private final EventExecutorGroup executorGroup;
+  private final Executor callbackExecutor;
 
   private final AtomicReference<ImapCommand> currentCommand;
+  private final Queue<ImapCommand> pipelinedCommands;
   private final AtomicLong commandCount;
   private final AtomicLong messageNumber;
 
@@ -34,13 +44,25 @@ public class ImapClientState extends ChannelInboundHandlerAdapter {
   private final List<ConnectionListener> connectionListeners;
   private final List<ChannelHandler> handlers;
 
+  private volatile GMailLabelRegistry gMailLabelRegistry;
   private Channel channel;
 
   public ImapClientState(String clientName, EventExecutorGroup executorGroup) {
+    this(clientName, executorGroup, executorGroup);
+  }
+
+  /**
+   * @param executorGroup runs the handlers and connection listeners, which netty only adds to a pipeline with an
+   *                      {@link EventExecutorGroup}
+   * @param callbackExecutor runs the message add and open event listeners
+   */
+  public ImapClientState(String clientName, EventExecutorGroup executorGroup, Executor callbackExecutor) {
     this.clientName = clientName;
     this.executorGroup = executorGroup;
+    this.callbackExecutor = callbackExecutor;
 
     this.currentCommand = new AtomicReference<>();
+    this.pipelinedCommands = new ConcurrentLinkedQueue<>();
     this.commandCount = new AtomicLong(0);
     this.messageNumber = new AtomicLong(0);
 
@@ -48,6 +70,8 @@ public class ImapClientState extends ChannelInboundHandlerAdapter {
     this.openEventListeners = new CopyOnWriteArrayList<>();
     this.connectionListeners = new CopyOnWriteArrayList<>();
     this.handlers = new CopyOnWriteArrayList<>();
+
+    this.gMailLabelRegistry = new GMailLabelRegistry();
   }
 
   @Override
@@ -69,7 +93,7 @@ public class ImapClientState extends ChannelInboundHandlerAdapter {
       long currentCount = messageNumber.get();
       if (currentCount > lastMessageCount) {
         for (BiConsumer<Long, Long> listener: messageAddListeners) {
-          executorGroup.submit(() -> listener.accept(lastMessageCount, currentCount));
+          callbackExecutor.execute(() -> listener.accept(lastMessageCount, currentCount));
         }
       }
     } else if (evt instanceof OpenEvent) {
@@ -78,7 +102,7 @@ public class ImapClientState extends ChannelInboundHandlerAdapter {
       messageNumber.set(response.getExists());
 
       for (Consumer<OpenEvent> listener: openEventListeners) {
-        executorGroup.submit(() -> listener.accept(event));
+        callbackExecutor.execute(() -> listener.accept(event));
       }
     }
 
@@ -109,6 +133,24 @@ public class ImapClientState extends ChannelInboundHandlerAdapter {
     connectionListeners.add(listener);
   }
 
+  /**
+   * @return whether the handlers and listeners can be added to a new channel, which netty refuses for a handler that is
+   * not {@code @Sharable} once it has been added anywhere.
+   */
+  public boolean canReconnect() {
+    return isSharable(handlers) && isSharable(connectionListeners);
+  }
+
+  private static boolean isSharable(List<? extends ChannelHandler> handlers) {
+    for (ChannelHandler handler : handlers) {
+      if (handler instanceof ChannelHandlerAdapter && !((ChannelHandlerAdapter) handler).isSharable()) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
   public long getMessageNumber() {
     return messageNumber.get();
   }
@@ -122,10 +164,41 @@ public class ImapClientState extends ChannelInboundHandlerAdapter {
   }
 
   public void setCurrentCommand(ImapCommand imapCommand) {
+    pipelinedCommands.clear();
     currentCommand.set(imapCommand);
   }
 
+  /**
+   * Sets the first command as the current one, each of the others becomes current once the tagged response of the one
+   * before it has been decoded.
+   */
+  public void setPipelinedCommands(List<ImapCommand> imapCommands) {
+    setCurrentCommand(imapCommands.get(0));
+    pipelinedCommands.addAll(imapCommands.subList(1, imapCommands.size()));
+  }
+
+  /**
+   * Called once the tagged response of the current command has been decoded.
+   */
+  public void commandCompleted() {
+    ImapCommand next = pipelinedCommands.poll();
+    if (next != null) {
+      currentCommand.set(next);
+    }
+  }
+
   public String getClientName() {
     return clientName;
   }
+
+  public GMailLabelRegistry getGMailLabelRegistry() {
+    return gMailLabelRegistry;
+  }
+
+  /**
+   * Connections to the same account can share a registry so they also share label instances.
+   */
+  public void setGMailLabelRegistry(GMailLabelRegistry gMailLabelRegistry) {
+    this.gMailLabelRegistry = gMailLabelRegistry;
+  }
 }
@@ -1,17 +1,20 @@
 package com.hubspot.imap.client;
 
 import java.util.List;
+import java.util.Optional;
 
 import org.slf4j.Logger;
 
 import com.hubspot.imap.ImapChannelAttrs;
 import com.hubspot.imap.protocol.command.BaseImapCommand;
 import com.hubspot.imap.protocol.command.ImapCommandType;
+import com.hubspot.imap.protocol.command.fetch.FlagSyncCommand;
 import com.hubspot.imap.protocol.response.ContinuationResponse;
 import com.hubspot.imap.protocol.response.events.ExistsEvent;
 import com.hubspot.imap.protocol.response.events.ExpungeEvent;
 import com.hubspot.imap.protocol.response.events.OpenEvent;
 import com.hubspot.imap.protocol.response.tagged.FetchResponse;
+import com.hubspot.imap.protocol.response.tagged.FlagSyncResponse;
 import com.hubspot.imap.protocol.response.tagged.ListResponse.Builder;
 import com.hubspot.imap.protocol.response.tagged.NoopResponse;
 import com.hubspot.imap.protocol.response.tagged.OpenResponse;
@@ -23,9 +26,12 @@ import com.hubspot.imap.protocol.response.untagged.UntaggedResponseType;
 import com.hubspot.imap.utils.CommandUtils;
 import com.hubspot.imap.utils.LogUtils;
 
+import io.netty.channel.ChannelHandler.Sharable;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.MessageToMessageCodec;
 
+// Added to each new channel of a client that hibernates and resumes
+@Sharable
 public class ImapCodec extends MessageToMessageCodec<Object, BaseImapCommand> {
   private final Logger logger;
   private final ImapClientState clientState;
@@ -66,7 +72,10 @@ public class ImapCodec extends MessageToMessageCodec<Object, BaseImapCommand> {
           ctx.fireUserEventTriggered(new OpenEvent(((OpenResponse) taggedResponse)));
           break;
         case FETCH:
-          if (CommandUtils.isStreamingFetch(clientState.getCurrentCommand())) {
+          Optional<FlagSyncCommand> flagSyncCommand = CommandUtils.getFlagSyncCommand(clientState.getCurrentCommand());
+          if (flagSyncCommand.isPresent()) {
+            taggedResponse = new FlagSyncResponse.Builder().fromResponse(taggedResponse, flagSyncCommand.get());
+          } else if (CommandUtils.isStreamingFetch(clientState.getCurrentCommand())) {
             taggedResponse = new StreamingFetchResponse.Builder().fromResponse(taggedResponse);
           } else {
             taggedResponse = new FetchResponse.Builder().fromResponse(taggedResponse);
@@ -80,6 +89,7 @@ public class ImapCodec extends MessageToMessageCodec<Object, BaseImapCommand> {
           break;
       }
 
+      clientState.commandCompleted();
       out.add(taggedResponse);
     }
   }
@@ -0,0 +1,37 @@
+package com.hubspot.imap.metrics;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandler.Sharable;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+
+/**
+ * Counts the bytes going over the wire. Add this at the head of the pipeline, before any TLS handler.
+ */
+@Sharable
+public class ByteCountingHandler extends ChannelDuplexHandler {
+  private final ImapMetrics metrics;
+
+  public ByteCountingHandler(ImapMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  @Override
+  public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+    if (msg instanceof ByteBuf) {
+      metrics.markBytesRead(((ByteBuf) msg).readableBytes());
+    }
+
+    super.channelRead(ctx, msg);
+  }
+
+  @Override
+  public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+    if (msg instanceof ByteBuf) {
+      metrics.markBytesWritten(((ByteBuf) msg).readableBytes());
+    }
+
+    super.write(ctx, msg, promise);
+  }
+}
@@ -0,0 +1,166 @@
+package com.hubspot.imap.metrics;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.hubspot.imap.protocol.command.ImapCommandType;
+
+/**
+ * Metrics shared by every client created from one {@link com.hubspot.imap.ImapClientFactory}. When the factory was
+ * created without a {@link MetricRegistry} every method here is a no-op.
+ * <p>
+ * Metrics (all prefixed with "imap."):
+ * <p>
+ * - commands.[type] - Time from writing a command to receiving its tagged response
+ * - pending-write-queue.wait - Time a command spent queued behind the command in progress
+ * - bytes.read, bytes.written - Bytes on the wire, including TLS overhead
+ * - literal.size - Size of BODY[] literals
+ * - decode.[response type] - Time spent in the decoder per response, including replays of partially received responses
+ * - connections.active - Open connections
+ * - tls.handshake - Time from adding the TLS handler to the end of the handshake
+ * - tls.handshakes.full, tls.handshakes.resumed - Handshakes that created a new session or resumed a cached one. With
+ *   the OPENSSL provider on Netty 4.0 sessions are never resumed, so every handshake counts as full
+ * - session.open - Time from {@code ImapClient#openSession} to its folder being selected
+ * - session.first-fetch - Time from {@code ImapClient#openSession} to the tagged response of the session's first FETCH
+ */
+public class ImapMetrics {
+  private static final String PREFIX = "imap";
+  private static final ImapMetrics DISABLED = new ImapMetrics(Optional.empty());
+
+  private final Optional<MetricRegistry> registry;
+  private final Map<ImapCommandType, Timer> commandTimers;
+  private final Map<String, Timer> decodeTimers;
+  private final Timer pendingWriteQueueTimer;
+  private final Meter bytesRead;
+  private final Meter bytesWritten;
+  private final Histogram literalSizes;
+  private final Counter activeConnections;
+  private final Timer sessionOpenTimer;
+  private final Timer handshakeTimer;
+  private final Meter fullHandshakes;
+  private final Meter resumedHandshakes;
+  private final Timer firstFetchTimer;
+
+  public ImapMetrics(Optional<MetricRegistry> registry) {
+    this.registry = registry;
+    this.commandTimers = new EnumMap<>(ImapCommandType.class);
+    this.decodeTimers = new ConcurrentHashMap<>();
+
+    if (registry.isPresent()) {
+      MetricRegistry metricRegistry = registry.get();
+      for (ImapCommandType type : ImapCommandType.values()) {
+        commandTimers.put(type, metricRegistry.timer(MetricRegistry.name(PREFIX, "commands", type.name())));
+      }
+
+      this.pendingWriteQueueTimer = metricRegistry.timer(MetricRegistry.name(PREFIX, "pending-write-queue", "wait"));
+      this.bytesRead = metricRegistry.meter(MetricRegistry.name(PREFIX, "bytes", "read"));
+      this.bytesWritten = metricRegistry.meter(MetricRegistry.name(PREFIX, "bytes", "written"));
+      this.literalSizes = metricRegistry.histogram(MetricRegistry.name(PREFIX, "literal", "size"));
+      this.activeConnections = metricRegistry.counter(MetricRegistry.name(PREFIX, "connections", "active"));
+      this.sessionOpenTimer = metricRegistry.timer(MetricRegistry.name(PREFIX, "session", "open"));
+      this.handshakeTimer = metricRegistry.timer(MetricRegistry.name(PREFIX, "tls", "handshake"));
+      this.fullHandshakes = metricRegistry.meter(MetricRegistry.name(PREFIX, "tls", "handshakes", "full"));
+      this.resumedHandshakes = metricRegistry.meter(MetricRegistry.name(PREFIX, "tls", "handshakes", "resumed"));
+      this.firstFetchTimer = metricRegistry.timer(MetricRegistry.name(PREFIX, "session", "first-fetch"));
+    } else {
+      this.pendingWriteQueueTimer = null;
+      this.bytesRead = null;
+      this.bytesWritten = null;
+      this.literalSizes = null;
+      this.activeConnections = null;
+      this.sessionOpenTimer = null;
+      this.handshakeTimer = null;
+      this.fullHandshakes = null;
+      this.resumedHandshakes = null;
+      this.firstFetchTimer = null;
+    }
+  }
+
+  public static ImapMetrics disabled() {
+    return DISABLED;
+  }
+
+  public boolean isEnabled() {
+    return registry.isPresent();
+  }
+
+  public Optional<MetricRegistry> getRegistry() {
+    return registry;
+  }
+
+  public void timeCommand(ImapCommandType type, long nanos) {
+    if (isEnabled()) {
+      commandTimers.get(type).update(nanos, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  public void timePendingWrite(long nanos) {
+    if (isEnabled()) {
+      pendingWriteQueueTimer.update(nanos, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  public void timeDecode(String responseType, long nanos) {
+    if (isEnabled()) {
+      decodeTimers.computeIfAbsent(responseType, type -> registry.get().timer(MetricRegistry.name(PREFIX, "decode", type)))
+          .update(nanos, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  public void markBytesRead(long bytes) {
+    if (isEnabled()) {
+      bytesRead.mark(bytes);
+    }
+  }
+
+  public void markBytesWritten(long bytes) {
+    if (isEnabled()) {
+      bytesWritten.mark(bytes);
+    }
+  }
+
+  public void updateLiteralSize(int size) {
+    if (isEnabled()) {
+      literalSizes.update(size);
+    }
+  }
+
+  public void timeSessionOpen(long nanos) {
+    if (isEnabled()) {
+      sessionOpenTimer.update(nanos, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  public void timeFirstFetch(long nanos) {
+    if (isEnabled()) {
+      firstFetchTimer.update(nanos, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  public void timeHandshake(boolean resumed, long nanos) {
+    if (isEnabled()) {
+      handshakeTimer.update(nanos, TimeUnit.NANOSECONDS);
+      (resumed ? resumedHandshakes : fullHandshakes).mark();
+    }
+  }
+
+  public void connectionOpened() {
+    if (isEnabled()) {
+      activeConnections.inc();
+    }
+  }
+
+  public void connectionClosed() {
+    if (isEnabled()) {
+      activeConnections.dec();
+    }
+  }
+}
@@ -5,40 +5,40 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
-import java.util.concurrent.Future;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.stream.Collectors;
 
-import org.apache.commons.lang.StringUtils;
-import org.apache.commons.lang.math.NumberUtils;
-import org.apache.james.mime4j.MimeException;
 import org.apache.james.mime4j.dom.Message;
-import org.apache.james.mime4j.dom.MessageServiceFactory;
-import org.apache.james.mime4j.message.DefaultMessageBuilder;
-import org.apache.james.mime4j.stream.MimeConfig;
 import org.slf4j.Logger;
 
-import com.codahale.metrics.annotation.Timed;
-import com.google.common.base.Throwables;
 import com.google.common.collect.Lists;
 import com.google.common.primitives.Ints;
 import com.hubspot.imap.ImapChannelAttrs;
 import com.hubspot.imap.ImapConfiguration;
+import com.hubspot.imap.metrics.ImapMetrics;
 import com.hubspot.imap.client.ImapClientState;
 import com.hubspot.imap.protocol.ResponseDecoder.State;
+import com.hubspot.imap.protocol.command.fetch.FlagSyncCommand;
 import com.hubspot.imap.protocol.command.fetch.StreamingFetchCommand;
 import com.hubspot.imap.protocol.command.fetch.UidCommand;
 import com.hubspot.imap.protocol.command.fetch.items.FetchDataItem.FetchDataItemType;
 import com.hubspot.imap.protocol.exceptions.ResponseParseException;
 import com.hubspot.imap.protocol.exceptions.UnknownFetchItemTypeException;
-import com.hubspot.imap.protocol.extension.gmail.GMailLabel;
 import com.hubspot.imap.protocol.folder.FolderAttribute;
 import com.hubspot.imap.protocol.folder.FolderFlags;
 import com.hubspot.imap.protocol.folder.FolderMetadata;
 import com.hubspot.imap.protocol.message.Envelope;
+import com.hubspot.imap.protocol.message.FlagSnapshot;
 import com.hubspot.imap.protocol.message.ImapMessage;
+import com.hubspot.imap.protocol.message.ImapMessageBuilder;
+import com.hubspot.imap.protocol.message.LazyEnvelope;
+import com.hubspot.imap.protocol.message.MessageFlag;
+import com.hubspot.imap.protocol.message.StandardMessageFlag;
 import com.hubspot.imap.protocol.response.ContinuationResponse;
 import com.hubspot.imap.protocol.response.ResponseCode;
 import com.hubspot.imap.protocol.response.events.ByeEvent;
@@ -48,26 +48,21 @@ import com.hubspot.imap.protocol.response.untagged.UntaggedIntResponse.Builder;
 import com.hubspot.imap.protocol.response.untagged.UntaggedResponse;
 import com.hubspot.imap.protocol.response.untagged.UntaggedResponseType;
 import com.hubspot.imap.protocol.response.untagged.UntaggedSearchResponse;
+import com.hubspot.imap.utils.AsciiToken;
 import com.hubspot.imap.utils.CommandUtils;
 import com.hubspot.imap.utils.LogUtils;
 import com.hubspot.imap.utils.NilMarker;
 import com.hubspot.imap.utils.SoftReferencedAppendableCharSequence;
-import com.hubspot.imap.utils.parsers.FetchResponseTypeParser;
-import com.hubspot.imap.utils.parsers.NestedArrayParser;
-import com.hubspot.imap.utils.parsers.NumberParser;
 import com.hubspot.imap.utils.parsers.fetch.EnvelopeParser;
 import com.hubspot.imap.utils.parsers.string.AllBytesParser;
-import com.hubspot.imap.utils.parsers.string.AtomOrStringParser;
 import com.hubspot.imap.utils.parsers.string.BufferedBodyParser;
-import com.hubspot.imap.utils.parsers.string.LineParser;
-import com.hubspot.imap.utils.parsers.string.LiteralStringParser;
-import com.hubspot.imap.utils.parsers.string.WordParser;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.ReplayingDecoder;
 import io.netty.handler.codec.http.HttpConstants;
 import io.netty.util.concurrent.EventExecutorGroup;
+import io.netty.util.concurrent.Promise;
 
 /**
  * This class handles decoding of IMAP responses. It handles 3 main types of responses
@@ -85,16 +80,6 @@ import io.netty.util.concurrent.EventExecutorGroup;
  * Unless the current command specifically requests notification of untagged responses (i.e. IDLE), untagged responses are collected and added to the body of the tagged response once the tag is received.
  */
 public class ResponseDecoder extends ReplayingDecoder<State> {
-  private static final MessageServiceFactory MESSAGE_SERVICE_FACTORY;
-
-  static {
-    try {
-      MESSAGE_SERVICE_FACTORY = MessageServiceFactory.newInstance();
-    } catch (MimeException e) {
-      throw Throwables.propagate(e);
-    }
-  }
-
   private static final char UNTAGGED_PREFIX = '*';
   private static final char CONTINUATION_PREFIX = '+';
   private static final char TAGGED_PREFIX = 'A'; // This isn't necessarily true from the IMAP spec, but this client always prefixes tags with 'A'
@@ -105,58 +90,71 @@ public class ResponseDecoder extends ReplayingDecoder<State> {
   private final Logger logger;
   private final ImapClientState clientState;
   private final EventExecutorGroup executorGroup;
-
-  // This AppendableCharSequence is shared by all of the parsers for memory efficiency.
-  private final SoftReferencedAppendableCharSequence charSeq;
-  private final LineParser lineParser;
-  private final WordParser wordParser;
-  private final FetchResponseTypeParser fetchResponseTypeParser;
-  private final AtomOrStringParser atomOrStringParser;
-  private final LiteralStringParser literalStringParser;
+  private final Executor callbackExecutor;
+  private final ImapMetrics metrics;
+  private final boolean useCompactMessages;
+  private final boolean useLazyEnvelopes;
+  private final int lazyEnvelopeChunkSize;
+
+  // Parsers that only live for one call to decode are shared by the connections of an event loop, see
+  // ResponseDecoderScratch. Only state that spans decode calls is kept per connection.
+  private final ImapConfiguration configuration;
   private final BufferedBodyParser bufferedBodyParser;
-  private final NumberParser numberParser;
-  private final EnvelopeParser envelopeParser;
-  private final NestedArrayParser.Recycler<String> nestedArrayParserRecycler;
   private final AllBytesParser allBytesParser;
-  private final DefaultMessageBuilder messageBuilder;
+  private ResponseDecoderScratch scratch;
 
   private List<Object> untaggedResponses;
   private TaggedResponse.Builder responseBuilder;
 
-  private ImapMessage.Builder currentMessage;
+  private ImapMessageBuilder currentMessage;
+  private byte[] envelopeChunk;
+  private int envelopeChunkUsed;
+  private FlagSnapshot.Builder currentFlagSnapshot;
+
+  // Decode time of the current response, only tracked when metrics are enabled
+  private String responseType;
+  private long responseDecodeNanos;
 
   public ResponseDecoder(ImapConfiguration configuration,
                          ImapClientState clientState,
                          EventExecutorGroup executorGroup) {
+    this(configuration, clientState, executorGroup, ImapMetrics.disabled());
+  }
+
+  public ResponseDecoder(ImapConfiguration configuration,
+                         ImapClientState clientState,
+                         EventExecutorGroup executorGroup,
+                         ImapMetrics metrics) {
+    this(configuration, clientState, executorGroup, executorGroup, metrics);
+  }
+
+  /**
+   * @param callbackExecutor runs streaming fetch functions, their futures complete on {@code executorGroup}
+   */
+  public ResponseDecoder(ImapConfiguration configuration,
+                         ImapClientState clientState,
+                         EventExecutorGroup executorGroup,
+                         Executor callbackExecutor,
+                         ImapMetrics metrics) {
     super(State.SKIP_CONTROL_CHARS);
     this.logger = LogUtils.loggerWithName(ResponseDecoder.class, clientState.getClientName());
     this.clientState = clientState;
     this.executorGroup = executorGroup;
+    this.callbackExecutor = callbackExecutor;
+    this.metrics = metrics;
+    this.useCompactMessages = configuration.useCompactMessages();
+    this.useLazyEnvelopes = configuration.useLazyEnvelopes();
+    this.lazyEnvelopeChunkSize = configuration.lazyEnvelopeChunkSize();
 
-    this.charSeq = new SoftReferencedAppendableCharSequence(configuration.defaultResponseBufferSize());
-    this.lineParser = new LineParser(charSeq, configuration.maxLineLength());
-    this.wordParser = new WordParser(charSeq, configuration.maxLineLength());
-    this.fetchResponseTypeParser = new FetchResponseTypeParser(charSeq, configuration.maxLineLength());
-    this.atomOrStringParser = new AtomOrStringParser(charSeq, configuration.maxLineLength());
-    this.literalStringParser = new LiteralStringParser(charSeq, configuration.maxLineLength());
-    this.bufferedBodyParser = new BufferedBodyParser(charSeq);
-    this.numberParser = new NumberParser(charSeq, 19);
-    this.envelopeParser = new EnvelopeParser();
-    this.nestedArrayParserRecycler = new NestedArrayParser.Recycler<>(literalStringParser);
-    this.messageBuilder = ((DefaultMessageBuilder) MESSAGE_SERVICE_FACTORY.newMessageBuilder());
-
-    MimeConfig mimeConfig = MimeConfig.custom()
-        .setMaxLineLen(configuration.maxLineLength())
-        .setMaxHeaderLen(configuration.maxLineLength())
-        .setMaxHeaderCount(configuration.maxHeaderCount())
-        .build();
-
-    messageBuilder.setMimeEntityConfig(mimeConfig);
+    this.configuration = configuration;
+    this.bufferedBodyParser = new BufferedBodyParser();
 
     this.untaggedResponses = new ArrayList<>();
     this.responseBuilder = new TaggedResponse.Builder();
 
-    this.allBytesParser = configuration.tracingEnabled() ? new AllBytesParser(charSeq) : null;
+    this.allBytesParser = configuration.tracingEnabled()
+        ? new AllBytesParser(new SoftReferencedAppendableCharSequence(configuration.defaultResponseBufferSize()))
+        : null;
   }
 
   enum State {
@@ -168,12 +166,32 @@ public class ResponseDecoder extends ReplayingDecoder<State> {
     TAGGED,
     FETCH,
     FETCH_BODY,
+    FLAG_SYNC_FETCH,
     RESET;
   }
 
-  @Timed
   @Override
   protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws Exception {
+    if (!metrics.isEnabled()) {
+      decodeResponse(ctx, in, out);
+      return;
+    }
+
+    long start = System.nanoTime();
+    try {
+      decodeResponse(ctx, in, out);
+    } finally {
+      responseDecodeNanos += System.nanoTime() - start;
+      if (state() == State.START_RESPONSE && responseType != null) {
+        metrics.timeDecode(responseType, responseDecodeNanos);
+        responseType = null;
+        responseDecodeNanos = 0;
+      }
+    }
+  }
+
+  private void decodeResponse(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws Exception {
+    scratch = ResponseDecoderScratch.get(configuration);
     if (ctx.channel().attr(ImapChannelAttrs.CONFIGURATION).get().tracingEnabled()) {
       trace("RCV", in);
     }
@@ -191,23 +209,29 @@ public class ResponseDecoder extends ReplayingDecoder<State> {
         if (c == UNTAGGED_PREFIX) {
           checkpoint(State.UNTAGGED);
         } else if (c == CONTINUATION_PREFIX) {
+          responseType = "CONTINUATION";
           checkpoint(State.CONTINUATION);
         } else {
+          responseType = "TAGGED";
           in.readerIndex(in.readerIndex() - 1); // We want the whole tag (A1) not just the int
           checkpoint(State.TAGGED);
         }
         break;
       case UNTAGGED:
         skipControlCharacters(in);
-        String word = wordParser.parse(in);
-        if (NumberUtils.isDigits(word)) {
-          UntaggedResponseType type = UntaggedResponseType.getResponseType(wordParser.parse(in));
-          handleUntaggedValue(type, word, ctx);
+        AsciiToken word = scratch.wordParser.parseToken(in);
+        if (word.isDigits()) {
+          long value = word.parseLong();
+          UntaggedResponseType type = UntaggedResponseType.getResponseType(scratch.wordParser.parseToken(in));
+          responseType = type.name();
+          handleUntaggedValue(type, value, ctx);
         } else {
-          if (word.equalsIgnoreCase(ResponseCode.OK.name())) {
+          if (word.contentEqualsIgnoreCase(ResponseCode.OK.name())) {
+            responseType = ResponseCode.OK.name();
             checkpoint(State.UNTAGGED_OK);
           } else {
             UntaggedResponseType type = UntaggedResponseType.getResponseType(word);
+            responseType = type.name();
             handleUntagged(type, in, ctx);
           }
         }
@@ -226,7 +250,7 @@ public class ResponseDecoder extends ReplayingDecoder<State> {
           parseFetch(in);
         } catch (Exception e) {
           if (state() != State.RESET) {
-            lineParser.parse(in);
+            scratch.lineParser.parse(in);
             checkpoint(State.RESET);
             throw e;
           }
@@ -249,6 +273,17 @@ public class ResponseDecoder extends ReplayingDecoder<State> {
         currentMessage.setBody(message.get());
         checkpoint(State.FETCH);
 
+        break;
+      case FLAG_SYNC_FETCH:
+        try {
+          parseFlagSyncFetch(in);
+        } catch (Exception e) {
+          if (state() != State.RESET) {
+            scratch.lineParser.parse(in);
+            checkpoint(State.RESET);
+            throw e;
+          }
+        }
         break;
       case RESET:
         reset(in);
@@ -256,47 +291,36 @@ public class ResponseDecoder extends ReplayingDecoder<State> {
     }
   }
 
-  @Timed
   private void parseFetch(ByteBuf in) throws UnknownFetchItemTypeException, IOException, ResponseParseException {
-    skipControlCharacters(in);
-
-    char next = ((char) in.readUnsignedByte());
-    if (next != LPAREN && next != RPAREN) {
-      in.readerIndex(in.readerIndex() - 1);
-    } else if (next == RPAREN) { // Check to see if this is the end of this fetch response
-      char second = ((char) in.readUnsignedByte());
-      if (second == HttpConstants.CR || second == HttpConstants.LF) {
-        // At the end of the fetch, add the current message to the untagged responses and reset
-        messageComplete();
-        return;
-      } else {
-        in.readerIndex(in.readerIndex() - 2);
-      }
+    if (isEndOfFetch(in)) {
+      // At the end of the fetch, add the current message to the untagged responses and reset
+      messageComplete();
+      return;
     }
 
-    String fetchItemString = fetchResponseTypeParser.parse(in);
-    if (StringUtils.isBlank(fetchItemString)) {
+    AsciiToken fetchItem = scratch.fetchResponseTypeParser.parse(in);
+    if (fetchItem.isEmpty()) {
       checkpoint(State.FETCH);
       return;
     }
 
-    FetchDataItemType fetchType = FetchDataItemType.getFetchType(fetchItemString);
+    FetchDataItemType fetchType = FetchDataItemType.getFetchType(fetchItem);
     switch (fetchType) {
       case FLAGS:
-        List<String> flags = nestedArrayParserRecycler.get().parse(in).stream()
-            .map(o -> ((String) o))
-            .collect(Collectors.toList());
-        currentMessage.setFlagStrings(flags);
+        currentMessage.setFlags(parseMessageFlags(in));
         break;
       case INTERNALDATE:
-        String internalDate = atomOrStringParser.parse(in);
-        currentMessage.setInternalDate(internalDate);
+        if (scratch.internalDateParser.parse(in)) {
+          currentMessage.setInternalDate(scratch.internalDateParser.getEpochMillis(), scratch.internalDateParser.getOffsetSeconds());
+        } else {
+          currentMessage.setInternalDate(scratch.atomOrStringParser.parse(in));
+        }
         break;
       case RFC822_SIZE:
-        currentMessage.setSize(Ints.checkedCast(numberParser.parse(in)));
+        currentMessage.setSize(Ints.checkedCast(scratch.numberParser.parse(in)));
         break;
       case UID:
-        currentMessage.setUid(numberParser.parse(in));
+        currentMessage.setUid(scratch.numberParser.parse(in));
         break;
       case ENVELOPE:
         currentMessage.setEnvelope(parseEnvelope(in));
@@ -305,28 +329,110 @@ public class ResponseDecoder extends ReplayingDecoder<State> {
         startBodyParse(in);
         return;
       case X_GM_MSGID:
-        currentMessage.setGmailMessageId(numberParser.parse(in));
+        currentMessage.setGmailMessageId(scratch.numberParser.parse(in));
         break;
       case X_GM_THRID:
-        currentMessage.setGmailThreadId(numberParser.parse(in));
+        currentMessage.setGmailThreadId(scratch.numberParser.parse(in));
         break;
       case X_GM_LABELS:
         currentMessage.setGMailLabels(
-            nestedArrayParserRecycler.get().parse(in).stream()
-                .filter(o -> !(o instanceof NilMarker))
-                .map(o -> ((String) o))
-                .map(GMailLabel::get)
-                .collect(Collectors.toSet())
+            clientState.getGMailLabelRegistry().toSet(
+                scratch.nestedArrayParserRecycler.get().parse(in).stream()
+                    .filter(o -> !(o instanceof NilMarker))
+                    .map(o -> ((String) o))
+                    .collect(Collectors.toList())
+            )
         );
         break;
       case INVALID:
       default:
-        throw new UnknownFetchItemTypeException(fetchItemString);
+        throw new UnknownFetchItemTypeException(fetchItem.toString());
     }
 
     checkpoint(State.FETCH);
   }
 
+  private void parseFlagSyncFetch(ByteBuf in) throws UnknownFetchItemTypeException {
+    if (isEndOfFetch(in)) {
+      currentFlagSnapshot.endMessage();
+      currentFlagSnapshot = null;
+      checkpoint(State.RESET);
+      return;
+    }
+
+    AsciiToken fetchItem = scratch.fetchResponseTypeParser.parse(in);
+    if (fetchItem.isEmpty()) {
+      checkpoint(State.FLAG_SYNC_FETCH);
+      return;
+    }
+
+    switch (FetchDataItemType.getFetchType(fetchItem)) {
+      case UID:
+        currentFlagSnapshot.setUid(scratch.numberParser.parse(in));
+        break;
+      case FLAGS:
+        // Flags are added one at a time, so start over on every replay
+        currentFlagSnapshot.startFlags();
+        skipControlCharacters(in);
+        in.readUnsignedByte(); // LPAREN
+        for (;;) {
+          skipControlCharacters(in);
+          if (in.readUnsignedByte() == RPAREN) {
+            break;
+          }
+
+          in.readerIndex(in.readerIndex() - 1);
+          currentFlagSnapshot.addFlag(scratch.atomOrStringParser.parseToken(in));
+        }
+        break;
+      default:
+        throw new UnknownFetchItemTypeException(fetchItem.toString());
+    }
+
+    checkpoint(State.FLAG_SYNC_FETCH);
+  }
+
+  /**
+   * Reads a parenthesized FLAGS list straight into flags, so system flags and known keywords never become Strings.
+   */
+  private Set<MessageFlag> parseMessageFlags(ByteBuf in) {
+    Set<MessageFlag> flags = new HashSet<>();
+    skipControlCharacters(in);
+    in.readUnsignedByte(); // LPAREN
+    for (;;) {
+      skipControlCharacters(in);
+      if (in.readUnsignedByte() == RPAREN) {
+        return flags;
+      }
+
+      in.readerIndex(in.readerIndex() - 1);
+      flags.add(StandardMessageFlag.fromName(scratch.atomOrStringParser.parseToken(in)));
+    }
+  }
+
+  /**
+   * Consumes the opening paren of a FETCH response, or the closing paren and line ending at its end.
+   *
+   * @return true if the end of the FETCH response was reached.
+   */
+  private boolean isEndOfFetch(ByteBuf in) {
+    skipControlCharacters(in);
+
+    char next = ((char) in.readUnsignedByte());
+    if (next != LPAREN && next != RPAREN) {
+      in.readerIndex(in.readerIndex() - 1);
+    } else if (next == RPAREN) { // Check to see if this is the end of this fetch response
+      char second = ((char) in.readUnsignedByte());
+      if (second == HttpConstants.CR || second == HttpConstants.LF) {
+        return true;
+      } else {
+        in.readerIndex(in.readerIndex() - 2);
+      }
+    }
+
+    return false;
+  }
+
   private void messageComplete() {
     ImapMessage message = currentMessage.build();
     currentMessage = null;
@@ -339,9 +445,20 @@ public class ResponseDecoder extends ReplayingDecoder<State> {
         fetchCommand = ((StreamingFetchCommand) clientState.getCurrentCommand());
       }
 
-      Future<?> future = executorGroup.submit(() -> fetchCommand.handle(message));
+      Promise<Object> promise = executorGroup.next().newPromise();
+      try {
+        callbackExecutor.execute(() -> {
+          try {
+            promise.trySuccess(fetchCommand.handle(message));
+          } catch (Throwable t) {
+            promise.tryFailure(t);
+          }
+        });
+      } catch (RejectedExecutionException e) {
+        promise.tryFailure(e);
+      }
 
-      untaggedResponses.add(future);
+      untaggedResponses.add(promise);
     } else {
       untaggedResponses.add(message);
     }
@@ -350,10 +467,9 @@ public class ResponseDecoder extends ReplayingDecoder<State> {
   }
 
   private void handleTagged(ByteBuf in, List<Object> out) {
-    String tag = wordParser.parse(in);
-    String codeString = wordParser.parse(in);
-    ResponseCode code = ResponseCode.valueOf(codeString);
-    String message = lineParser.parse(in);
+    String tag = scratch.wordParser.parse(in);
+    ResponseCode code = ResponseCode.fromToken(scratch.wordParser.parseToken(in));
+    String message = scratch.lineParser.parse(in);
 
     responseBuilder.setTag(tag);
     responseBuilder.setCode(code);
@@ -361,15 +477,23 @@ public class ResponseDecoder extends ReplayingDecoder<State> {
     responseBuilder.setUntagged(Lists.newArrayList(untaggedResponses));
 
     untaggedResponses.clear();
+    envelopeChunk = null; // Envelopes only share a chunk with those of the same response
 
     write(out);
   }
 
-  private void handleUntaggedValue(UntaggedResponseType type, String value, ChannelHandlerContext ctx) {
+  private void handleUntaggedValue(UntaggedResponseType type, long value, ChannelHandlerContext ctx) {
     switch (type) {
       case FETCH:
-        currentMessage = new ImapMessage.Builder()
-            .setMessageNumber(Long.parseLong(value));
+        Optional<FlagSyncCommand> flagSyncCommand = CommandUtils.getFlagSyncCommand(clientState.getCurrentCommand());
+        if (flagSyncCommand.isPresent()) {
+          currentFlagSnapshot = flagSyncCommand.get().getSnapshotBuilder().startMessage();
+          checkpoint(State.FLAG_SYNC_FETCH);
+          return;
+        }
+
+        currentMessage = ImapMessageBuilder.newBuilder(useCompactMessages)
+            .setMessageNumber(value);
         checkpoint(State.FETCH);
         return;
       case RECENT:
@@ -381,14 +505,14 @@ public class ResponseDecoder extends ReplayingDecoder<State> {
         untaggedResponses.add(handleIntResponse(type, value));
         break;
       default:
-        untaggedResponses.add(value);
+        untaggedResponses.add(String.valueOf(value));
     }
 
     checkpoint(State.RESET);
   }
 
   private void handleContinuation(ByteBuf in, List<Object> out) {
-    String message = lineParser.parse(in);
+    String message = scratch.lineParser.parse(in);
 
     ContinuationResponse response = new ContinuationResponse.Builder().setMessage(message).build();
     out.add(response);
@@ -397,8 +521,7 @@ public class ResponseDecoder extends ReplayingDecoder<State> {
   }
 
   private void handleUntagged(ByteBuf in, ChannelHandlerContext ctx) {
-    String responseTypeString = wordParser.parse(in);
-    UntaggedResponseType type = UntaggedResponseType.getResponseType(responseTypeString);
+    UntaggedResponseType type = UntaggedResponseType.getResponseType(scratch.wordParser.parseToken(in));
     handleUntagged(type, in, ctx);
   }
 
@@ -426,19 +549,19 @@ public class ResponseDecoder extends ReplayingDecoder<State> {
         untaggedResponses.add(parseIntResponse(type, in));
         break;
       default:
-        untaggedResponses.add(lineParser.parse(in));
+        untaggedResponses.add(scratch.lineParser.parse(in));
     }
 
     checkpoint(State.RESET);
   }
 
-  private void handleMessageCountResponse(UntaggedResponseType type, String value, ChannelHandlerContext ctx) {
+  private void handleMessageCountResponse(UntaggedResponseType type, long value, ChannelHandlerContext ctx) {
     UntaggedIntResponse intResponse = handleIntResponse(type, value);
     untaggedResponses.add(intResponse);
   }
 
   private void handleBye(ByteBuf in, ChannelHandlerContext handlerContext) {
-    String message = lineParser.parse(in);
+    String message = scratch.lineParser.parse(in);
 
     UntaggedResponse response = new UntaggedResponse.Builder()
         .setType(UntaggedResponseType.BYE)
@@ -450,14 +573,13 @@ public class ResponseDecoder extends ReplayingDecoder<State> {
     handlerContext.fireUserEventTriggered(new ByeEvent(response));
   }
 
-  private UntaggedIntResponse handleIntResponse(UntaggedResponseType type, String value) {
+  private UntaggedIntResponse handleIntResponse(UntaggedResponseType type, long value) {
     return new UntaggedIntResponse.Builder()
         .setType(type)
-        .setValue(Long.parseLong(value))
+        .setValue(value)
         .build();
   }
 
-  @Timed
   void startBodyParse(ByteBuf in) throws UnknownFetchItemTypeException, IOException {
     skipControlCharacters(in);
 
@@ -466,7 +588,7 @@ public class ResponseDecoder extends ReplayingDecoder<State> {
     //String bodySection = ""; At some point we will need to actually store the body section that is being parsed below
     if (c != '[') {
       // This is effectively BODYSTRUCTURE which is not yet supported
-      lineParser.parse(in);
+      scratch.lineParser.parse(in);
       checkpoint(State.RESET);
       throw new UnknownFetchItemTypeException("BODYSTRUCTURE");
     } else {
@@ -479,35 +601,55 @@ public class ResponseDecoder extends ReplayingDecoder<State> {
     checkpoint(State.FETCH_BODY);
   }
 
-  @Timed
   Optional<Message> parseBodyContent(ByteBuf in) throws ResponseParseException {
     Optional<String> body = bufferedBodyParser.parse(in);
     if (!body.isPresent()) {
       return Optional.empty();
     }
 
+    if (bufferedBodyParser.getLiteralSize() >= 0) {
+      metrics.updateLiteralSize(bufferedBodyParser.getLiteralSize());
+    }
+
     try (InputStream inputStream = new ByteArrayInputStream(body.get().getBytes(StandardCharsets.UTF_8))) {
-      return Optional.of(messageBuilder.parseMessage(inputStream));
+      return Optional.of(scratch.messageBuilder.parseMessage(inputStream));
     } catch (IOException|NullPointerException e) {
       throw new ResponseParseException(e);
     }
   }
 
   private Envelope parseEnvelope(ByteBuf in) {
-    NestedArrayParser<String> arrayParser = nestedArrayParserRecycler.get();
-    List<Object> envelopeData = arrayParser.parse(in);
-    arrayParser.recycle();
+    if (!useLazyEnvelopes) {
+      return scratch.envelopeParser.parse(in);
+    }
+
+    int[] fieldOffsets = new int[EnvelopeParser.FIELD_COUNT];
+    int length = EnvelopeParser.scan(in, fieldOffsets);
+
+    if (length > lazyEnvelopeChunkSize) {
+      byte[] bytes = new byte[length];
+      in.readBytes(bytes);
+      return new LazyEnvelope(bytes, 0, length, fieldOffsets);
+    }
+
+    if (envelopeChunk == null || envelopeChunkUsed + length > envelopeChunk.length) {
+      envelopeChunk = new byte[lazyEnvelopeChunkSize];
+      envelopeChunkUsed = 0;
+    }
 
-    return envelopeParser.parse(envelopeData);
+    int offset = envelopeChunkUsed;
+    in.readBytes(envelopeChunk, offset, length);
+    envelopeChunkUsed += length;
+    return new LazyEnvelope(envelopeChunk, offset, length, fieldOffsets);
   }
 
   private FolderFlags parseFlags(ByteBuf in, boolean permanent) {
     skipControlCharacters(in);
-    List<String> flags = nestedArrayParserRecycler.get().parse(in).stream()
+    List<String> flags = scratch.nestedArrayParserRecycler.get().parse(in).stream()
         .map(o -> ((String) o))
         .collect(Collectors.toList());
 
-    lineParser.parse(in);
+    scratch.lineParser.parse(in);
 
     return FolderFlags.fromStrings(flags, permanent);
   }
@@ -518,11 +660,11 @@ public class ResponseDecoder extends ReplayingDecoder<State> {
       char c = ((char) in.readUnsignedByte());
       in.readerIndex(in.readerIndex() - 1);
       if (c == HttpConstants.CR || c == HttpConstants.LF) {
-        lineParser.parse(in);
+        scratch.lineParser.parse(in);
         break;
       }
 
-      ids.add(Long.parseLong(atomOrStringParser.parse(in)));
+      ids.add(scratch.atomOrStringParser.parseToken(in).parseLong());
     }
 
     return new UntaggedSearchResponse(ids);
@@ -532,11 +674,11 @@ public class ResponseDecoder extends ReplayingDecoder<State> {
     skipControlCharacters(in);
     Set<FolderAttribute> attributes = parseFolderAttributes(in);
 
-    String context = atomOrStringParser.parse(in);
-    String name = atomOrStringParser.parse(in);
+    String context = scratch.atomOrStringParser.parse(in);
+    String name = scratch.atomOrStringParser.parse(in);
 
     // Make sure we parse to the end of the line
-    lineParser.parse(in);
+    scratch.lineParser.parse(in);
 
     return new FolderMetadata.Builder()
         .addAllAttributes(attributes)
@@ -546,7 +688,7 @@ public class ResponseDecoder extends ReplayingDecoder<State> {
   }
 
   private Set<FolderAttribute> parseFolderAttributes(ByteBuf in) {
-    return nestedArrayParserRecycler.get().parse(in).stream()
+    return scratch.nestedArrayParserRecycler.get().parse(in).stream()
         .map(o -> ((String) o))
         .map(FolderAttribute::getAttribute)
         .filter(Optional::isPresent)
@@ -555,8 +697,8 @@ public class ResponseDecoder extends ReplayingDecoder<State> {
   }
 
   private UntaggedIntResponse parseIntResponse(UntaggedResponseType type, ByteBuf in) {
-    long value = numberParser.parse(in);
-    lineParser.parse(in);
+    long value = scratch.numberParser.parse(in);
+    scratch.lineParser.parse(in);
 
     return new Builder()
         .setType(type)
@@ -580,7 +722,7 @@ public class ResponseDecoder extends ReplayingDecoder<State> {
     if (c == UNTAGGED_PREFIX || c == CONTINUATION_PREFIX || c == TAGGED_PREFIX) { // We are already at the end of the line
       in.readerIndex(in.readerIndex() - 1);
     } else if (!(c == HttpConstants.CR || c == HttpConstants.LF)) {
-      lineParser.parse(in);
+      scratch.lineParser.parse(in);
     }
 
     discardSomeReadBytes();
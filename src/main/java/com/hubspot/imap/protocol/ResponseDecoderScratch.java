@@ -0,0 +1,117 @@
+package com.hubspot.imap.protocol;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.james.mime4j.MimeException;
+import org.apache.james.mime4j.dom.MessageServiceFactory;
+import org.apache.james.mime4j.message.DefaultMessageBuilder;
+import org.apache.james.mime4j.stream.MimeConfig;
+
+import com.google.common.base.Throwables;
+import com.hubspot.imap.ImapConfiguration;
+import com.hubspot.imap.utils.SoftReferencedAppendableCharSequence;
+import com.hubspot.imap.utils.parsers.FetchResponseTypeParser;
+import com.hubspot.imap.utils.parsers.NestedArrayParser;
+import com.hubspot.imap.utils.parsers.NumberParser;
+import com.hubspot.imap.utils.parsers.fetch.EnvelopeParser;
+import com.hubspot.imap.utils.parsers.fetch.InternalDateParser;
+import com.hubspot.imap.utils.parsers.string.AtomOrStringParser;
+import com.hubspot.imap.utils.parsers.string.LineParser;
+import com.hubspot.imap.utils.parsers.string.LiteralStringParser;
+import com.hubspot.imap.utils.parsers.string.WordParser;
+
+import io.netty.util.concurrent.FastThreadLocal;
+
+/**
+ * The parsers a {@link ResponseDecoder} only uses within a single call to decode. Every parser here starts over on
+ * each parse, so the connections of an event loop take turns with one set instead of each holding its own buffers.
+ * <p>
+ * Parsers are sized from the configuration, so a thread keeps one set per distinct sizing it has seen, which in
+ * practice is one.
+ */
+class ResponseDecoderScratch {
+  private static final MessageServiceFactory MESSAGE_SERVICE_FACTORY;
+
+  static {
+    try {
+      MESSAGE_SERVICE_FACTORY = MessageServiceFactory.newInstance();
+    } catch (MimeException e) {
+      throw Throwables.propagate(e);
+    }
+  }
+
+  private static final FastThreadLocal<List<ResponseDecoderScratch>> SCRATCH = new FastThreadLocal<List<ResponseDecoderScratch>>() {
+    @Override
+    protected List<ResponseDecoderScratch> initialValue() {
+      return new ArrayList<>(1);
+    }
+  };
+
+  private final int maxLineLength;
+  private final int defaultResponseBufferSize;
+  private final int maxHeaderCount;
+
+  // This AppendableCharSequence is shared by the parsers that build whole lines and literals, for memory efficiency.
+  // Word, number and atom parsers fill their own small AsciiToken instead.
+  final SoftReferencedAppendableCharSequence charSeq;
+  final LineParser lineParser;
+  final WordParser wordParser;
+  final FetchResponseTypeParser fetchResponseTypeParser;
+  final AtomOrStringParser atomOrStringParser;
+  final LiteralStringParser literalStringParser;
+  final NumberParser numberParser;
+  final EnvelopeParser envelopeParser;
+  final InternalDateParser internalDateParser;
+  final NestedArrayParser.Recycler<String> nestedArrayParserRecycler;
+  final DefaultMessageBuilder messageBuilder;
+
+  private ResponseDecoderScratch(ImapConfiguration configuration) {
+    this.maxLineLength = configuration.maxLineLength();
+    this.defaultResponseBufferSize = configuration.defaultResponseBufferSize();
+    this.maxHeaderCount = configuration.maxHeaderCount();
+
+    this.charSeq = new SoftReferencedAppendableCharSequence(defaultResponseBufferSize);
+    this.lineParser = new LineParser(charSeq, maxLineLength);
+    this.wordParser = new WordParser(maxLineLength);
+    this.fetchResponseTypeParser = new FetchResponseTypeParser(maxLineLength);
+    this.atomOrStringParser = new AtomOrStringParser(maxLineLength);
+    this.literalStringParser = new LiteralStringParser(charSeq, maxLineLength);
+    this.numberParser = new NumberParser(19);
+    this.envelopeParser = new EnvelopeParser(literalStringParser);
+    this.internalDateParser = new InternalDateParser();
+    this.nestedArrayParserRecycler = new NestedArrayParser.Recycler<>(literalStringParser);
+    this.messageBuilder = ((DefaultMessageBuilder) MESSAGE_SERVICE_FACTORY.newMessageBuilder());
+
+    MimeConfig mimeConfig = MimeConfig.custom()
+        .setMaxLineLen(maxLineLength)
+        .setMaxHeaderLen(maxLineLength)
+        .setMaxHeaderCount(maxHeaderCount)
+        .build();
+
+    messageBuilder.setMimeEntityConfig(mimeConfig);
+  }
+
+  private boolean matches(ImapConfiguration configuration) {
+    return maxLineLength == configuration.maxLineLength()
+        && defaultResponseBufferSize == configuration.defaultResponseBufferSize()
+        && maxHeaderCount == configuration.maxHeaderCount();
+  }
+
+  /**
+   * @return the calling thread's parsers for this configuration, which must not be held past the current decode
+   */
+  static ResponseDecoderScratch get(ImapConfiguration configuration) {
+    List<ResponseDecoderScratch> scratches = SCRATCH.get();
+    for (int i = 0; i < scratches.size(); i++) {
+      ResponseDecoderScratch scratch = scratches.get(i);
+      if (scratch.matches(configuration)) {
+        return scratch;
+      }
+    }
+
+    ResponseDecoderScratch scratch = new ResponseDecoderScratch(configuration);
+    scratches.add(scratch);
+    return scratch;
+  }
+}
@@ -15,5 +15,6 @@ public enum ImapCommandType {
   STORE,
   SEARCH,
   CAPABILITY,
+  ENABLE,
   COPY;
 }
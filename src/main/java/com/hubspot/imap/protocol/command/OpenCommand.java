@@ -4,7 +4,14 @@ import com.hubspot.imap.client.FolderOpenMode;
 import com.hubspot.imap.utils.GmailUtils;
 
 public class OpenCommand extends BaseImapCommand {
+  private final String folderName;
+
   public OpenCommand(String name, FolderOpenMode openMode) {
     super(openMode == FolderOpenMode.READ ? ImapCommandType.EXAMINE : ImapCommandType.SELECT, GmailUtils.quote(name));
+    this.folderName = name;
+  }
+
+  public String getFolderName() {
+    return folderName;
   }
 }
@@ -0,0 +1,31 @@
+package com.hubspot.imap.protocol.command.fetch;
+
+import java.util.Optional;
+
+import com.hubspot.imap.protocol.command.fetch.items.FetchDataItem.FetchDataItemType;
+import com.hubspot.imap.protocol.message.FlagSnapshot;
+import com.hubspot.imap.protocol.message.KeywordTable;
+
+/**
+ * {@code FETCH 1:* (UID FLAGS)} that is decoded straight into a {@link FlagSnapshot} instead of one message object per
+ * response. Wrap it in a {@link UidCommand}.
+ */
+public class FlagSyncCommand extends FetchCommand {
+  private final Optional<FlagSnapshot> previousSnapshot;
+  private final FlagSnapshot.Builder snapshotBuilder;
+
+  public FlagSyncCommand(Optional<FlagSnapshot> previousSnapshot) {
+    super(1, Optional.empty(), FetchDataItemType.UID, FetchDataItemType.FLAGS);
+
+    this.previousSnapshot = previousSnapshot;
+    this.snapshotBuilder = new FlagSnapshot.Builder(previousSnapshot.map(FlagSnapshot::getKeywordTable).orElseGet(KeywordTable::new));
+  }
+
+  public Optional<FlagSnapshot> getPreviousSnapshot() {
+    return previousSnapshot;
+  }
+
+  public FlagSnapshot.Builder getSnapshotBuilder() {
+    return snapshotBuilder;
+  }
+}
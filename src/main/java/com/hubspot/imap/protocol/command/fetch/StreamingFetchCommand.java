@@ -12,6 +12,8 @@ public class StreamingFetchCommand<R> extends FetchCommand {
 
   private final Function<ImapMessage, R> messageConsumer;
 
+  private volatile long writtenAtNanos;
+
   public StreamingFetchCommand(long startId, Optional<Long> stopId, Function<ImapMessage, R> messageConsumer, List<FetchDataItem> fetchDataItems) {
     super(startId, stopId, fetchDataItems);
 
@@ -25,4 +27,16 @@ public class StreamingFetchCommand<R> extends FetchCommand {
   public R handle(ImapMessage message) {
     return messageConsumer.apply(message);
   }
+
+  /**
+   * @return the {@link System#nanoTime()} at which the command was last written to the connection, excluding the time
+   * it waited behind other commands. 0 until written.
+   */
+  public long getWrittenAtNanos() {
+    return writtenAtNanos;
+  }
+
+  public void setWrittenAtNanos(long writtenAtNanos) {
+    this.writtenAtNanos = writtenAtNanos;
+  }
 }
@@ -1,11 +1,6 @@
 package com.hubspot.imap.protocol.command.fetch.items;
 
-import com.googlecode.concurrenttrees.common.KeyValuePair;
-import com.googlecode.concurrenttrees.radix.ConcurrentRadixTree;
-import com.googlecode.concurrenttrees.radix.RadixTree;
-import com.googlecode.concurrenttrees.radix.node.concrete.DefaultByteArrayNodeFactory;
-
-import java.util.Iterator;
+import com.hubspot.imap.utils.EnumKeywordIndex;
 
 public interface FetchDataItem {
   String toString();
@@ -39,38 +34,14 @@ public interface FetchDataItem {
       return string;
     }
 
-    public static FetchDataItemType getFetchType(String word) {
-      TREE.getKeyValuePairsForClosestKeys(word);
-      Iterator<KeyValuePair<FetchDataItemType>> responseType = TREE.getKeyValuePairsForClosestKeys(word).iterator();
-      if (!responseType.hasNext()) {
-        return INVALID;
-      }
-
-      KeyValuePair<FetchDataItemType> candidate = responseType.next();
-
-      if (word.equalsIgnoreCase(candidate.getKey().toString())) {
-        return candidate.getValue();
-      } else {
-        return INVALID;
-      }
+    public static FetchDataItemType getFetchType(CharSequence word) {
+      return TABLE.get(word);
     }
 
     public static int getMaxPrefixLength() {
-      return MAX_PREFIX_LENGTH;
+      return TABLE.getMaxLength();
     }
 
-    private static final int MAX_PREFIX_LENGTH;
-    private static final RadixTree<FetchDataItemType> TREE;
-
-    static {
-      int maxLength = -1;
-      TREE = new ConcurrentRadixTree<>(new DefaultByteArrayNodeFactory());
-      for (FetchDataItemType type: FetchDataItemType.values()) {
-        TREE.put(type.toString(), type);
-        maxLength = Math.max(maxLength, type.toString().length());
-      }
-
-      MAX_PREFIX_LENGTH = maxLength;
-    }
+    private static final EnumKeywordIndex<FetchDataItemType> TABLE = new EnumKeywordIndex<>(values(), FetchDataItemType::toString, INVALID);
   }
 }
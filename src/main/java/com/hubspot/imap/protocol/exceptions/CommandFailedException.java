@@ -0,0 +1,12 @@
+package com.hubspot.imap.protocol.exceptions;
+
+import com.hubspot.imap.protocol.command.ImapCommandType;
+import com.hubspot.imap.protocol.response.ResponseCode;
+
+public class CommandFailedException extends Exception {
+  private static final String MESSAGE_FORMAT = "%s failed with %s: %s";
+
+  public CommandFailedException(ImapCommandType type, ResponseCode code, String message) {
+    super(String.format(MESSAGE_FORMAT, type, code, message));
+  }
+}
@@ -0,0 +1,9 @@
+package com.hubspot.imap.protocol.exceptions;
+
+public class FolderOpenFailedException extends Exception {
+  private static final String MESSAGE_FORMAT = "Could not open folder \"%s\": %s";
+
+  public FolderOpenFailedException(String folderName, String message) {
+    super(String.format(MESSAGE_FORMAT, folderName, message));
+  }
+}
@@ -0,0 +1,22 @@
+package com.hubspot.imap.protocol.exceptions;
+
+public class UidValidityChangedException extends Exception {
+  private static final String MESSAGE_FORMAT = "UIDVALIDITY of \"%s\" changed from %d to %d";
+
+  private final long previousUidValidity;
+  private final long uidValidity;
+
+  public UidValidityChangedException(String folderName, long previousUidValidity, long uidValidity) {
+    super(String.format(MESSAGE_FORMAT, folderName, previousUidValidity, uidValidity));
+    this.previousUidValidity = previousUidValidity;
+    this.uidValidity = uidValidity;
+  }
+
+  public long getPreviousUidValidity() {
+    return previousUidValidity;
+  }
+
+  public long getUidValidity() {
+    return uidValidity;
+  }
+}
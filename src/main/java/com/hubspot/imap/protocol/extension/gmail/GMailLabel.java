@@ -57,13 +57,20 @@ public interface GMailLabel {
     }
   }
 
+  /**
+   * @param label a label as it appears in an X-GM-LABELS response. Gmail escapes the backslash of a system label in
+   *              its quoted string, so the system labels arrive as {@code \\Inbox}; the escape is dropped here.
+   * @return the system label for a known label, otherwise a new {@link StringLabel}. Use a {@link GMailLabelRegistry}
+   * to get shared instances.
+   */
   static GMailLabel get(String label) {
     if (label.startsWith("\\")) {
       label = label.substring(1);
     }
 
-    if (SystemLabel.INDEX.containsKey(label)) {
-      return SystemLabel.INDEX.get(label);
+    SystemLabel systemLabel = SystemLabel.INDEX.get(label);
+    if (systemLabel != null) {
+      return systemLabel;
     }
 
     return new StringLabel(label);
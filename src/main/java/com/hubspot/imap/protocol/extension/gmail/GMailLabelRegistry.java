@@ -0,0 +1,93 @@
+package com.hubspot.imap.protocol.extension.gmail;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Canonical {@link GMailLabel} instances for one account. Every message fetched through the same registry shares one
+ * object per label, so label sets can be compared by reference and an account with a million messages holds each
+ * label once.
+ * <p>
+ * Each label also gets a small int id, stable for the life of the registry, which {@link GMailLabelSet} uses to store
+ * a message's labels as an int array. A registry is append only. Each client has its own, see
+ * {@code ImapClientState#setGMailLabelRegistry} to share one between connections to the same account.
+ */
+public class GMailLabelRegistry {
+  private final ConcurrentHashMap<String, GMailLabel> byName;
+  private final ConcurrentHashMap<GMailLabel, Integer> ids;
+  private volatile GMailLabel[] labels;
+  private int size;
+
+  public GMailLabelRegistry() {
+    this.byName = new ConcurrentHashMap<>();
+    this.ids = new ConcurrentHashMap<>();
+    this.labels = new GMailLabel[16];
+    this.size = 0;
+  }
+
+  /**
+   * @param name a label as it appears in an X-GM-LABELS response, e.g. "\\Inbox" or "Receipts"
+   */
+  public GMailLabel get(String name) {
+    GMailLabel label = byName.get(name);
+    if (label != null) {
+      return label;
+    }
+
+    return add(name);
+  }
+
+  private synchronized GMailLabel add(String name) {
+    GMailLabel label = byName.get(name);
+    if (label != null) {
+      return label;
+    }
+
+    // Different names can make equal labels (e.g. "\\Foo" and "Foo"), keep the first instance
+    label = GMailLabel.get(name);
+    Integer id = ids.get(label);
+    if (id != null) {
+      label = labels[id];
+    } else {
+      if (size == labels.length) {
+        labels = Arrays.copyOf(labels, size * 2);
+      }
+
+      labels[size] = label;
+      ids.put(label, size++);
+    }
+
+    byName.put(name, label);
+    return label;
+  }
+
+  /**
+   * @return the id of a label seen by this registry, or -1.
+   */
+  public int getId(GMailLabel label) {
+    Integer id = ids.get(label);
+    return id == null ? -1 : id;
+  }
+
+  public GMailLabel getLabel(int id) {
+    return labels[id];
+  }
+
+  public int size() {
+    return ids.size();
+  }
+
+  /**
+   * @param names labels as they appear in an X-GM-LABELS response
+   */
+  public GMailLabelSet toSet(Collection<String> names) {
+    int[] labelIds = new int[names.size()];
+    int i = 0;
+    for (String name : names) {
+      labelIds[i++] = getId(get(name));
+    }
+
+    return new GMailLabelSet(this, labelIds);
+  }
+}
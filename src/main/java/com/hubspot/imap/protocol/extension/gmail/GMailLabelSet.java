@@ -0,0 +1,75 @@
+package com.hubspot.imap.protocol.extension.gmail;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An immutable set of labels stored as sorted ids from a {@link GMailLabelRegistry}: one small int array per message
+ * instead of a hash set of label objects.
+ */
+public final class GMailLabelSet extends AbstractSet<GMailLabel> {
+  private final GMailLabelRegistry registry;
+  private final int[] ids;
+
+  GMailLabelSet(GMailLabelRegistry registry, int[] ids) {
+    this.registry = registry;
+
+    int[] sorted = ids.clone();
+    Arrays.sort(sorted);
+
+    int size = 0;
+    for (int i = 0; i < sorted.length; i++) {
+      if (i == 0 || sorted[i] != sorted[i - 1]) {
+        sorted[size++] = sorted[i];
+      }
+    }
+
+    this.ids = size == sorted.length ? sorted : Arrays.copyOf(sorted, size);
+  }
+
+  public GMailLabelRegistry getRegistry() {
+    return registry;
+  }
+
+  public boolean containsId(int id) {
+    return Arrays.binarySearch(ids, id) >= 0;
+  }
+
+  @Override
+  public boolean contains(Object o) {
+    if (!(o instanceof GMailLabel)) {
+      return false;
+    }
+
+    int id = registry.getId((GMailLabel) o);
+    return id >= 0 && containsId(id);
+  }
+
+  @Override
+  public Iterator<GMailLabel> iterator() {
+    return new Iterator<GMailLabel>() {
+      private int index = 0;
+
+      @Override
+      public boolean hasNext() {
+        return index < ids.length;
+      }
+
+      @Override
+      public GMailLabel next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+
+        return registry.getLabel(ids[index++]);
+      }
+    };
+  }
+
+  @Override
+  public int size() {
+    return ids.length;
+  }
+}
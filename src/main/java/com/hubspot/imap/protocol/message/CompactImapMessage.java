@@ -0,0 +1,283 @@
+package com.hubspot.imap.protocol.message;
+
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.james.mime4j.dom.Message;
+
+import com.google.common.base.Objects;
+import com.hubspot.imap.protocol.extension.gmail.GMailLabel;
+import com.hubspot.imap.utils.parsers.fetch.InternalDateParser;
+
+/**
+ * An {@link ImapMessage} that keeps numeric items in primitive fields and system flags in a bitmask, with one bit per
+ * item recording whether it was fetched. A message with a uid, size, flags and Gmail ids is a single object, where
+ * {@link ImapMessage.Builder} needs an Optional and a box per item and a HashSet for the flags.
+ * <p>
+ * Selected with {@code ImapConfiguration#useCompactMessages()}.
+ */
+public class CompactImapMessage implements ImapMessage, ImapMessageBuilder {
+  private static final MessageFlag[] NO_KEYWORDS = new MessageFlag[0];
+
+  private static final int HAS_FLAGS = 1;
+  private static final int HAS_UID = 1 << 1;
+  private static final int HAS_SIZE = 1 << 2;
+  private static final int HAS_GMAIL_MESSAGE_ID = 1 << 3;
+  private static final int HAS_GMAIL_THREAD_ID = 1 << 4;
+  private static final int HAS_INTERNAL_DATE = 1 << 5;
+
+  private int present;
+  private int systemFlags;
+  private MessageFlag[] keywords = NO_KEYWORDS;
+
+  private long messageNumber;
+  private long uid;
+  private int size;
+  private long gmailMessageId;
+  private long gmailThreadId;
+  private long internalDateMillis;
+  private int internalDateOffsetSeconds;
+
+  private Envelope envelope;
+  private Set<GMailLabel> gMailLabels;
+  private Message body;
+
+  @Override
+  public ImapMessage build() {
+    return this;
+  }
+
+  private long require(int field, long value, String name) throws UnfetchedFieldException {
+    if ((present & field) == 0) {
+      throw new UnfetchedFieldException(name);
+    }
+
+    return value;
+  }
+
+  private static <T> T require(T value, String name) throws UnfetchedFieldException {
+    if (value == null) {
+      throw new UnfetchedFieldException(name);
+    }
+
+    return value;
+  }
+
+  @Override
+  public Set<MessageFlag> getFlags() throws UnfetchedFieldException {
+    require(HAS_FLAGS, 0, "flags");
+
+    Set<MessageFlag> flags = new HashSet<>(StandardMessageFlag.fromMask(systemFlags));
+    flags.addAll(Arrays.asList(keywords));
+    return flags;
+  }
+
+  /**
+   * @return whether the message has a system flag, without building the flag set.
+   */
+  public boolean hasFlag(StandardMessageFlag flag) throws UnfetchedFieldException {
+    require(HAS_FLAGS, 0, "flags");
+    return (systemFlags & flag.getMask()) != 0;
+  }
+
+  @Override
+  public CompactImapMessage setFlagStrings(Collection<String> flags) {
+    Set<MessageFlag> parsed = new HashSet<>(flags.size());
+    for (String flag : flags) {
+      parsed.add(StandardMessageFlag.fromName(flag));
+    }
+
+    return setFlags(parsed);
+  }
+
+  @Override
+  public CompactImapMessage setFlags(Set<MessageFlag> flags) {
+    int mask = 0;
+    int keywordCount = 0;
+    MessageFlag[] keywords = NO_KEYWORDS;
+    for (MessageFlag flag : flags) {
+      if (flag instanceof StandardMessageFlag) {
+        mask |= ((StandardMessageFlag) flag).getMask();
+      } else {
+        if (keywordCount == keywords.length) {
+          keywords = Arrays.copyOf(keywords, Math.max(2, keywordCount * 2));
+        }
+
+        keywords[keywordCount++] = flag;
+      }
+    }
+
+    this.systemFlags = mask;
+    this.keywords = keywordCount == keywords.length ? keywords : Arrays.copyOf(keywords, keywordCount);
+    this.present |= HAS_FLAGS;
+    return this;
+  }
+
+  @Override
+  public long getMessageNumber() {
+    return messageNumber;
+  }
+
+  @Override
+  public CompactImapMessage setMessageNumber(long messageNumber) {
+    this.messageNumber = messageNumber;
+    return this;
+  }
+
+  @Override
+  public long getUid() throws UnfetchedFieldException {
+    return require(HAS_UID, uid, "uid");
+  }
+
+  @Override
+  public CompactImapMessage setUid(long uid) {
+    this.uid = uid;
+    this.present |= HAS_UID;
+    return this;
+  }
+
+  /**
+   * Builds a new {@link ZonedDateTime} on every call, prefer {@link #getInternalDateEpochMillis()} for comparisons.
+   */
+  @Override
+  public ZonedDateTime getInternalDate() throws UnfetchedFieldException {
+    return InternalDateParser.toZonedDateTime(getInternalDateEpochMillis(), internalDateOffsetSeconds);
+  }
+
+  @Override
+  public long getInternalDateEpochMillis() throws UnfetchedFieldException {
+    return require(HAS_INTERNAL_DATE, internalDateMillis, "internaldate");
+  }
+
+  @Override
+  public CompactImapMessage setInternalDate(String internalDate) {
+    ZonedDateTime date = InternalDateParser.parse(internalDate);
+    return setInternalDate(date.toInstant().toEpochMilli(), date.getOffset().getTotalSeconds());
+  }
+
+  @Override
+  public CompactImapMessage setInternalDate(long epochMillis, int offsetSeconds) {
+    this.internalDateMillis = epochMillis;
+    this.internalDateOffsetSeconds = offsetSeconds;
+    this.present |= HAS_INTERNAL_DATE;
+    return this;
+  }
+
+  @Override
+  public int getSize() throws UnfetchedFieldException {
+    return (int) require(HAS_SIZE, size, "size");
+  }
+
+  @Override
+  public CompactImapMessage setSize(int size) {
+    this.size = size;
+    this.present |= HAS_SIZE;
+    return this;
+  }
+
+  @Override
+  public Envelope getEnvelope() throws UnfetchedFieldException {
+    return require(envelope, "envelope");
+  }
+
+  @Override
+  public CompactImapMessage setEnvelope(Envelope envelope) {
+    this.envelope = envelope;
+    return this;
+  }
+
+  @Override
+  public long getGmailMessageId() throws UnfetchedFieldException {
+    return require(HAS_GMAIL_MESSAGE_ID, gmailMessageId, "gmail message id");
+  }
+
+  @Override
+  public CompactImapMessage setGmailMessageId(long msgId) {
+    this.gmailMessageId = msgId;
+    this.present |= HAS_GMAIL_MESSAGE_ID;
+    return this;
+  }
+
+  @Override
+  public long getGmailThreadId() throws UnfetchedFieldException {
+    return require(HAS_GMAIL_THREAD_ID, gmailThreadId, "gmail thread id");
+  }
+
+  @Override
+  public CompactImapMessage setGmailThreadId(long msgId) {
+    this.gmailThreadId = msgId;
+    this.present |= HAS_GMAIL_THREAD_ID;
+    return this;
+  }
+
+  @Override
+  public Set<GMailLabel> getGMailLabels() throws UnfetchedFieldException {
+    return require(gMailLabels, "gmail labels");
+  }
+
+  @Override
+  public CompactImapMessage setGMailLabels(Set<GMailLabel> gmailLabels) {
+    this.gMailLabels = gmailLabels;
+    return this;
+  }
+
+  @Override
+  public Message getBody() throws UnfetchedFieldException {
+    return require(body, "body");
+  }
+
+  @Override
+  public CompactImapMessage setBody(Message body) {
+    this.body = body;
+    return this;
+  }
+
+  @Override
+  public String toString() {
+    return Objects.toStringHelper(this)
+        .add("flags", (present & HAS_FLAGS) == 0 ? null : StandardMessageFlag.fromMask(systemFlags) + Arrays.toString(keywords))
+        .add("messageNumber", messageNumber)
+        .add("uid", (present & HAS_UID) == 0 ? null : uid)
+        .add("internalDate", (present & HAS_INTERNAL_DATE) == 0 ? null : InternalDateParser.toZonedDateTime(internalDateMillis, internalDateOffsetSeconds))
+        .add("size", (present & HAS_SIZE) == 0 ? null : size)
+        .add("envelope", envelope)
+        .add("gmailMessageId", (present & HAS_GMAIL_MESSAGE_ID) == 0 ? null : gmailMessageId)
+        .add("gmailThreadId", (present & HAS_GMAIL_THREAD_ID) == 0 ? null : gmailThreadId)
+        .add("gMailLabels", gMailLabels)
+        .add("body", body)
+        .toString();
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    CompactImapMessage that = (CompactImapMessage) o;
+    return present == that.present &&
+        systemFlags == that.systemFlags &&
+        messageNumber == that.messageNumber &&
+        uid == that.uid &&
+        size == that.size &&
+        gmailMessageId == that.gmailMessageId &&
+        gmailThreadId == that.gmailThreadId &&
+        internalDateMillis == that.internalDateMillis &&
+        internalDateOffsetSeconds == that.internalDateOffsetSeconds &&
+        new HashSet<>(Arrays.asList(keywords)).equals(new HashSet<>(Arrays.asList(that.keywords))) &&
+        Objects.equal(envelope, that.envelope) &&
+        Objects.equal(gMailLabels, that.gMailLabels) &&
+        Objects.equal(body, that.body);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hashCode(present, systemFlags, messageNumber, uid, size, gmailMessageId, gmailThreadId,
+        internalDateMillis, internalDateOffsetSeconds, new HashSet<>(Arrays.asList(keywords)), envelope, gMailLabels, body);
+  }
+}
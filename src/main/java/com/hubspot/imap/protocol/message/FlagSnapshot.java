@@ -0,0 +1,316 @@
+package com.hubspot.imap.protocol.message;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.hubspot.imap.utils.AsciiToken;
+
+/**
+ * Columnar copy of the flags of every message in a folder, sorted by UID.
+ * <p>
+ * System flags are stored as a bitmask per message (see {@link StandardMessageFlag#getMask()}) and keywords as ids
+ * from a {@link KeywordTable}, so a snapshot of a million messages is a handful of primitive arrays rather than a
+ * million messages with a flag set each. Snapshots built with the same keyword table can be diffed by comparing ints.
+ * <p>
+ * Snapshots only make sense within one UIDVALIDITY, callers must discard the previous snapshot when it changes.
+ */
+public class FlagSnapshot {
+  private final KeywordTable keywordTable;
+  private final long[] uids;
+  private final int[] flags;
+  private final int[] keywordOffsets;
+  private final int[] keywordIds;
+
+  private FlagSnapshot(KeywordTable keywordTable, long[] uids, int[] flags, int[] keywordOffsets, int[] keywordIds) {
+    this.keywordTable = keywordTable;
+    this.uids = uids;
+    this.flags = flags;
+    this.keywordOffsets = keywordOffsets;
+    this.keywordIds = keywordIds;
+  }
+
+  public int size() {
+    return uids.length;
+  }
+
+  public long getUid(int index) {
+    return uids[index];
+  }
+
+  /**
+   * @return the index of the message with this UID, or a negative value if it is not in the snapshot.
+   */
+  public int indexOf(long uid) {
+    return Arrays.binarySearch(uids, uid);
+  }
+
+  public int getFlagMask(int index) {
+    return flags[index];
+  }
+
+  public boolean hasFlag(int index, StandardMessageFlag flag) {
+    return (flags[index] & flag.getMask()) != 0;
+  }
+
+  public Set<StandardMessageFlag> getFlags(int index) {
+    return StandardMessageFlag.fromMask(flags[index]);
+  }
+
+  public List<String> getKeywords(int index) {
+    List<String> keywords = new ArrayList<>(keywordOffsets[index + 1] - keywordOffsets[index]);
+    for (int i = keywordOffsets[index]; i < keywordOffsets[index + 1]; i++) {
+      keywords.add(keywordTable.getKeyword(keywordIds[i]));
+    }
+
+    return keywords;
+  }
+
+  public KeywordTable getKeywordTable() {
+    return keywordTable;
+  }
+
+  /**
+   * Computes what changed since {@code previous}: UIDs that are new, UIDs that are gone, and UIDs whose flags or
+   * keywords differ.
+   */
+  public FlagSnapshotDiff diff(FlagSnapshot previous) {
+    long[] added = new long[uids.length];
+    long[] removed = new long[previous.uids.length];
+    long[] changed = new long[uids.length];
+    int addedCount = 0;
+    int removedCount = 0;
+    int changedCount = 0;
+
+    int i = 0;
+    int j = 0;
+    while (i < uids.length || j < previous.uids.length) {
+      if (j >= previous.uids.length || (i < uids.length && uids[i] < previous.uids[j])) {
+        added[addedCount++] = uids[i++];
+      } else if (i >= uids.length || previous.uids[j] < uids[i]) {
+        removed[removedCount++] = previous.uids[j++];
+      } else {
+        if (!sameFlags(i, previous, j)) {
+          changed[changedCount++] = uids[i];
+        }
+        i++;
+        j++;
+      }
+    }
+
+    return new FlagSnapshotDiff(this,
+        Arrays.copyOf(added, addedCount),
+        Arrays.copyOf(removed, removedCount),
+        Arrays.copyOf(changed, changedCount));
+  }
+
+  private boolean sameFlags(int index, FlagSnapshot other, int otherIndex) {
+    if (flags[index] != other.flags[otherIndex]) {
+      return false;
+    }
+
+    int start = keywordOffsets[index];
+    int count = keywordOffsets[index + 1] - start;
+    int otherStart = other.keywordOffsets[otherIndex];
+    int otherCount = other.keywordOffsets[otherIndex + 1] - otherStart;
+    if (count != otherCount) {
+      return false;
+    }
+
+    if (keywordTable == other.keywordTable) {
+      for (int k = 0; k < count; k++) {
+        if (keywordIds[start + k] != other.keywordIds[otherStart + k]) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    return new HashSet<>(getKeywords(index)).equals(new HashSet<>(other.getKeywords(otherIndex)));
+  }
+
+  /**
+   * Accumulates one row per FETCH response. Rows are expected in ascending UID order (which is what servers send for
+   * {@code UID FETCH 1:* (UID FLAGS)}), anything else is sorted on {@link #build()}. If a UID shows up more than once
+   * the last row wins.
+   */
+  public static class Builder {
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final KeywordTable keywordTable;
+
+    private long[] uids;
+    private int[] flags;
+    private int[] keywordOffsets;
+    private int[] keywordIds;
+    private int size;
+    private boolean sorted;
+
+    private long rowUid;
+    private int rowFlags;
+    private int[] rowKeywords;
+    private int rowKeywordCount;
+
+    public Builder() {
+      this(new KeywordTable());
+    }
+
+    public Builder(KeywordTable keywordTable) {
+      this.keywordTable = keywordTable;
+
+      this.uids = new long[INITIAL_CAPACITY];
+      this.flags = new int[INITIAL_CAPACITY];
+      this.keywordOffsets = new int[INITIAL_CAPACITY + 1];
+      this.keywordIds = new int[INITIAL_CAPACITY];
+      this.size = 0;
+      this.sorted = true;
+
+      this.rowKeywords = new int[8];
+      startMessage();
+    }
+
+    public Builder startMessage() {
+      rowUid = -1;
+      return startFlags();
+    }
+
+    public Builder setUid(long uid) {
+      this.rowUid = uid;
+      return this;
+    }
+
+    /**
+     * Clears the flags of the current row, call this before adding the flags of a FLAGS item.
+     */
+    public Builder startFlags() {
+      rowFlags = 0;
+      rowKeywordCount = 0;
+      return this;
+    }
+
+    public Builder addFlag(String flag) {
+      int mask = StandardMessageFlag.getSystemFlagMask(flag);
+      if (mask != 0) {
+        rowFlags |= mask;
+        return this;
+      }
+
+      return addKeyword(keywordTable.intern(flag));
+    }
+
+    /**
+     * Like {@link #addFlag(String)}, without building a String for system flags or keywords seen before.
+     */
+    public Builder addFlag(AsciiToken flag) {
+      int mask = StandardMessageFlag.getSystemFlagMask(flag);
+      if (mask != 0) {
+        rowFlags |= mask;
+        return this;
+      }
+
+      return addKeyword(keywordTable.intern(flag));
+    }
+
+    public Builder addKeyword(int keywordId) {
+      for (int i = 0; i < rowKeywordCount; i++) {
+        if (rowKeywords[i] == keywordId) {
+          return this;
+        }
+      }
+
+      if (rowKeywordCount == rowKeywords.length) {
+        rowKeywords = Arrays.copyOf(rowKeywords, rowKeywordCount * 2);
+      }
+      rowKeywords[rowKeywordCount++] = keywordId;
+
+      return this;
+    }
+
+    /**
+     * Appends the current row. Rows without a UID (e.g. an unsolicited FETCH with only FLAGS) are dropped.
+     */
+    public Builder endMessage() {
+      if (rowUid < 0) {
+        startMessage();
+        return this;
+      }
+
+      if (size > 0 && uids[size - 1] == rowUid) {
+        size--; // Replace the previous row for this UID
+      } else if (size > 0 && uids[size - 1] > rowUid) {
+        sorted = false;
+      }
+
+      ensureCapacity(size + 1, keywordOffsets[size] + rowKeywordCount);
+      Arrays.sort(rowKeywords, 0, rowKeywordCount);
+
+      uids[size] = rowUid;
+      flags[size] = rowFlags;
+      System.arraycopy(rowKeywords, 0, keywordIds, keywordOffsets[size], rowKeywordCount);
+      keywordOffsets[size + 1] = keywordOffsets[size] + rowKeywordCount;
+      size++;
+
+      startMessage();
+      return this;
+    }
+
+    /**
+     * Drops every row, for a command that is sent again after a reconnect. The keyword table is kept.
+     */
+    public Builder reset() {
+      size = 0;
+      sorted = true;
+      keywordOffsets[0] = 0;
+      return startMessage();
+    }
+
+    public KeywordTable getKeywordTable() {
+      return keywordTable;
+    }
+
+    public FlagSnapshot build() {
+      if (sorted) {
+        return new FlagSnapshot(keywordTable,
+            Arrays.copyOf(uids, size),
+            Arrays.copyOf(flags, size),
+            Arrays.copyOf(keywordOffsets, size + 1),
+            Arrays.copyOf(keywordIds, keywordOffsets[size]));
+      }
+
+      Integer[] order = new Integer[size];
+      for (int i = 0; i < size; i++) {
+        order[i] = i;
+      }
+      Arrays.sort(order, Comparator.comparingLong(i -> uids[i])); // Stable, so the last row for a UID stays last
+
+      Builder sortedBuilder = new Builder(keywordTable);
+      for (int i = 0; i < size; i++) {
+        int row = order[i];
+        sortedBuilder.setUid(uids[row]);
+        sortedBuilder.rowFlags = flags[row];
+        for (int k = keywordOffsets[row]; k < keywordOffsets[row + 1]; k++) {
+          sortedBuilder.addKeyword(keywordIds[k]);
+        }
+        sortedBuilder.endMessage();
+      }
+
+      return sortedBuilder.build();
+    }
+
+    private void ensureCapacity(int rows, int keywords) {
+      if (rows > uids.length) {
+        int capacity = Math.max(rows, uids.length * 2);
+        uids = Arrays.copyOf(uids, capacity);
+        flags = Arrays.copyOf(flags, capacity);
+        keywordOffsets = Arrays.copyOf(keywordOffsets, capacity + 1);
+      }
+
+      if (keywords > keywordIds.length) {
+        keywordIds = Arrays.copyOf(keywordIds, Math.max(keywords, keywordIds.length * 2));
+      }
+    }
+  }
+}
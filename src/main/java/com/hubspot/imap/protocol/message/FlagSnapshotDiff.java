@@ -0,0 +1,50 @@
+package com.hubspot.imap.protocol.message;
+
+import com.google.common.base.Objects;
+
+/**
+ * The difference between two {@link FlagSnapshot}s of the same folder. All UID arrays are sorted ascending, look up
+ * the new flags of added or changed messages in {@link #getSnapshot()}.
+ */
+public class FlagSnapshotDiff {
+  private final FlagSnapshot snapshot;
+  private final long[] addedUids;
+  private final long[] removedUids;
+  private final long[] changedUids;
+
+  public FlagSnapshotDiff(FlagSnapshot snapshot, long[] addedUids, long[] removedUids, long[] changedUids) {
+    this.snapshot = snapshot;
+    this.addedUids = addedUids;
+    this.removedUids = removedUids;
+    this.changedUids = changedUids;
+  }
+
+  public FlagSnapshot getSnapshot() {
+    return snapshot;
+  }
+
+  public long[] getAddedUids() {
+    return addedUids;
+  }
+
+  public long[] getRemovedUids() {
+    return removedUids;
+  }
+
+  public long[] getChangedUids() {
+    return changedUids;
+  }
+
+  public boolean isEmpty() {
+    return addedUids.length == 0 && removedUids.length == 0 && changedUids.length == 0;
+  }
+
+  @Override
+  public String toString() {
+    return Objects.toStringHelper(this)
+        .add("added", addedUids.length)
+        .add("removed", removedUids.length)
+        .add("changed", changedUids.length)
+        .toString();
+  }
+}
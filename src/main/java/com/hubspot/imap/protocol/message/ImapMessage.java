@@ -2,10 +2,10 @@ package com.hubspot.imap.protocol.message;
 
 import com.google.common.base.Objects;
 import com.hubspot.imap.protocol.extension.gmail.GMailLabel;
+import com.hubspot.imap.utils.parsers.fetch.InternalDateParser;
 import org.apache.james.mime4j.dom.Message;
 
 import java.time.ZonedDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.Collection;
 import java.util.Optional;
 import java.util.Set;
@@ -17,6 +17,14 @@ public interface ImapMessage {
   long getMessageNumber();
   long getUid() throws UnfetchedFieldException;
   ZonedDateTime getInternalDate() throws UnfetchedFieldException;
+
+  /**
+   * The instant of {@link #getInternalDate()}, without building a {@link ZonedDateTime}.
+   */
+  default long getInternalDateEpochMillis() throws UnfetchedFieldException {
+    return getInternalDate().toInstant().toEpochMilli();
+  }
+
   int getSize() throws UnfetchedFieldException;
   Envelope getEnvelope() throws UnfetchedFieldException;
   long getGmailMessageId() throws UnfetchedFieldException;
@@ -24,13 +32,14 @@ public interface ImapMessage {
   Set<GMailLabel> getGMailLabels() throws UnfetchedFieldException;
   Message getBody() throws UnfetchedFieldException;
 
-  class Builder implements ImapMessage {
-    private static DateTimeFormatter INTERNALDATE_FORMATTER = DateTimeFormatter.ofPattern("dd-MMM-yyyy HH:mm:ss Z");
-
+  class Builder implements ImapMessage, ImapMessageBuilder {
     private Optional<Set<MessageFlag>> flags = Optional.empty();
     private long messageNumber;
     private Optional<Long> uid = Optional.empty();
-    private Optional<ZonedDateTime> internalDate = Optional.empty();
+    private boolean hasInternalDate;
+    private long internalDateMillis;
+    private int internalDateOffsetSeconds;
+    private ZonedDateTime internalDate;
     private Optional<Integer> size = Optional.empty();
     private Optional<Envelope> envelope = Optional.empty();
     private Optional<Long> gmailMessageId = Optional.empty();
@@ -48,9 +57,7 @@ public interface ImapMessage {
 
     public Builder setFlagStrings(Collection<String> flags) {
       this.flags = Optional.of(flags.stream()
-          .map(StandardMessageFlag::getFlag)
-          .filter(Optional::isPresent)
-          .map(Optional::get)
+          .map(StandardMessageFlag::fromName)
           .collect(Collectors.toSet()));
       return this;
     }
@@ -79,11 +86,31 @@ public interface ImapMessage {
     }
 
     public ZonedDateTime getInternalDate() throws UnfetchedFieldException {
-      return this.internalDate.orElseThrow(() -> new UnfetchedFieldException("internaldate"));
+      if (internalDate == null) {
+        internalDate = InternalDateParser.toZonedDateTime(getInternalDateEpochMillis(), internalDateOffsetSeconds);
+      }
+
+      return internalDate;
+    }
+
+    public long getInternalDateEpochMillis() throws UnfetchedFieldException {
+      if (!hasInternalDate) {
+        throw new UnfetchedFieldException("internaldate");
+      }
+
+      return internalDateMillis;
     }
 
     public Builder setInternalDate(String internalDate) {
-      this.internalDate = Optional.of(ZonedDateTime.parse(internalDate, INTERNALDATE_FORMATTER));
+      ZonedDateTime date = InternalDateParser.parse(internalDate);
+      return setInternalDate(date.toInstant().toEpochMilli(), date.getOffset().getTotalSeconds());
+    }
+
+    public Builder setInternalDate(long epochMillis, int offsetSeconds) {
+      this.hasInternalDate = true;
+      this.internalDateMillis = epochMillis;
+      this.internalDateOffsetSeconds = offsetSeconds;
+      this.internalDate = null;
       return this;
     }
 
@@ -147,7 +174,7 @@ public interface ImapMessage {
         .add("flags", flags)
         .add("messageNumber", messageNumber)
         .add("uid", uid)
-        .add("internalDate", internalDate)
+        .add("internalDate", hasInternalDate ? InternalDateParser.toZonedDateTime(internalDateMillis, internalDateOffsetSeconds) : null)
         .add("size", size)
         .add("envelope", envelope)
         .add("gmailMessageId", gmailMessageId)
@@ -169,7 +196,9 @@ public interface ImapMessage {
       return Objects.equal(messageNumber, builder.messageNumber) &&
           Objects.equal(flags, builder.flags) &&
           Objects.equal(uid, builder.uid) &&
-          Objects.equal(internalDate, builder.internalDate) &&
+          Objects.equal(hasInternalDate, builder.hasInternalDate) &&
+          Objects.equal(internalDateMillis, builder.internalDateMillis) &&
+          Objects.equal(internalDateOffsetSeconds, builder.internalDateOffsetSeconds) &&
           Objects.equal(size, builder.size) &&
           Objects.equal(envelope, builder.envelope) &&
           Objects.equal(gmailMessageId, builder.gmailMessageId) &&
@@ -180,7 +209,7 @@ public interface ImapMessage {
 
     @Override
     public int hashCode() {
-      return Objects.hashCode(flags, messageNumber, uid, internalDate, size, envelope, gmailMessageId, gmailThreadId, gMailLabels, body);
+      return Objects.hashCode(flags, messageNumber, uid, hasInternalDate, internalDateMillis, internalDateOffsetSeconds, size, envelope, gmailMessageId, gmailThreadId, gMailLabels, body);
     }
   }
 }
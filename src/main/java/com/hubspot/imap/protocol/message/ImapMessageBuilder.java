@@ -0,0 +1,34 @@
+package com.hubspot.imap.protocol.message;
+
+import java.util.Collection;
+import java.util.Set;
+
+import org.apache.james.mime4j.dom.Message;
+
+import com.hubspot.imap.protocol.extension.gmail.GMailLabel;
+
+/**
+ * Collects the fetched items of one message. {@link ImapMessage.Builder} keeps every item as an object,
+ * {@link CompactImapMessage} packs them into primitive fields for syncs that hold many messages at once.
+ */
+public interface ImapMessageBuilder {
+
+  static ImapMessageBuilder newBuilder(boolean compact) {
+    return compact ? new CompactImapMessage() : new ImapMessage.Builder();
+  }
+
+  ImapMessageBuilder setFlagStrings(Collection<String> flags);
+  ImapMessageBuilder setFlags(Set<MessageFlag> flags);
+  ImapMessageBuilder setMessageNumber(long messageNumber);
+  ImapMessageBuilder setUid(long uid);
+  ImapMessageBuilder setInternalDate(String internalDate);
+  ImapMessageBuilder setInternalDate(long epochMillis, int offsetSeconds);
+  ImapMessageBuilder setSize(int size);
+  ImapMessageBuilder setEnvelope(Envelope envelope);
+  ImapMessageBuilder setGmailMessageId(long msgId);
+  ImapMessageBuilder setGmailThreadId(long msgId);
+  ImapMessageBuilder setGMailLabels(Set<GMailLabel> gmailLabels);
+  ImapMessageBuilder setBody(Message body);
+
+  ImapMessage build();
+}
@@ -0,0 +1,72 @@
+package com.hubspot.imap.protocol.message;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.hubspot.imap.utils.AsciiToken;
+
+/**
+ * Assigns small, stable int ids to keyword flags (e.g. "$Phishing" or "Junk") so flag snapshots can store keywords
+ * as ints. A table is append only, share it between successive snapshots of a folder to keep ids comparable.
+ */
+public class KeywordTable {
+  private final ConcurrentHashMap<String, Integer> ids;
+  // The same ids by the bytes a keyword arrives as, so the decoder finds a known keyword without building a String
+  private final ConcurrentHashMap<AsciiToken, Integer> tokenIds;
+  private volatile String[] keywords;
+  private int size;
+
+  public KeywordTable() {
+    this.ids = new ConcurrentHashMap<>();
+    this.tokenIds = new ConcurrentHashMap<>();
+    this.keywords = new String[16];
+    this.size = 0;
+  }
+
+  public int intern(String keyword) {
+    Integer id = ids.get(keyword);
+    if (id != null) {
+      return id;
+    }
+
+    return add(keyword);
+  }
+
+  /**
+   * @param keyword a token that is only read, never kept
+   */
+  public int intern(AsciiToken keyword) {
+    Integer id = tokenIds.get(keyword);
+    if (id != null) {
+      return id;
+    }
+
+    int newId = intern(keyword.toString());
+    tokenIds.putIfAbsent(new AsciiToken(keyword), newId);
+    return newId;
+  }
+
+  private synchronized int add(String keyword) {
+    Integer id = ids.get(keyword);
+    if (id != null) {
+      return id;
+    }
+
+    if (size == keywords.length) {
+      keywords = Arrays.copyOf(keywords, size * 2);
+    }
+
+    keywords[size] = keyword;
+    ids.put(keyword, size);
+
+    return size++;
+  }
+
+  public String getKeyword(int id) {
+    return keywords[id];
+  }
+
+  public int size() {
+    return ids.size();
+  }
+}
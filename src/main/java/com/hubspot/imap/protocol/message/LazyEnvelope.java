@@ -0,0 +1,153 @@
+package com.hubspot.imap.protocol.message;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import com.google.common.base.Objects;
+import com.hubspot.imap.utils.SoftReferencedAppendableCharSequence;
+import com.hubspot.imap.utils.parsers.fetch.EnvelopeParser;
+import com.hubspot.imap.utils.parsers.string.LiteralStringParser;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+/**
+ * An {@link Envelope} that keeps the raw ENVELOPE bytes and decodes each field the first time it is read. A consumer
+ * that only looks at the Message-ID and date never builds the subject or the address lists.
+ * <p>
+ * The bytes may be a region of a larger array shared with the other envelopes of the same response, see
+ * {@code ImapConfiguration#lazyEnvelopeChunkSize()}.
+ */
+public class LazyEnvelope implements Envelope {
+  private static final int DATE = 0;
+  private static final int SUBJECT = 1;
+  private static final int FROM = 2;
+  private static final int SENDER = 3;
+  private static final int REPLY_TO = 4;
+  private static final int TO = 5;
+  private static final int CC = 6;
+  private static final int BCC = 7;
+  private static final int IN_REPLY_TO = 8;
+  private static final int MESSAGE_ID = 9;
+
+  private static final Object UNDECODED = new Object();
+
+  // Fields are decoded on whichever thread reads them first, each thread gets its own parser
+  private static final ThreadLocal<EnvelopeParser> PARSER = ThreadLocal.withInitial(() ->
+      new EnvelopeParser(new LiteralStringParser(new SoftReferencedAppendableCharSequence(1000), Integer.MAX_VALUE)));
+
+  private final byte[] bytes;
+  private final int offset;
+  private final int length;
+  private final int[] fieldOffsets;
+  private final Object[] fields;
+  private Optional<ZonedDateTime> date;
+
+  /**
+   * @param fieldOffsets the offsets found by {@link EnvelopeParser#scan}, from {@code offset}
+   */
+  public LazyEnvelope(byte[] bytes, int offset, int length, int[] fieldOffsets) {
+    this.bytes = bytes;
+    this.offset = offset;
+    this.length = length;
+    this.fieldOffsets = fieldOffsets;
+    this.fields = new Object[EnvelopeParser.FIELD_COUNT];
+    for (int i = 0; i < fields.length; i++) {
+      fields[i] = UNDECODED;
+    }
+  }
+
+  private synchronized Object field(int field) {
+    Object value = fields[field];
+    if (value == UNDECODED) {
+      EnvelopeParser parser = PARSER.get();
+      int start = fieldOffsets[field];
+      ByteBuf in = Unpooled.wrappedBuffer(bytes, offset + start, length - start);
+
+      value = field >= FROM && field <= BCC ? parser.readAddresses(in) : parser.readNString(in);
+      fields[field] = value;
+    }
+
+    return value;
+  }
+
+  private String stringField(int field) {
+    return ((String) field(field));
+  }
+
+  @SuppressWarnings("unchecked")
+  private List<ImapAddress> addressField(int field) {
+    return ((List<ImapAddress>) field(field));
+  }
+
+  @Override
+  public synchronized Optional<ZonedDateTime> getDate() {
+    if (date == null) {
+      date = Optional.ofNullable(EnvelopeParser.toDate(getDateString()));
+    }
+
+    return date;
+  }
+
+  @Override
+  public String getDateString() {
+    return stringField(DATE);
+  }
+
+  @Override
+  public String getSubject() {
+    return stringField(SUBJECT);
+  }
+
+  @Override
+  public List<ImapAddress> getFrom() {
+    return addressField(FROM);
+  }
+
+  @Override
+  public List<ImapAddress> getSender() {
+    return addressField(SENDER);
+  }
+
+  @Override
+  public List<ImapAddress> getReplyTo() {
+    return addressField(REPLY_TO);
+  }
+
+  @Override
+  public List<ImapAddress> getTo() {
+    return addressField(TO);
+  }
+
+  @Override
+  public List<ImapAddress> getCc() {
+    return addressField(CC);
+  }
+
+  @Override
+  public List<ImapAddress> getBcc() {
+    return addressField(BCC);
+  }
+
+  @Override
+  public String getInReplyTo() {
+    return stringField(IN_REPLY_TO);
+  }
+
+  @Override
+  public String getMessageId() {
+    return stringField(MESSAGE_ID);
+  }
+
+  @Override
+  public String toString() {
+    return Objects.toStringHelper(this)
+        .add("date", getDateString())
+        .add("subject", getSubject())
+        .add("from", getFrom())
+        .add("to", getTo())
+        .add("messageId", getMessageId())
+        .toString();
+  }
+}
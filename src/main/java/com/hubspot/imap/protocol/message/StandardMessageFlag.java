@@ -1,6 +1,9 @@
 package com.hubspot.imap.protocol.message;
 
+import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.Optional;
+import java.util.Set;
 
 public enum StandardMessageFlag implements MessageFlag {
   SEEN,
@@ -11,16 +14,107 @@ public enum StandardMessageFlag implements MessageFlag {
   RECENT,
   INVALID;
 
+  private static final StandardMessageFlag[] SYSTEM_FLAGS = {SEEN, ANSWERED, FLAGGED, DELETED, DRAFT, RECENT};
+
+  // Flags by the lower case first letter of their name, so a lookup compares against at most two names
+  private static final StandardMessageFlag[][] BY_FIRST_LETTER = new StandardMessageFlag[26][];
+
+  static {
+    for (StandardMessageFlag flag : values()) {
+      int index = Character.toLowerCase(flag.name().charAt(0)) - 'a';
+      StandardMessageFlag[] flags = BY_FIRST_LETTER[index];
+      if (flags == null) {
+        flags = new StandardMessageFlag[] {flag};
+      } else {
+        flags = Arrays.copyOf(flags, flags.length + 1);
+        flags[flags.length - 1] = flag;
+      }
+
+      BY_FIRST_LETTER[index] = flags;
+    }
+  }
+
   public static Optional<MessageFlag> getFlag(String name) {
-    if (name.startsWith("\\") || name.startsWith("$")) {
-      name = name.substring(1);
+    return Optional.of(fromName(name));
+  }
+
+  /**
+   * Looks up a flag by the name it has on the wire (e.g. "\Seen" or "$Phishing"), ignoring case. System flags are
+   * matched without allocating, keywords come from the {@link StringMessageFlag#intern(CharSequence, int)} table.
+   */
+  public static MessageFlag fromName(CharSequence name) {
+    int start = prefixLength(name);
+
+    StandardMessageFlag flag = lookup(name, start);
+    if (flag != null) {
+      return flag;
+    }
+
+    return StringMessageFlag.intern(name, start);
+  }
+
+  // A leading backslash or dollar sign is not part of the name
+  private static int prefixLength(CharSequence name) {
+    return name.length() > 0 && (name.charAt(0) == '\\' || name.charAt(0) == '$') ? 1 : 0;
+  }
+
+  private static StandardMessageFlag lookup(CharSequence name, int start) {
+    if (start >= name.length()) {
+      return null;
     }
 
-    try {
-      return Optional.of(StandardMessageFlag.valueOf(name.toUpperCase()));
-    } catch (IllegalArgumentException e) {
-      return Optional.of(new StringMessageFlag(name));
+    int index = (name.charAt(start) | 0x20) - 'a';
+    if (index < 0 || index >= BY_FIRST_LETTER.length || BY_FIRST_LETTER[index] == null) {
+      return null;
     }
+
+    int length = name.length() - start;
+    for (StandardMessageFlag flag : BY_FIRST_LETTER[index]) {
+      String flagName = flag.name();
+      if (flagName.length() == length && regionMatchesIgnoreCase(name, start, flagName)) {
+        return flag;
+      }
+    }
+
+    return null;
+  }
+
+  private static boolean regionMatchesIgnoreCase(CharSequence name, int start, String upperCaseName) {
+    for (int i = 0; i < upperCaseName.length(); i++) {
+      char c = name.charAt(start + i);
+      if (c >= 'a' && c <= 'z') {
+        c -= 'a' - 'A';
+      }
+
+      if (c != upperCaseName.charAt(i)) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * @return the bit for a system flag, or 0 if the name is a keyword. Names are matched as in {@link #fromName}.
+   */
+  public static int getSystemFlagMask(CharSequence name) {
+    StandardMessageFlag flag = lookup(name, prefixLength(name));
+    return flag == null || flag == INVALID ? 0 : flag.getMask();
+  }
+
+  public static Set<StandardMessageFlag> fromMask(int mask) {
+    Set<StandardMessageFlag> flags = EnumSet.noneOf(StandardMessageFlag.class);
+    for (StandardMessageFlag flag : SYSTEM_FLAGS) {
+      if ((mask & flag.getMask()) != 0) {
+        flags.add(flag);
+      }
+    }
+
+    return flags;
+  }
+
+  public int getMask() {
+    return 1 << ordinal();
   }
 
   public String getString() {
@@ -1,14 +1,90 @@
 package com.hubspot.imap.protocol.message;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.hubspot.imap.utils.AsciiToken;
+
 public class StringMessageFlag implements MessageFlag {
-  public String flag;
+  // Keywords are shared by every message and connection that uses them. The table stops growing once full, so a server
+  // with unbounded keywords costs an allocation per flag rather than unbounded memory.
+  private static final int MAX_INTERNED = 4096;
+  private static final ConcurrentMap<AsciiToken, StringMessageFlag> INTERNED = new ConcurrentHashMap<>();
+
+  private final String flag;
 
   public StringMessageFlag(String flag) {
     this.flag = "\"" + flag + "\"";
   }
 
+  /**
+   * @param name  the keyword as it appears on the wire, a token is only read, never kept
+   * @param start where the keyword starts in {@code name}, past any prefix that is not part of the flag
+   */
+  static StringMessageFlag intern(CharSequence name, int start) {
+    AsciiToken key;
+    if (name instanceof AsciiToken) {
+      key = ((AsciiToken) name);
+    } else if (isLatin1(name)) {
+      key = new AsciiToken(name);
+    } else {
+      return new StringMessageFlag(name.toString().substring(start));
+    }
+
+    StringMessageFlag flag = INTERNED.get(key);
+    if (flag != null) {
+      return flag;
+    }
+
+    flag = new StringMessageFlag(key.toString().substring(start));
+    if (INTERNED.size() < MAX_INTERNED) {
+      StringMessageFlag existing = INTERNED.putIfAbsent(key == name ? new AsciiToken(name) : key, flag);
+      if (existing != null) {
+        return existing;
+      }
+    }
+
+    return flag;
+  }
+
+  private static boolean isLatin1(CharSequence name) {
+    for (int i = 0; i < name.length(); i++) {
+      if (name.charAt(i) > 0xFF) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * @return the quoted keyword, instances are shared so the flag can't change.
+   */
   @Override
   public String getString() {
     return flag;
   }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+
+    return flag.equals(((StringMessageFlag) o).flag);
+  }
+
+  @Override
+  public int hashCode() {
+    return flag.hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return flag;
+  }
 }
@@ -1,8 +1,25 @@
 package com.hubspot.imap.protocol.response;
 
+import com.hubspot.imap.utils.AsciiToken;
+
 public enum ResponseCode {
   NONE,
   OK,
   NO,
   BAD;
+
+  private static final ResponseCode[] VALUES = values();
+
+  /**
+   * {@link #valueOf(String)} without building a String for the common case.
+   */
+  public static ResponseCode fromToken(AsciiToken token) {
+    for (ResponseCode code : VALUES) {
+      if (token.contentEquals(code.name())) {
+        return code;
+      }
+    }
+
+    return valueOf(token.toString());
+  }
 }
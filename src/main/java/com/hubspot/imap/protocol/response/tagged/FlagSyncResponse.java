@@ -0,0 +1,40 @@
+package com.hubspot.imap.protocol.response.tagged;
+
+import java.util.Optional;
+
+import com.hubspot.imap.protocol.command.fetch.FlagSyncCommand;
+import com.hubspot.imap.protocol.message.FlagSnapshot;
+import com.hubspot.imap.protocol.message.FlagSnapshotDiff;
+
+public interface FlagSyncResponse extends TaggedResponse {
+  FlagSnapshot getSnapshot();
+
+  /**
+   * @return the changes since the snapshot passed to the sync, if there was one.
+   */
+  Optional<FlagSnapshotDiff> getDiff();
+
+  class Builder extends TaggedResponse.Builder implements FlagSyncResponse {
+    private FlagSnapshot snapshot;
+    private Optional<FlagSnapshotDiff> diff = Optional.empty();
+
+    public FlagSyncResponse fromResponse(TaggedResponse response, FlagSyncCommand command) {
+      copy(response);
+
+      this.snapshot = command.getSnapshotBuilder().build();
+      this.diff = command.getPreviousSnapshot().map(snapshot::diff);
+
+      return this;
+    }
+
+    @Override
+    public FlagSnapshot getSnapshot() {
+      return snapshot;
+    }
+
+    @Override
+    public Optional<FlagSnapshotDiff> getDiff() {
+      return diff;
+    }
+  }
+}
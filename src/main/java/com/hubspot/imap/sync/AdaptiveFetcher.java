@@ -0,0 +1,164 @@
+package com.hubspot.imap.sync;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+
+import com.google.common.base.Preconditions;
+import com.hubspot.imap.client.ImapClient;
+import com.hubspot.imap.protocol.command.ImapCommandType;
+import com.hubspot.imap.protocol.command.fetch.StreamingFetchCommand;
+import com.hubspot.imap.protocol.command.fetch.UidCommand;
+import com.hubspot.imap.protocol.command.fetch.items.FetchDataItem;
+import com.hubspot.imap.protocol.command.fetch.items.FetchDataItem.FetchDataItemType;
+import com.hubspot.imap.protocol.exceptions.CommandFailedException;
+import com.hubspot.imap.protocol.message.ImapMessage;
+import com.hubspot.imap.protocol.message.UnfetchedFieldException;
+import com.hubspot.imap.protocol.response.ResponseCode;
+import com.hubspot.imap.protocol.response.tagged.FetchResponse;
+import com.hubspot.imap.protocol.response.tagged.StreamingFetchResponse;
+
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.Promise;
+
+/**
+ * Fetches a UID range in batches sized by an {@link AimdBatchWindow}.
+ * <p>
+ * The range is first scanned with {@code UID FETCH (UID RFC822.SIZE)}, which is cheap and tells us exactly which UIDs
+ * exist and how large they are. Each batch then covers as many consecutive messages as the window allows without
+ * exceeding the window's byte budget (a single message larger than the budget is fetched on its own). The latency of
+ * every batch, measured from the write of its command to its tagged response, and its size feed back into the window.
+ * Time a batch spends queued behind other commands on a busy client is not counted, so it doesn't read as a slow server.
+ * <p>
+ * A failed batch (usually a read timeout, which also closes the connection) shrinks the window and fails the fetch,
+ * so keep the window around and retry on a new connection to pick up where the window left off.
+ */
+public class AdaptiveFetcher {
+  private final ImapClient client;
+  private final AimdBatchWindow window;
+
+  public AdaptiveFetcher(ImapClient client, AimdBatchWindow window) {
+    this.client = client;
+    this.window = window;
+  }
+
+  public <R> Future<List<StreamingFetchResponse<R>>> uidfetch(long startUid,
+                                                              long stopUid,
+                                                              Function<ImapMessage, R> messageFunction,
+                                                              List<FetchDataItem> fetchDataItems) {
+    Preconditions.checkArgument(fetchDataItems.size() > 0, "Must have at least one FETCH item.");
+    Promise<List<StreamingFetchResponse<R>>> promise = client.getPromiseExecutor().next().newPromise();
+
+    client.uidfetch(startUid, Optional.of(stopUid), FetchDataItemType.UID, FetchDataItemType.RFC822_SIZE).addListener(f -> {
+      if (!f.isSuccess()) {
+        promise.tryFailure(f.cause());
+        return;
+      }
+
+      FetchResponse response = ((FetchResponse) f.getNow());
+      if (response.getCode() != ResponseCode.OK) {
+        promise.tryFailure(new CommandFailedException(ImapCommandType.FETCH, response.getCode(), response.getMessage()));
+        return;
+      }
+
+      try {
+        new BatchRun<>(response.getMessages(), messageFunction, fetchDataItems, promise).next();
+      } catch (UnfetchedFieldException e) {
+        promise.tryFailure(e);
+      }
+    });
+
+    return promise;
+  }
+
+  public AimdBatchWindow getWindow() {
+    return window;
+  }
+
+  private final class BatchRun<R> {
+    private final long[] uids;
+    private final long[] sizes;
+    private final Function<ImapMessage, R> messageFunction;
+    private final List<FetchDataItem> fetchDataItems;
+    private final Promise<List<StreamingFetchResponse<R>>> promise;
+    private final List<StreamingFetchResponse<R>> responses;
+
+    private int position;
+
+    BatchRun(Iterable<ImapMessage> messages,
+             Function<ImapMessage, R> messageFunction,
+             List<FetchDataItem> fetchDataItems,
+             Promise<List<StreamingFetchResponse<R>>> promise) throws UnfetchedFieldException {
+      List<ImapMessage> sorted = new ArrayList<>();
+      messages.forEach(sorted::add);
+
+      long[][] uidAndSize = new long[sorted.size()][];
+      for (int i = 0; i < sorted.size(); i++) {
+        uidAndSize[i] = new long[] {sorted.get(i).getUid(), sorted.get(i).getSize()};
+      }
+      Arrays.sort(uidAndSize, (a, b) -> Long.compare(a[0], b[0]));
+
+      this.uids = new long[uidAndSize.length];
+      this.sizes = new long[uidAndSize.length];
+      for (int i = 0; i < uidAndSize.length; i++) {
+        uids[i] = uidAndSize[i][0];
+        sizes[i] = uidAndSize[i][1];
+      }
+
+      this.messageFunction = messageFunction;
+      this.fetchDataItems = fetchDataItems;
+      this.promise = promise;
+      this.responses = new ArrayList<>();
+    }
+
+    @SuppressWarnings("unchecked")
+    void next() {
+      if (position >= uids.length) {
+        promise.trySuccess(responses);
+        return;
+      }
+
+      int messageWindow = window.getMessageWindow();
+      long byteBudget = window.getByteBudget();
+
+      int end = position;
+      long bytes = 0;
+      while (end < uids.length && end - position < messageWindow) {
+        if (end > position && bytes + sizes[end] > byteBudget) {
+          break;
+        }
+
+        bytes += sizes[end];
+        end++;
+      }
+
+      final int batchEnd = end;
+      final int batchCount = end - position;
+      final long batchBytes = bytes;
+      StreamingFetchCommand<R> command = new StreamingFetchCommand<>(uids[position], Optional.of(uids[batchEnd - 1]), messageFunction, fetchDataItems);
+
+      client.send(new UidCommand(ImapCommandType.FETCH, command)).addListener(f -> {
+        if (!f.isSuccess()) {
+          window.onFailure();
+          promise.tryFailure(f.cause());
+          return;
+        }
+
+        StreamingFetchResponse<R> response = ((StreamingFetchResponse<R>) f.getNow());
+        if (response.getCode() != ResponseCode.OK) {
+          window.onFailure();
+          promise.tryFailure(new CommandFailedException(ImapCommandType.FETCH, response.getCode(), response.getMessage()));
+          return;
+        }
+
+        window.onSuccess(System.nanoTime() - command.getWrittenAtNanos(), batchBytes, batchCount);
+        responses.add(response);
+        position = batchEnd;
+
+        next();
+      });
+    }
+  }
+}
@@ -0,0 +1,120 @@
+package com.hubspot.imap.sync;
+
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Preconditions;
+import com.hubspot.imap.ImapConfiguration;
+
+/**
+ * Tracks how many messages (and bytes) to request per FETCH.
+ * <p>
+ * The message window grows additively while batches complete within the target latency, and shrinks multiplicatively
+ * when a batch is slow or fails. The byte budget is the observed throughput multiplied by the target latency, capped by
+ * {@code maxBytesPerBatch}, so a batch of large messages stays well within the socket timeout even if the message
+ * window is large.
+ * <p>
+ * Instances are thread safe and are meant to be kept per account or per host across many fetches.
+ */
+public class AimdBatchWindow {
+  private static final double THROUGHPUT_SMOOTHING = 0.3;
+
+  private final int minMessages;
+  private final int maxMessages;
+  private final int additiveIncrease;
+  private final double multiplicativeDecrease;
+  private final long targetLatencyNanos;
+  private final long maxBytesPerBatch;
+
+  private int messages;
+  private double bytesPerSecond;
+  private long lastLatencyNanos;
+
+  public AimdBatchWindow(int initialMessages,
+                         int minMessages,
+                         int maxMessages,
+                         int additiveIncrease,
+                         double multiplicativeDecrease,
+                         long targetLatency,
+                         TimeUnit targetLatencyUnit,
+                         long maxBytesPerBatch) {
+    Preconditions.checkArgument(minMessages > 0 && minMessages <= maxMessages, "Invalid window bounds [%s, %s]", minMessages, maxMessages);
+    Preconditions.checkArgument(multiplicativeDecrease > 0 && multiplicativeDecrease < 1, "Decrease factor must be between 0 and 1");
+    Preconditions.checkArgument(maxBytesPerBatch > 0, "maxBytesPerBatch must be positive");
+
+    this.minMessages = minMessages;
+    this.maxMessages = maxMessages;
+    this.additiveIncrease = additiveIncrease;
+    this.multiplicativeDecrease = multiplicativeDecrease;
+    this.targetLatencyNanos = targetLatencyUnit.toNanos(targetLatency);
+    this.maxBytesPerBatch = maxBytesPerBatch;
+
+    this.messages = Math.max(minMessages, Math.min(maxMessages, initialMessages));
+  }
+
+  /**
+   * Targets one sixth of the socket timeout per batch, so a batch that is several times slower than
+   * expected still completes before the read timeout closes the connection.
+   */
+  public static AimdBatchWindow forConfiguration(ImapConfiguration configuration) {
+    return new AimdBatchWindow(100, 1, 5000, 25, 0.5, configuration.socketTimeoutMs() / 6, TimeUnit.MILLISECONDS, 32 * 1024 * 1024);
+  }
+
+  public synchronized int getMessageWindow() {
+    return messages;
+  }
+
+  /**
+   * @return the number of bytes a single batch may request. Until a throughput measurement exists this is
+   * {@code maxBytesPerBatch}.
+   */
+  public synchronized long getByteBudget() {
+    if (bytesPerSecond <= 0) {
+      return maxBytesPerBatch;
+    }
+
+    long budget = (long) (bytesPerSecond * targetLatencyNanos / TimeUnit.SECONDS.toNanos(1));
+    return Math.max(1, Math.min(maxBytesPerBatch, budget));
+  }
+
+  public synchronized double getBytesPerSecond() {
+    return bytesPerSecond;
+  }
+
+  public synchronized long getLastLatency(TimeUnit unit) {
+    return unit.convert(lastLatencyNanos, TimeUnit.NANOSECONDS);
+  }
+
+  public synchronized void onSuccess(long latencyNanos, long bytes, int messageCount) {
+    lastLatencyNanos = latencyNanos;
+    if (latencyNanos > 0 && bytes > 0) {
+      double sample = bytes * (double) TimeUnit.SECONDS.toNanos(1) / latencyNanos;
+      bytesPerSecond = bytesPerSecond <= 0 ? sample : bytesPerSecond + THROUGHPUT_SMOOTHING * (sample - bytesPerSecond);
+    }
+
+    if (latencyNanos > targetLatencyNanos) {
+      decrease();
+    } else if (messageCount >= messages) {
+      // Only grow when the window was actually filled, a short tail batch says nothing about capacity
+      messages = Math.min(maxMessages, messages + additiveIncrease);
+    }
+  }
+
+  public synchronized void onFailure() {
+    decrease();
+  }
+
+  private void decrease() {
+    messages = Math.max(minMessages, (int) (messages * multiplicativeDecrease));
+  }
+
+  @Override
+  public synchronized String toString() {
+    return Objects.toStringHelper(this)
+        .add("messages", messages)
+        .add("bytesPerSecond", (long) bytesPerSecond)
+        .add("byteBudget", getByteBudget())
+        .add("lastLatencyMs", TimeUnit.NANOSECONDS.toMillis(lastLatencyNanos))
+        .toString();
+  }
+}
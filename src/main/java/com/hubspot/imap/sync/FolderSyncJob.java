@@ -0,0 +1,120 @@
+package com.hubspot.imap.sync;
+
+import java.util.Optional;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Preconditions;
+import com.hubspot.imap.ImapConfiguration;
+import com.hubspot.imap.client.FolderOpenMode;
+
+public interface FolderSyncJob {
+  int INBOX_PRIORITY = 0;
+  int DEFAULT_PRIORITY = 100;
+
+  String getAccount();
+  String getAuthToken();
+  String getFolderName();
+  FolderOpenMode getOpenMode();
+
+  /**
+   * Lower values are scheduled first. Only jobs for the same account are ordered by priority,
+   * different accounts are always served round robin so no account can starve another.
+   */
+  int getPriority();
+  Optional<ImapConfiguration> getConfiguration();
+  FolderSyncTask getTask();
+
+  static int defaultPriority(String folderName) {
+    return "INBOX".equalsIgnoreCase(folderName) ? INBOX_PRIORITY : DEFAULT_PRIORITY;
+  }
+
+  class Builder implements FolderSyncJob {
+    private String account;
+    private String authToken;
+    private String folderName;
+    private FolderOpenMode openMode = FolderOpenMode.READ;
+    private Optional<Integer> priority = Optional.empty();
+    private Optional<ImapConfiguration> configuration = Optional.empty();
+    private FolderSyncTask task;
+
+    public FolderSyncJob build() {
+      Preconditions.checkNotNull(account, "account is required");
+      Preconditions.checkNotNull(folderName, "folderName is required");
+      Preconditions.checkNotNull(task, "task is required");
+      return this;
+    }
+
+    public String getAccount() {
+      return this.account;
+    }
+
+    public Builder setAccount(String account) {
+      this.account = account;
+      return this;
+    }
+
+    public String getAuthToken() {
+      return this.authToken;
+    }
+
+    public Builder setAuthToken(String authToken) {
+      this.authToken = authToken;
+      return this;
+    }
+
+    public String getFolderName() {
+      return this.folderName;
+    }
+
+    public Builder setFolderName(String folderName) {
+      this.folderName = folderName;
+      return this;
+    }
+
+    public FolderOpenMode getOpenMode() {
+      return this.openMode;
+    }
+
+    public Builder setOpenMode(FolderOpenMode openMode) {
+      this.openMode = openMode;
+      return this;
+    }
+
+    public int getPriority() {
+      return this.priority.orElseGet(() -> defaultPriority(folderName));
+    }
+
+    public Builder setPriority(int priority) {
+      this.priority = Optional.of(priority);
+      return this;
+    }
+
+    public Optional<ImapConfiguration> getConfiguration() {
+      return this.configuration;
+    }
+
+    public Builder setConfiguration(ImapConfiguration configuration) {
+      this.configuration = Optional.of(configuration);
+      return this;
+    }
+
+    public FolderSyncTask getTask() {
+      return this.task;
+    }
+
+    public Builder setTask(FolderSyncTask task) {
+      this.task = task;
+      return this;
+    }
+
+    @Override
+    public String toString() {
+      return Objects.toStringHelper(this)
+          .add("account", account)
+          .add("folderName", folderName)
+          .add("openMode", openMode)
+          .add("priority", getPriority())
+          .toString();
+    }
+  }
+}
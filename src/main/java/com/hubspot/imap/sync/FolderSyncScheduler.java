@@ -0,0 +1,356 @@
+package com.hubspot.imap.sync;
+
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+import com.google.common.net.HostAndPort;
+import com.hubspot.imap.ImapClientFactory;
+import com.hubspot.imap.ImapConfiguration;
+import com.hubspot.imap.client.ImapClient;
+import com.hubspot.imap.protocol.exceptions.FolderOpenFailedException;
+import com.hubspot.imap.protocol.response.ResponseCode;
+import com.hubspot.imap.protocol.response.tagged.OpenResponse;
+
+import io.netty.util.concurrent.EventExecutorGroup;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.Promise;
+
+/**
+ * Runs folder sync jobs for many accounts over a bounded number of connections.
+ * <p>
+ * - Each account may hold at most {@code maxConnectionsPerAccount} connections, and each host at most {@code maxConnectionsPerHost}.
+ * - Jobs for one account run in priority order (INBOX first by default), ties are broken by submission order.
+ * - Accounts are served round robin, so an account with hundreds of folders cannot starve an account with one.
+ * <p>
+ * A connection that finishes a job is handed the next job for the same account, unless another account is waiting
+ * for a connection slot on the same host, in which case the connection is closed and the slot is given up.
+ */
+public class FolderSyncScheduler implements Closeable {
+  private static final Logger LOGGER = LoggerFactory.getLogger(FolderSyncScheduler.class);
+
+  private static final Comparator<ScheduledJob> JOB_ORDER = Comparator.<ScheduledJob>comparingInt(j -> j.job.getPriority())
+      .thenComparingLong(j -> j.sequence);
+
+  private final ImapClientFactory clientFactory;
+  private final EventExecutorGroup promiseExecutor;
+  private final int maxConnectionsPerAccount;
+  private final int maxConnectionsPerHost;
+
+  private final Object lock = new Object();
+  private final Map<String, AccountQueue> accounts;
+  private final ArrayDeque<AccountQueue> readyAccounts;
+  private final Map<HostAndPort, Integer> hostConnections;
+
+  private long sequence;
+  private boolean closed;
+
+  public FolderSyncScheduler(ImapClientFactory clientFactory, int maxConnectionsPerAccount, int maxConnectionsPerHost) {
+    this(clientFactory, clientFactory.getPromiseExecutorGroup(), maxConnectionsPerAccount, maxConnectionsPerHost);
+  }
+
+  /**
+   * @param promiseExecutor completes the futures returned by {@link #submit(FolderSyncJob)}, so their listeners run
+   *                        there. Defaults to the factory's promise executors.
+   */
+  public FolderSyncScheduler(ImapClientFactory clientFactory,
+                             EventExecutorGroup promiseExecutor,
+                             int maxConnectionsPerAccount,
+                             int maxConnectionsPerHost) {
+    Preconditions.checkArgument(maxConnectionsPerAccount > 0, "maxConnectionsPerAccount must be positive");
+    Preconditions.checkArgument(maxConnectionsPerHost > 0, "maxConnectionsPerHost must be positive");
+
+    this.clientFactory = clientFactory;
+    this.promiseExecutor = promiseExecutor;
+    this.maxConnectionsPerAccount = maxConnectionsPerAccount;
+    this.maxConnectionsPerHost = maxConnectionsPerHost;
+
+    this.accounts = new HashMap<>();
+    this.readyAccounts = new ArrayDeque<>();
+    this.hostConnections = new HashMap<>();
+  }
+
+  /**
+   * Queues a job. The returned future completes when the job's task future completes, or fails if the connection,
+   * login or folder open fails.
+   */
+  public Future<Void> submit(FolderSyncJob job) {
+    Promise<Void> promise = promiseExecutor.next().newPromise();
+
+    synchronized (lock) {
+      if (closed) {
+        promise.setFailure(new IllegalStateException("Cannot submit jobs to a closed scheduler."));
+        return promise;
+      }
+
+      AccountQueue account = accounts.computeIfAbsent(job.getAccount(), AccountQueue::new);
+      account.pending.add(new ScheduledJob(job, promise, sequence++));
+      if (!account.ready) {
+        account.ready = true;
+        readyAccounts.add(account);
+      }
+    }
+
+    dispatch();
+    return promise;
+  }
+
+  public SyncProgress getProgress(String account) {
+    synchronized (lock) {
+      AccountQueue queue = accounts.get(account);
+      return queue == null ? new SyncProgress.Builder().build() : queue.progress();
+    }
+  }
+
+  public SyncProgress getProgress() {
+    synchronized (lock) {
+      SyncProgress.Builder total = new SyncProgress.Builder();
+      accounts.values().forEach(a -> total.add(a.progress()));
+      return total.build();
+    }
+  }
+
+  @Override
+  public void close() {
+    List<ScheduledJob> cancelled = new ArrayList<>();
+    synchronized (lock) {
+      closed = true;
+      for (AccountQueue account : accounts.values()) {
+        cancelled.addAll(account.pending);
+        account.pending.clear();
+        account.ready = false;
+      }
+      readyAccounts.clear();
+    }
+
+    cancelled.forEach(j -> j.promise.cancel(false));
+  }
+
+  private void dispatch() {
+    List<Runnable> toStart = new ArrayList<>();
+
+    synchronized (lock) {
+      int blocked = 0;
+      while (!readyAccounts.isEmpty() && blocked < readyAccounts.size()) {
+        AccountQueue account = readyAccounts.poll();
+        ScheduledJob job = account.pending.peek();
+        HostAndPort host = hostFor(job);
+
+        if (account.activeConnections < maxConnectionsPerAccount && connectionsTo(host) < maxConnectionsPerHost) {
+          account.pending.poll();
+          account.activeConnections++;
+          account.running++;
+          hostConnections.merge(host, 1, Integer::sum);
+
+          toStart.add(() -> connect(account, host, job));
+          blocked = 0;
+        } else {
+          blocked++;
+        }
+
+        if (account.pending.isEmpty()) {
+          account.ready = false;
+        } else {
+          readyAccounts.add(account);
+        }
+      }
+    }
+
+    toStart.forEach(Runnable::run);
+  }
+
+  private void connect(AccountQueue account, HostAndPort host, ScheduledJob job) {
+    ImapClient client;
+    try {
+      client = clientFactory.create(account.name, account.name, job.job.getAuthToken(), job.job.getConfiguration());
+    } catch (Exception e) {
+      finish(account, host, null, job, e);
+      return;
+    }
+
+    // Login is only sent once connected, a command queued on a client that never connects would never complete
+    client.connect().addListener(connectFuture -> {
+      if (!connectFuture.isSuccess()) {
+        finish(account, host, client, job, connectFuture.cause());
+        return;
+      }
+
+      client.login().addListener(f -> {
+        if (f.isSuccess()) {
+          run(account, host, client, job);
+        } else {
+          finish(account, host, client, job, f.cause());
+        }
+      });
+    });
+  }
+
+  private void run(AccountQueue account, HostAndPort host, ImapClient client, ScheduledJob job) {
+    String folderName = job.job.getFolderName();
+    client.open(folderName, job.job.getOpenMode()).addListener(openFuture -> {
+      if (!openFuture.isSuccess()) {
+        finish(account, host, client, job, openFuture.cause());
+        return;
+      }
+
+      OpenResponse openResponse = ((OpenResponse) openFuture.getNow());
+      if (openResponse.getCode() != ResponseCode.OK) {
+        finish(account, host, client, job, new FolderOpenFailedException(folderName, openResponse.getMessage()));
+        return;
+      }
+
+      Future<?> syncFuture;
+      try {
+        syncFuture = job.job.getTask().sync(client, openResponse);
+      } catch (Exception e) {
+        finish(account, host, client, job, e);
+        return;
+      }
+
+      if (syncFuture == null) {
+        finish(account, host, client, job, null);
+      } else {
+        syncFuture.addListener(f -> finish(account, host, client, job, f.isSuccess() ? null : f.cause()));
+      }
+    });
+  }
+
+  private void finish(AccountQueue account, HostAndPort host, ImapClient client, ScheduledJob job, Throwable cause) {
+    ScheduledJob next = null;
+
+    synchronized (lock) {
+      if (job.finished) {
+        return;
+      }
+      job.finished = true;
+
+      account.running--;
+      if (cause == null) {
+        account.completed++;
+      } else {
+        account.failed++;
+      }
+
+      if (!closed && cause == null && client != null && client.isLoggedIn()) {
+        ScheduledJob candidate = account.pending.peek();
+        if (candidate != null && canShareConnection(job, candidate) && !hasOtherWaiters(account, host)) {
+          next = account.pending.poll();
+          account.running++;
+
+          if (account.pending.isEmpty()) {
+            account.ready = false;
+            readyAccounts.remove(account);
+          }
+        }
+      }
+
+      if (next == null) {
+        account.activeConnections--;
+        hostConnections.merge(host, -1, Integer::sum);
+      }
+    }
+
+    if (cause == null) {
+      job.promise.trySuccess(null);
+    } else {
+      LOGGER.debug("Sync of {} for {} failed", job.job.getFolderName(), account.name, cause);
+      job.promise.tryFailure(cause);
+    }
+
+    if (next != null) {
+      run(account, host, client, next);
+      return;
+    }
+
+    if (client != null) {
+      client.closeAsync();
+    }
+
+    dispatch();
+  }
+
+  private boolean hasOtherWaiters(AccountQueue self, HostAndPort host) {
+    if (connectionsTo(host) < maxConnectionsPerHost) {
+      return false;
+    }
+
+    for (AccountQueue account : readyAccounts) {
+      if (account != self && account.activeConnections < maxConnectionsPerAccount && hostFor(account.pending.peek()).equals(host)) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  private int connectionsTo(HostAndPort host) {
+    return hostConnections.getOrDefault(host, 0);
+  }
+
+  private HostAndPort hostFor(ScheduledJob job) {
+    return configurationFor(job).hostAndPort();
+  }
+
+  private ImapConfiguration configurationFor(ScheduledJob job) {
+    return job.job.getConfiguration().orElse(clientFactory.getConfiguration());
+  }
+
+  /**
+   * A connection is logged in with its first job's token and configured with its configuration, so a later job can
+   * only run on it if both match.
+   */
+  private boolean canShareConnection(ScheduledJob finished, ScheduledJob candidate) {
+    return Objects.equals(finished.job.getAuthToken(), candidate.job.getAuthToken())
+        && configurationFor(finished).equals(configurationFor(candidate));
+  }
+
+  private static final class AccountQueue {
+    private final String name;
+    private final PriorityQueue<ScheduledJob> pending;
+
+    private boolean ready;
+    private int activeConnections;
+    private long running;
+    private long completed;
+    private long failed;
+
+    AccountQueue(String name) {
+      this.name = name;
+      this.pending = new PriorityQueue<>(JOB_ORDER);
+    }
+
+    SyncProgress progress() {
+      return new SyncProgress.Builder()
+          .setQueued(pending.size())
+          .setRunning(running)
+          .setCompleted(completed)
+          .setFailed(failed)
+          .setActiveConnections(activeConnections)
+          .build();
+    }
+  }
+
+  private static final class ScheduledJob {
+    private final FolderSyncJob job;
+    private final Promise<Void> promise;
+    private final long sequence;
+
+    private boolean finished;
+
+    ScheduledJob(FolderSyncJob job, Promise<Void> promise, long sequence) {
+      this.job = job;
+      this.promise = promise;
+      this.sequence = sequence;
+    }
+  }
+}
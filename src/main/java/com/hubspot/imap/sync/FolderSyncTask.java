@@ -0,0 +1,15 @@
+package com.hubspot.imap.sync;
+
+import com.hubspot.imap.client.ImapClient;
+import com.hubspot.imap.protocol.response.tagged.OpenResponse;
+
+import io.netty.util.concurrent.Future;
+
+/**
+ * The work to run once a folder has been opened. The scheduler considers the job finished
+ * (and frees up its connection) when the returned future completes.
+ */
+@FunctionalInterface
+public interface FolderSyncTask {
+  Future<?> sync(ImapClient client, OpenResponse openResponse) throws Exception;
+}
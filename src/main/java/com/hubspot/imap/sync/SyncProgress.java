@@ -0,0 +1,88 @@
+package com.hubspot.imap.sync;
+
+import com.google.common.base.Objects;
+
+public interface SyncProgress {
+  long getQueued();
+  long getRunning();
+  long getCompleted();
+  long getFailed();
+  int getActiveConnections();
+
+  class Builder implements SyncProgress {
+    private long queued;
+    private long running;
+    private long completed;
+    private long failed;
+    private int activeConnections;
+
+    public SyncProgress build() {
+      return this;
+    }
+
+    Builder add(SyncProgress other) {
+      this.queued += other.getQueued();
+      this.running += other.getRunning();
+      this.completed += other.getCompleted();
+      this.failed += other.getFailed();
+      this.activeConnections += other.getActiveConnections();
+      return this;
+    }
+
+    public long getQueued() {
+      return this.queued;
+    }
+
+    public Builder setQueued(long queued) {
+      this.queued = queued;
+      return this;
+    }
+
+    public long getRunning() {
+      return this.running;
+    }
+
+    public Builder setRunning(long running) {
+      this.running = running;
+      return this;
+    }
+
+    public long getCompleted() {
+      return this.completed;
+    }
+
+    public Builder setCompleted(long completed) {
+      this.completed = completed;
+      return this;
+    }
+
+    public long getFailed() {
+      return this.failed;
+    }
+
+    public Builder setFailed(long failed) {
+      this.failed = failed;
+      return this;
+    }
+
+    public int getActiveConnections() {
+      return this.activeConnections;
+    }
+
+    public Builder setActiveConnections(int activeConnections) {
+      this.activeConnections = activeConnections;
+      return this;
+    }
+
+    @Override
+    public String toString() {
+      return Objects.toStringHelper(this)
+          .add("queued", queued)
+          .add("running", running)
+          .add("completed", completed)
+          .add("failed", failed)
+          .add("activeConnections", activeConnections)
+          .toString();
+    }
+  }
+}
@@ -0,0 +1,191 @@
+package com.hubspot.imap.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A reusable view of the bytes of a single token read off the wire. Parsers fill one of these instead of building a
+ * String, so tokens that are only compared or dispatched on (response keywords, status codes, fetch item names,
+ * numbers) never allocate. Call {@link #toString()} only for values that are kept.
+ * <p>
+ * Each byte is one char, the same as the {@code (char) readUnsignedByte()} the parsers have always done, so
+ * {@link #toString()} returns exactly what the String based parsers returned.
+ * <p>
+ * A token belongs to the parser that filled it and is overwritten by that parser's next call.
+ */
+public final class AsciiToken implements CharSequence {
+  private static final int DEFAULT_CAPACITY = 32;
+
+  private byte[] bytes;
+  private int length;
+
+  public AsciiToken() {
+    this.bytes = new byte[DEFAULT_CAPACITY];
+  }
+
+  public AsciiToken(CharSequence value) {
+    this.bytes = new byte[Math.max(DEFAULT_CAPACITY, value.length())];
+    for (int i = 0; i < value.length(); i++) {
+      append(((byte) value.charAt(i)));
+    }
+  }
+
+  public AsciiToken reset() {
+    length = 0;
+    return this;
+  }
+
+  public AsciiToken append(byte value) {
+    if (length == bytes.length) {
+      bytes = Arrays.copyOf(bytes, bytes.length << 1);
+    }
+
+    bytes[length++] = value;
+    return this;
+  }
+
+  public boolean isEmpty() {
+    return length == 0;
+  }
+
+  public byte byteAt(int index) {
+    if (index >= length) {
+      throw new IndexOutOfBoundsException("index: " + index + ", length: " + length);
+    }
+
+    return bytes[index];
+  }
+
+  @Override
+  public int length() {
+    return length;
+  }
+
+  @Override
+  public char charAt(int index) {
+    return (char) (byteAt(index) & 0xFF);
+  }
+
+  @Override
+  public CharSequence subSequence(int start, int end) {
+    return toString().subSequence(start, end);
+  }
+
+  public boolean isDigits() {
+    if (length == 0) {
+      return false;
+    }
+
+    for (int i = 0; i < length; i++) {
+      if (bytes[i] < '0' || bytes[i] > '9') {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Same contract as {@link Long#parseLong(String)} for unsigned decimal numbers, without building the String.
+   */
+  public long parseLong() {
+    if (!isDigits()) {
+      throw new NumberFormatException("For input string: \"" + toString() + "\"");
+    }
+
+    long result = 0;
+    for (int i = 0; i < length; i++) {
+      int digit = bytes[i] - '0';
+      if (result > (Long.MAX_VALUE - digit) / 10) {
+        throw new NumberFormatException("For input string: \"" + toString() + "\"");
+      }
+
+      result = result * 10 + digit;
+    }
+
+    return result;
+  }
+
+  public boolean contentEquals(CharSequence other) {
+    if (other.length() != length) {
+      return false;
+    }
+
+    for (int i = 0; i < length; i++) {
+      if ((bytes[i] & 0xFF) != other.charAt(i)) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  public boolean contentEqualsIgnoreCase(CharSequence other) {
+    return equalsIgnoreCase(this, other);
+  }
+
+  /**
+   * {@link String#equalsIgnoreCase(String)} for any two char sequences, only folding ASCII letters.
+   */
+  public static boolean equalsIgnoreCase(CharSequence first, CharSequence second) {
+    if (first.length() != second.length()) {
+      return false;
+    }
+
+    for (int i = 0; i < first.length(); i++) {
+      char a = first.charAt(i);
+      char b = second.charAt(i);
+      if (a != b && toUpperCase(a) != toUpperCase(b)) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  private static char toUpperCase(char c) {
+    return c >= 'a' && c <= 'z' ? (char) (c - ('a' - 'A')) : c;
+  }
+
+  /**
+   * Equal to another token with the same bytes. The hash code is the same as that of the equivalent String.
+   */
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+
+    if (!(o instanceof AsciiToken)) {
+      return false;
+    }
+
+    AsciiToken other = (AsciiToken) o;
+    if (other.length != length) {
+      return false;
+    }
+
+    for (int i = 0; i < length; i++) {
+      if (bytes[i] != other.bytes[i]) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  @Override
+  public int hashCode() {
+    int hash = 0;
+    for (int i = 0; i < length; i++) {
+      hash = 31 * hash + (bytes[i] & 0xFF);
+    }
+
+    return hash;
+  }
+
+  @Override
+  public String toString() {
+    return new String(bytes, 0, length, StandardCharsets.ISO_8859_1);
+  }
+}
@@ -1,6 +1,9 @@
 package com.hubspot.imap.utils;
 
+import java.util.Optional;
+
 import com.hubspot.imap.protocol.command.ImapCommand;
+import com.hubspot.imap.protocol.command.fetch.FlagSyncCommand;
 import com.hubspot.imap.protocol.command.fetch.StreamingFetchCommand;
 import com.hubspot.imap.protocol.command.fetch.UidCommand;
 
@@ -10,4 +13,22 @@ public class CommandUtils {
     return imapCommand instanceof StreamingFetchCommand ||
         (imapCommand instanceof UidCommand && ((UidCommand) imapCommand).getWrappedCommand() instanceof StreamingFetchCommand);
   }
+
+  public static Optional<FlagSyncCommand> getFlagSyncCommand(ImapCommand imapCommand) {
+    ImapCommand command = imapCommand instanceof UidCommand ? ((UidCommand) imapCommand).getWrappedCommand() : imapCommand;
+    if (command instanceof FlagSyncCommand) {
+      return Optional.of(((FlagSyncCommand) command));
+    }
+
+    return Optional.empty();
+  }
+
+  public static Optional<StreamingFetchCommand<?>> getStreamingFetchCommand(ImapCommand imapCommand) {
+    ImapCommand command = imapCommand instanceof UidCommand ? ((UidCommand) imapCommand).getWrappedCommand() : imapCommand;
+    if (command instanceof StreamingFetchCommand) {
+      return Optional.of(((StreamingFetchCommand<?>) command));
+    }
+
+    return Optional.empty();
+  }
 }
@@ -0,0 +1,114 @@
+package com.hubspot.imap.utils;
+
+import java.lang.reflect.Array;
+import java.util.function.Function;
+
+/**
+ * A perfect hash from protocol keywords to enum constants, matched without regard to ASCII case. Lookups hash the
+ * characters of the token directly, so an {@link AsciiToken} is dispatched without building a String or walking a
+ * tree, and cost one hash, one array read and one comparison.
+ * <p>
+ * The index is sized when it is built so that no two keywords share a slot.
+ */
+public final class EnumKeywordIndex<E extends Enum<E>> {
+  private static final int MAX_SIZE = 1 << 16;
+
+  private final String[] keys;
+  private final E[] values;
+  private final E missing;
+  private final int mask;
+  private final int maxLength;
+
+  /**
+   * @param constants all constants of the enum, usually {@code values()}
+   * @param keyword   the keyword a constant is matched by
+   * @param missing   returned for tokens that are not a keyword, and never itself matched
+   */
+  public EnumKeywordIndex(E[] constants, Function<E, String> keyword, E missing) {
+    this.missing = missing;
+
+    int size = Integer.highestOneBit(Math.max(constants.length, 1)) << 1;
+    String[] keys;
+    E[] values;
+    while (true) {
+      if (size > MAX_SIZE) {
+        throw new IllegalArgumentException("Could not build a perfect hash for " + constants[0].getDeclaringClass());
+      }
+
+      keys = new String[size];
+      values = newArray(constants, size);
+      if (fill(constants, keyword, keys, values)) {
+        break;
+      }
+
+      size <<= 1;
+    }
+
+    int maxLength = 0;
+    for (String key : keys) {
+      maxLength = key == null ? maxLength : Math.max(maxLength, key.length());
+    }
+
+    this.keys = keys;
+    this.values = values;
+    this.mask = size - 1;
+    this.maxLength = maxLength;
+  }
+
+  private boolean fill(E[] constants, Function<E, String> keyword, String[] keys, E[] values) {
+    for (E constant : constants) {
+      if (constant == missing) {
+        continue;
+      }
+
+      String key = keyword.apply(constant);
+      int slot = hash(key) & (keys.length - 1);
+      if (keys[slot] != null) {
+        return false;
+      }
+
+      keys[slot] = key;
+      values[slot] = constant;
+    }
+
+    return true;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <E> E[] newArray(E[] like, int size) {
+    return (E[]) Array.newInstance(like.getClass().getComponentType(), size);
+  }
+
+  public E get(CharSequence token) {
+    int length = token.length();
+    if (length == 0 || length > maxLength) {
+      return missing;
+    }
+
+    int slot = hash(token) & mask;
+    String key = keys[slot];
+    if (key == null || !AsciiToken.equalsIgnoreCase(key, token)) {
+      return missing;
+    }
+
+    return values[slot];
+  }
+
+  public int getMaxLength() {
+    return maxLength;
+  }
+
+  private static int hash(CharSequence token) {
+    int hash = token.length();
+    for (int i = 0; i < token.length(); i++) {
+      char c = token.charAt(i);
+      if (c >= 'a' && c <= 'z') {
+        c -= 'a' - 'A';
+      }
+
+      hash = 31 * hash + c;
+    }
+
+    return hash ^ (hash >>> 16);
+  }
+}
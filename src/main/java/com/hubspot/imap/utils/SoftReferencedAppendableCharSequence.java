@@ -18,10 +18,9 @@ public class SoftReferencedAppendableCharSequence {
     AppendableCharSequence sequence = reference.get();
     if (sequence == null) {
       sequence = newCharSeq();
+      reference = new SoftReference<>(sequence);
     }
 
-    reference = new SoftReference<>(sequence);
-
     return sequence;
   }
 
@@ -1,46 +1,44 @@
 package com.hubspot.imap.utils.parsers;
 
-import com.hubspot.imap.utils.SoftReferencedAppendableCharSequence;
+import com.hubspot.imap.utils.AsciiToken;
 import io.netty.buffer.ByteBuf;
 import io.netty.handler.codec.TooLongFrameException;
-import io.netty.util.internal.AppendableCharSequence;
 
-public class FetchResponseTypeParser implements ByteBufParser<String> {
-  private final SoftReferencedAppendableCharSequence sequenceRef;
+public class FetchResponseTypeParser implements ByteBufParser<AsciiToken> {
+  private final AsciiToken token;
   private final int maxWordLength;
-  private int size = 0;
 
-  public FetchResponseTypeParser(SoftReferencedAppendableCharSequence sequenceRef, int maxWordLength) {
-    this.sequenceRef = sequenceRef;
+  public FetchResponseTypeParser(int maxWordLength) {
+    this.token = new AsciiToken();
     this.maxWordLength = maxWordLength;
   }
 
+  /**
+   * @return the name of the next fetch item, valid until the next call to this parser.
+   */
   @Override
-  public String parse(ByteBuf in) {
-    AppendableCharSequence seq = sequenceRef.get();
-
-    seq.reset();
-    size = 0;
+  public AsciiToken parse(ByteBuf in) {
+    token.reset();
     for (;;) {
-      char nextByte = (char) in.readUnsignedByte();
+      byte value = in.readByte();
+      char nextByte = (char) (value & 0xFF);
       if (Character.isWhitespace(nextByte)) {
-        if (size > 0) {
+        if (!token.isEmpty()) {
           break;
         }
       } else if (!Character.isLetterOrDigit(nextByte) && nextByte != '.' && nextByte != '-') {
         in.readerIndex(in.readerIndex() - 1);
         break;
       } else {
-        if (size >= maxWordLength) {
+        if (token.length() >= maxWordLength) {
           throw new TooLongFrameException(
               "Word is larger than " + maxWordLength +
                   " bytes.");
         }
-        size++;
-        seq.append(nextByte);
+        token.append(value);
       }
     }
 
-    return seq.toString();
+    return token;
   }
 }
@@ -1,35 +1,33 @@
 package com.hubspot.imap.utils.parsers;
 
-import com.hubspot.imap.utils.SoftReferencedAppendableCharSequence;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufProcessor;
 import io.netty.handler.codec.TooLongFrameException;
-import io.netty.util.internal.AppendableCharSequence;
 
+/**
+ * Reads an unsigned decimal number, skipping leading whitespace. Digits are accumulated straight into the result
+ * rather than buffered and handed to {@link Long#parseLong(String)}.
+ */
 public class NumberParser implements ByteBufProcessor {
   private final int maxLength;
-  private final SoftReferencedAppendableCharSequence sequenceRef;
   private int size = 0;
+  private long value;
 
-  private AppendableCharSequence seq;
-
-  public NumberParser(SoftReferencedAppendableCharSequence sequenceRef, int maxLength) {
-    this.sequenceRef = sequenceRef;
+  public NumberParser(int maxLength) {
     this.maxLength = maxLength;
   }
 
   public long parse(ByteBuf in) {
-    seq = sequenceRef.get();
-
-    seq.reset();
     size = 0;
+    value = 0;
     int i = in.forEachByte(this);
     in.readerIndex(i);
 
-    Long result = Long.parseLong(seq.toString());
-    seq = null;
+    if (size == 0) {
+      throw new NumberFormatException("Expected a number");
+    }
 
-    return result;
+    return value;
   }
 
   @Override
@@ -37,7 +35,7 @@ public class NumberParser implements ByteBufProcessor {
     char nextByte = (char) value;
     if (Character.isWhitespace(nextByte)) {
       return size == 0;
-    } else if (!Character.isDigit(nextByte)) {
+    } else if (nextByte < '0' || nextByte > '9') {
       return false;
     } else {
       if (size >= maxLength) {
@@ -46,7 +44,12 @@ public class NumberParser implements ByteBufProcessor {
                 " bytes.");
       }
 
-      seq.append(nextByte);
+      int digit = nextByte - '0';
+      if (this.value > (Long.MAX_VALUE - digit) / 10) {
+        throw new NumberFormatException("Number does not fit in a long");
+      }
+
+      this.value = this.value * 10 + digit;
       size++;
       return true;
     }
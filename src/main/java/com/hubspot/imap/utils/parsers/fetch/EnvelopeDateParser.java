@@ -0,0 +1,284 @@
+package com.hubspot.imap.utils.parsers.fetch;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.TemporalAccessor;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Parses the date of an envelope, an RFC 2822/5322 date-time such as "Tue, 21 Jul 2015 13:48:07 -0400".
+ * <p>
+ * The common shapes are read with a single scan: an optional day name, the day, month and year, the time with or
+ * without seconds, then a numeric offset, one of the RFC 822 zone names or nothing (taken as UTC). Runs of whitespace
+ * and comments such as "(GMT)" are skipped, names are matched without regard to case and two digit years are
+ * accepted. Anything else goes to the {@link DateTimeFormatter} this class replaces, so the inputs that parsed before
+ * still parse.
+ * <p>
+ * Mailing lists and threads repeat the same Date header, so recent results are kept in a small cache.
+ */
+public final class EnvelopeDateParser {
+  static final DateTimeFormatter RFC2822_FORMATTER = DateTimeFormatter.ofPattern("[EEE, ]d MMM yyyy H:m:s[ zzz][ Z][ (z)]").withLocale(Locale.US);
+
+  private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+  private static final ZoneId UTC = ZoneId.of("UTC");
+
+  private static final String[] MONTHS = {"JAN", "FEB", "MAR", "APR", "MAY", "JUN", "JUL", "AUG", "SEP", "OCT", "NOV", "DEC"};
+  private static final String[] DAYS = {"MON", "TUE", "WED", "THU", "FRI", "SAT", "SUN"};
+
+  // The zone names of RFC 822, obsolete in RFC 5322 but still common
+  private static final String[] ZONE_NAMES = {"UT", "UTC", "GMT", "Z", "EST", "EDT", "CST", "CDT", "MST", "MDT", "PST", "PDT"};
+  private static final ZoneOffset[] ZONE_OFFSETS = {
+      ZoneOffset.UTC, ZoneOffset.UTC, ZoneOffset.UTC, ZoneOffset.UTC,
+      ZoneOffset.ofHours(-5), ZoneOffset.ofHours(-4),
+      ZoneOffset.ofHours(-6), ZoneOffset.ofHours(-5),
+      ZoneOffset.ofHours(-7), ZoneOffset.ofHours(-6),
+      ZoneOffset.ofHours(-8), ZoneOffset.ofHours(-7)
+  };
+
+  private static final int CACHE_SIZE = 256;
+  private static final CacheEntry[] CACHE = new CacheEntry[CACHE_SIZE];
+
+  private EnvelopeDateParser() {}
+
+  /**
+   * @throws DateTimeParseException if the input is not a date
+   */
+  public static ZonedDateTime parse(String in) {
+    int slot = (in.hashCode() ^ (in.hashCode() >>> 16)) & (CACHE_SIZE - 1);
+    CacheEntry entry = CACHE[slot];
+    if (entry != null && entry.key.equals(in)) {
+      return entry.value;
+    }
+
+    ZonedDateTime date = parseUncached(in);
+    CACHE[slot] = new CacheEntry(in, date);
+    return date;
+  }
+
+  public static ZonedDateTime parseUncached(String in) {
+    ZonedDateTime date = new Scanner(in).parse();
+    if (date != null) {
+      return date;
+    }
+
+    return parseWithFormatter(in);
+  }
+
+  /**
+   * The original formatter based parser, used for the inputs the scanner does not handle.
+   */
+  public static ZonedDateTime parseWithFormatter(String in) {
+    in = WHITESPACE.matcher(in).replaceAll(" ");
+
+    TemporalAccessor temporalAccessor = RFC2822_FORMATTER.parseBest(in, ZonedDateTime::from, LocalDateTime::from, LocalDate::from);
+    if (temporalAccessor instanceof LocalDateTime) {
+      return ((LocalDateTime) temporalAccessor).atZone(UTC);
+    } else if (temporalAccessor instanceof LocalDate) {
+      return ((LocalDate) temporalAccessor).atStartOfDay(UTC);
+    }
+    return ((ZonedDateTime) temporalAccessor);
+  }
+
+  private static final class CacheEntry {
+    private final String key;
+    private final ZonedDateTime value;
+
+    private CacheEntry(String key, ZonedDateTime value) {
+      this.key = key;
+      this.value = value;
+    }
+  }
+
+  /**
+   * Each step returns -1 (or null) as soon as the input stops looking like a date.
+   */
+  private static final class Scanner {
+    private final String in;
+    private int pos;
+
+    private Scanner(String in) {
+      this.in = in;
+    }
+
+    private ZonedDateTime parse() {
+      skipCfws();
+      if (pos < in.length() && isLetter(in.charAt(pos))) {
+        int dayStart = pos;
+        if (indexOfPrefix(DAYS, dayStart, readWord()) < 0) {
+          return null;
+        }
+
+        skipCfws();
+        if (pos < in.length() && in.charAt(pos) == ',') {
+          pos++;
+          skipCfws();
+        }
+      }
+
+      int day = readNumber(1, 2);
+      skipCfws();
+      int monthStart = pos;
+      int month = indexOfPrefix(MONTHS, monthStart, readWord()) + 1;
+      skipCfws();
+      int yearStart = pos;
+      int year = readNumber(2, 4);
+      int yearDigits = pos - yearStart;
+      skipCfws();
+      int hour = readNumber(1, 2);
+      int minute = expect(':') ? readNumber(1, 2) : -1;
+      int second = 0;
+      if (pos < in.length() && in.charAt(pos) == ':') {
+        pos++;
+        second = readNumber(1, 2);
+      }
+
+      if (day < 0 || month <= 0 || year < 0 || hour < 0 || minute < 0 || second < 0) {
+        return null;
+      }
+
+      if (yearDigits == 2) {
+        year += year < 50 ? 2000 : 1900;
+      } else if (yearDigits == 3) {
+        year += 1900;
+      }
+
+      ZoneId zone = readZone();
+      skipCfws();
+      if (zone == null || pos != in.length()) {
+        return null;
+      }
+
+      try {
+        return ZonedDateTime.of(year, month, day, hour, minute, second, 0, zone);
+      } catch (DateTimeException e) {
+        return null;
+      }
+    }
+
+    private ZoneId readZone() {
+      skipCfws();
+      if (pos == in.length()) {
+        return UTC;
+      }
+
+      char c = in.charAt(pos);
+      if (c == '+' || c == '-') {
+        pos++;
+        int start = pos;
+        int offset = readNumber(4, 4);
+        if (offset < 0 || pos - start != 4) {
+          return null;
+        }
+
+        int hours = offset / 100;
+        int minutes = offset % 100;
+        if (hours > 18 || minutes > 59) {
+          return null;
+        }
+
+        int seconds = (hours * 3600 + minutes * 60) * (c == '-' ? -1 : 1);
+        return ZoneOffset.ofTotalSeconds(seconds);
+      }
+
+      int start = pos;
+      int length = readWord();
+      for (int i = 0; i < ZONE_NAMES.length; i++) {
+        if (ZONE_NAMES[i].length() == length && in.regionMatches(true, start, ZONE_NAMES[i], 0, length)) {
+          return ZONE_OFFSETS[i];
+        }
+      }
+
+      return null;
+    }
+
+    private boolean expect(char c) {
+      if (pos < in.length() && in.charAt(pos) == c) {
+        pos++;
+        return true;
+      }
+
+      return false;
+    }
+
+    private int readNumber(int minDigits, int maxDigits) {
+      int value = 0;
+      int digits = 0;
+      while (pos < in.length() && digits < maxDigits) {
+        char c = in.charAt(pos);
+        if (c < '0' || c > '9') {
+          break;
+        }
+
+        value = value * 10 + (c - '0');
+        digits++;
+        pos++;
+      }
+
+      if (digits < minDigits || (pos < in.length() && isDigit(in.charAt(pos)))) {
+        return -1;
+      }
+
+      return value;
+    }
+
+    /**
+     * @return the number of letters skipped
+     */
+    private int readWord() {
+      int start = pos;
+      while (pos < in.length() && isLetter(in.charAt(pos))) {
+        pos++;
+      }
+
+      return pos - start;
+    }
+
+    private void skipCfws() {
+      int depth = 0;
+      while (pos < in.length()) {
+        char c = in.charAt(pos);
+        if (c == '(') {
+          depth++;
+        } else if (c == ')' && depth > 0) {
+          depth--;
+        } else if (depth == 0 && !Character.isWhitespace(c)) {
+          return;
+        }
+
+        pos++;
+      }
+    }
+
+    /**
+     * Matches abbreviations and full names alike ("Jul", "July"), by their first three letters.
+     */
+    private int indexOfPrefix(String[] names, int start, int length) {
+      if (length < 3) {
+        return -1;
+      }
+
+      for (int i = 0; i < names.length; i++) {
+        if (in.regionMatches(true, start, names[i], 0, 3)) {
+          return i;
+        }
+      }
+
+      return -1;
+    }
+
+    private static boolean isLetter(char c) {
+      return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static boolean isDigit(char c) {
+      return c >= '0' && c <= '9';
+    }
+  }
+}
@@ -6,26 +6,268 @@ import com.hubspot.imap.protocol.message.Envelope;
 import com.hubspot.imap.protocol.message.ImapAddress;
 import com.hubspot.imap.protocol.message.ImapAddress.Builder;
 import com.hubspot.imap.utils.NilMarker;
+import com.hubspot.imap.utils.parsers.ByteBufParser;
+import io.netty.buffer.ByteBuf;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.time.LocalDate;
-import java.time.LocalDateTime;
-import java.time.ZoneId;
 import java.time.ZonedDateTime;
-import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
-import java.time.temporal.TemporalAccessor;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.Locale;
 import java.util.stream.Collectors;
 
 public class EnvelopeParser {
   private static final Logger LOGGER = LoggerFactory.getLogger(EnvelopeParser.class);
 
-  static final DateTimeFormatter RFC2822_FORMATTER = DateTimeFormatter.ofPattern("[EEE, ]d MMM yyyy H:m:s[ zzz][ Z][ (z)]").withLocale(Locale.US);
+  private static final char LPAREN = '(';
+  private static final char RPAREN = ')';
+
+  /**
+   * Date, subject, from, sender, reply-to, to, cc, bcc, in-reply-to and message-id.
+   */
+  public static final int FIELD_COUNT = 10;
+
+  private final ByteBufParser<String> stringParser;
+
+  /**
+   * A parser for envelopes that were already read into nested lists, see {@link #parse(List)}.
+   */
+  public EnvelopeParser() {
+    this(null);
+  }
+
+  /**
+   * @param stringParser reads the quoted strings and literals of an envelope, see {@link #parse(ByteBuf)}
+   */
+  public EnvelopeParser(ByteBufParser<String> stringParser) {
+    this.stringParser = stringParser;
+  }
+
+  /**
+   * Reads an envelope straight from the buffer in a single pass, without building the nested lists
+   * {@link #parse(List)} takes. Leading whitespace is skipped, the closing parenthesis is consumed.
+   */
+  public Envelope parse(ByteBuf in) {
+    expect(in, LPAREN);
+
+    String dateString = readNString(in);
+    String subject = readNString(in);
+
+    List<ImapAddress> from = readAddresses(in);
+    List<ImapAddress> sender = readAddresses(in);
+    List<ImapAddress> replyTo = readAddresses(in);
+    List<ImapAddress> to = readAddresses(in);
+    List<ImapAddress> cc = readAddresses(in);
+    List<ImapAddress> bcc = readAddresses(in);
+
+    String inReplyTo = readNString(in);
+    String messageId = readNString(in);
+
+    expect(in, RPAREN);
+
+    return build(dateString, subject, from, sender, replyTo, to, cc, bcc, inReplyTo, messageId);
+  }
+
+  /**
+   * Reads a parenthesized list of addresses, or NIL as an empty list.
+   */
+  public List<ImapAddress> readAddresses(ByteBuf in) {
+    List<ImapAddress> addresses = new ArrayList<>();
+    if (readNil(in)) {
+      return addresses;
+    }
+
+    expect(in, LPAREN);
+    for (;;) {
+      byte next = peek(in);
+      if (next == RPAREN) {
+        in.skipBytes(1);
+        return addresses;
+      } else if (next == LPAREN) {
+        addresses.add(readAddress(in));
+      } else if (!readNil(in)) {
+        throw new IllegalStateException(String.format("Expected an address, found '%c'", ((char) next)));
+      }
+    }
+  }
+
+  private ImapAddress readAddress(ByteBuf in) {
+    expect(in, LPAREN);
+    String personal = readNString(in);
+    readNString(in); // The SMTP at-domain-list is ignored
+    String mailbox = readNString(in);
+    String host = readNString(in);
+    expect(in, RPAREN);
+
+    ImapAddress.Builder address = new ImapAddress.Builder().setAddress(joinAddress(mailbox, host));
+    if (personal != null) {
+      address.setPersonal(personal);
+    }
+
+    return address.build();
+  }
+
+  /**
+   * Finds the end of the envelope at the reader index without decoding it, for {@link
+   * com.hubspot.imap.protocol.message.LazyEnvelope}. Leading whitespace is skipped, nothing else is read.
+   *
+   * @param fieldOffsets filled with the offset of each of the {@link #FIELD_COUNT} fields from the opening parenthesis
+   * @return the length of the envelope, including both parentheses
+   */
+  public static int scan(ByteBuf in, int[] fieldOffsets) {
+    peek(in);
+
+    int start = in.readerIndex();
+    if (in.getByte(start) != LPAREN) {
+      throw new IllegalStateException(String.format("Expected '(' in envelope, found '%c'", ((char) in.getByte(start))));
+    }
+
+    int index = start + 1;
+    int depth = 1;
+    int field = 0;
+    while (depth > 0) {
+      byte next = in.getByte(index);
+      if (Character.isWhitespace(next)) {
+        index++;
+        continue;
+      }
+
+      if (next == RPAREN) {
+        depth--;
+        index++;
+        continue;
+      }
+
+      if (depth == 1) {
+        if (field == FIELD_COUNT) {
+          throw new IllegalStateException("Envelope has more than " + FIELD_COUNT + " fields");
+        }
+
+        fieldOffsets[field++] = index - start;
+      }
+
+      if (next == LPAREN) {
+        depth++;
+        index++;
+      } else if (next == '"') {
+        index = skipQuoted(in, index);
+      } else if (next == '{') {
+        index = skipLiteral(in, index);
+      } else {
+        index = skipAtom(in, index);
+      }
+    }
+
+    if (field != FIELD_COUNT) {
+      throw new IllegalStateException("Envelope has " + field + " fields, expected " + FIELD_COUNT);
+    }
+
+    return index - start;
+  }
+
+  private static int skipQuoted(ByteBuf in, int index) {
+    index++;
+    for (;;) {
+      byte next = in.getByte(index++);
+      if (next == '\\') {
+        index++;
+      } else if (next == '"') {
+        return index;
+      }
+    }
+  }
+
+  private static int skipLiteral(ByteBuf in, int index) {
+    index++;
+    int size = 0;
+    for (;;) {
+      byte next = in.getByte(index++);
+      if (next == '}') {
+        break;
+      } else if (next < '0' || next > '9') {
+        throw new IllegalStateException(String.format("Unexpected '%c' in literal size", ((char) next)));
+      }
+
+      size = size * 10 + (next - '0');
+    }
+
+    return index + 2 + size; // CRLF, then the literal
+  }
+
+  private static int skipAtom(ByteBuf in, int index) {
+    for (;;) {
+      byte next = in.getByte(index);
+      if (Character.isWhitespace(next) || next == LPAREN || next == RPAREN) {
+        return index;
+      }
+
+      index++;
+    }
+  }
+
+  private static String joinAddress(String mailbox, String host) {
+    if (mailbox == null) {
+      return host == null ? "" : host;
+    }
+
+    return host == null ? mailbox : mailbox + "@" + host;
+  }
+
+  /**
+   * Reads a string, literal or NIL as null.
+   */
+  public String readNString(ByteBuf in) {
+    if (readNil(in)) {
+      return null;
+    }
+
+    return stringParser.parse(in);
+  }
+
+  /**
+   * Skips whitespace, then consumes NIL if it comes next.
+   */
+  private static boolean readNil(ByteBuf in) {
+    peek(in);
+
+    int index = in.readerIndex();
+    if ((in.getByte(index) | 0x20) != 'n' || (in.getByte(index + 1) | 0x20) != 'i' || (in.getByte(index + 2) | 0x20) != 'l') {
+      return false;
+    }
+
+    byte after = in.getByte(index + 3);
+    if (!Character.isWhitespace(after) && after != LPAREN && after != RPAREN) {
+      return false;
+    }
+
+    in.skipBytes(3);
+    return true;
+  }
+
+  /**
+   * Skips whitespace and returns the next byte without reading it.
+   */
+  private static byte peek(ByteBuf in) {
+    for (;;) {
+      byte next = in.getByte(in.readerIndex());
+      if (!Character.isWhitespace(next)) {
+        return next;
+      }
+
+      in.skipBytes(1);
+    }
+  }
+
+  private static void expect(ByteBuf in, char expected) {
+    byte next = peek(in);
+    if (next != expected) {
+      throw new IllegalStateException(String.format("Expected '%c' in envelope, found '%c'", expected, ((char) next)));
+    }
+
+    in.skipBytes(1);
+  }
 
   /**
    * This parses an envelope response according to RFC3501:
@@ -54,6 +296,19 @@ public class EnvelopeParser {
     String inReplyTo = castToString(in.get(8));
     String messageId = castToString(in.get(9));
 
+    return build(dateString, subject, from, sender, replyTo, to, cc, bcc, inReplyTo, messageId);
+  }
+
+  private static Envelope build(String dateString,
+                                String subject,
+                                List<ImapAddress> from,
+                                List<ImapAddress> sender,
+                                List<ImapAddress> replyTo,
+                                List<ImapAddress> to,
+                                List<ImapAddress> cc,
+                                List<ImapAddress> bcc,
+                                String inReplyTo,
+                                String messageId) {
     Envelope.Builder envelope = new Envelope.Builder()
         .setDateString(dateString)
         .setSubject(subject)
@@ -66,15 +321,22 @@ public class EnvelopeParser {
         .setInReplyTo(inReplyTo)
         .setMessageId(messageId);
 
+    return envelope.setDate(toDate(dateString)).build();
+  }
+
+  /**
+   * @return the parsed date of an envelope, or null if it has none or it cannot be parsed
+   */
+  public static ZonedDateTime toDate(String dateString) {
     try {
       if (!Strings.isNullOrEmpty(dateString) && !dateString.equalsIgnoreCase("nil")) {
-        envelope.setDate(parseDate(dateString));
+        return parseDate(dateString);
       }
     } catch (DateTimeParseException e) {
       LOGGER.debug("Failed to parse date {}", dateString, e);
     }
 
-    return envelope.build();
+    return null;
   }
 
   @SuppressWarnings("unchecked")
@@ -130,14 +392,6 @@ public class EnvelopeParser {
 
   @VisibleForTesting
   public static ZonedDateTime parseDate(String in) {
-    in = in.replaceAll("\\s+", " ");
-
-    TemporalAccessor temporalAccessor = RFC2822_FORMATTER.parseBest(in, ZonedDateTime::from, LocalDateTime::from, LocalDate::from);
-    if (temporalAccessor instanceof LocalDateTime) {
-      return ((LocalDateTime) temporalAccessor).atZone(ZoneId.of("UTC"));
-    } else if (temporalAccessor instanceof LocalDate) {
-      return ((LocalDate) temporalAccessor).atStartOfDay(ZoneId.of("UTC"));
-    }
-    return ((ZonedDateTime) temporalAccessor);
+    return EnvelopeDateParser.parse(in);
   }
 }
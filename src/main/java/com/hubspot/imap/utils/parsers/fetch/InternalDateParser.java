@@ -0,0 +1,151 @@
+package com.hubspot.imap.utils.parsers.fetch;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * Reads an INTERNALDATE, which RFC 3501 fixes as a quoted 26 character date-time: "17-Jul-1996 02:44:25 -0700", the
+ * day possibly padded with a space instead of a zero. The value is read straight from the bytes into epoch millis
+ * and an offset, a {@link ZonedDateTime} is only built by {@link #toZonedDateTime(long, int)} when one is asked for.
+ */
+public class InternalDateParser {
+  private static final DateTimeFormatter INTERNALDATE_FORMATTER = DateTimeFormatter.ofPattern("dd-MMM-yyyy HH:mm:ss Z");
+
+  private static final int LENGTH = 26;
+  private static final String[] MONTHS = {"jan", "feb", "mar", "apr", "may", "jun", "jul", "aug", "sep", "oct", "nov", "dec"};
+  private static final int[] MONTH_KEYS = new int[MONTHS.length];
+  private static final int[] DAYS_IN_MONTH = {31, 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31};
+
+  static {
+    for (int i = 0; i < MONTHS.length; i++) {
+      MONTH_KEYS[i] = monthKey(MONTHS[i].charAt(0), MONTHS[i].charAt(1), MONTHS[i].charAt(2));
+    }
+  }
+
+  private final byte[] bytes = new byte[LENGTH + 1];
+  private long epochMillis;
+  private int offsetSeconds;
+
+  /**
+   * Reads a quoted INTERNALDATE, skipping leading whitespace. Anything that is not in the fixed format (a literal,
+   * NIL, an invalid date) is left unread for a general purpose parser.
+   *
+   * @return whether a date was read, see {@link #getEpochMillis()} and {@link #getOffsetSeconds()}
+   */
+  public boolean parse(ByteBuf in) {
+    int index = in.readerIndex();
+    while (Character.isWhitespace(in.getByte(index))) {
+      index++;
+    }
+
+    if (in.getByte(index) != '"') {
+      return false;
+    }
+
+    in.getBytes(index + 1, bytes, 0, LENGTH + 1);
+    if (bytes[LENGTH] != '"' || !parse(bytes)) {
+      return false;
+    }
+
+    in.readerIndex(index + LENGTH + 2);
+    return true;
+  }
+
+  public long getEpochMillis() {
+    return epochMillis;
+  }
+
+  public int getOffsetSeconds() {
+    return offsetSeconds;
+  }
+
+  private boolean parse(byte[] date) {
+    int day = date[0] == ' ' ? digit(date[1]) : twoDigits(date, 0);
+    int month = month(date[3], date[4], date[5]);
+    int year = twoDigits(date, 7) * 100 + twoDigits(date, 9);
+    int hour = twoDigits(date, 12);
+    int minute = twoDigits(date, 15);
+    int second = twoDigits(date, 18);
+    int offset = twoDigits(date, 22) * 3600 + twoDigits(date, 24) * 60;
+
+    if (date[2] != '-' || date[6] != '-' || date[11] != ' ' || date[14] != ':' || date[17] != ':' || date[20] != ' '
+        || (date[21] != '+' && date[21] != '-')) {
+      return false;
+    }
+
+    if (day < 1 || month < 1 || year < 0 || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0
+        || second > 59 || offset < 0 || offset > 18 * 3600 || day > daysInMonth(year, month)) {
+      return false;
+    }
+
+    offsetSeconds = date[21] == '-' ? -offset : offset;
+    long epochSeconds = epochDay(year, month, day) * 86400 + hour * 3600 + minute * 60 + second - offsetSeconds;
+    epochMillis = epochSeconds * 1000;
+    return true;
+  }
+
+  public static ZonedDateTime toZonedDateTime(long epochMillis, int offsetSeconds) {
+    return ZonedDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneOffset.ofTotalSeconds(offsetSeconds));
+  }
+
+  /**
+   * @param date an unquoted INTERNALDATE
+   */
+  public static ZonedDateTime parse(String date) {
+    InternalDateParser parser = new InternalDateParser();
+    byte[] bytes = date.getBytes(StandardCharsets.ISO_8859_1);
+    if (bytes.length == LENGTH && parser.parse(bytes)) {
+      return toZonedDateTime(parser.epochMillis, parser.offsetSeconds);
+    }
+
+    return ZonedDateTime.parse(date, INTERNALDATE_FORMATTER);
+  }
+
+  private static int digit(byte b) {
+    return b >= '0' && b <= '9' ? b - '0' : -1000;
+  }
+
+  private static int twoDigits(byte[] date, int index) {
+    return digit(date[index]) * 10 + digit(date[index + 1]);
+  }
+
+  private static int month(byte first, byte second, byte third) {
+    int key = monthKey((char) first, (char) second, (char) third);
+    for (int i = 0; i < MONTH_KEYS.length; i++) {
+      if (MONTH_KEYS[i] == key) {
+        return i + 1;
+      }
+    }
+
+    return -1;
+  }
+
+  private static int monthKey(char first, char second, char third) {
+    return ((first | 0x20) << 16) | ((second | 0x20) << 8) | (third | 0x20);
+  }
+
+  private static int daysInMonth(int year, int month) {
+    if (month == 2 && (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0))) {
+      return 29;
+    }
+
+    return DAYS_IN_MONTH[month - 1];
+  }
+
+  /**
+   * Days since 1970-01-01 of a proleptic Gregorian date, as {@link java.time.LocalDate#toEpochDay()}.
+   */
+  private static long epochDay(int year, int month, int day) {
+    int y = month <= 2 ? year - 1 : year;
+    int era = y / 400;
+    int yearOfEra = y - era * 400;
+    int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+    int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+    return era * 146097L + dayOfEra - 719468;
+  }
+}
@@ -1,50 +1,52 @@
 package com.hubspot.imap.utils.parsers.string;
 
-import com.hubspot.imap.utils.SoftReferencedAppendableCharSequence;
+import com.hubspot.imap.utils.AsciiToken;
 import com.hubspot.imap.utils.parsers.ByteBufParser;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.handler.codec.TooLongFrameException;
-import io.netty.util.internal.AppendableCharSequence;
 
 public class AtomOrStringParser implements ByteBufParser<String> {
   private static final char QUOTE = '"';
   private static final char BACKSLASH = '\\';
 
-  protected final SoftReferencedAppendableCharSequence sequenceRef;
+  private final AsciiToken token;
   private final int maxStringLength;
 
-  private int size;
-
-  public AtomOrStringParser(SoftReferencedAppendableCharSequence sequenceRef, int maxStringLength) {
-    this.sequenceRef = sequenceRef;
+  public AtomOrStringParser(int maxStringLength) {
+    this.token = new AsciiToken();
     this.maxStringLength = maxStringLength;
   }
 
   public String parse(ByteBuf buffer) {
-    AppendableCharSequence seq = sequenceRef.get();
+    return parseToken(buffer).toString();
+  }
 
-    seq.reset();
-    size = 0;
+  /**
+   * @return the next atom or the contents of the next quoted string, valid until the next call to this parser.
+   */
+  public AsciiToken parseToken(ByteBuf buffer) {
+    token.reset();
 
     boolean isQuoted = false;
     char previousChar = ' ';
     for (;;) {
-      char c;
+      byte value;
       try {
-        c = ((char) buffer.readUnsignedByte());
+        value = buffer.readByte();
       } catch (IndexOutOfBoundsException e) {
-        return seq.toString();
+        return token;
       }
 
+      char c = (char) (value & 0xFF);
       if (Character.isWhitespace(c)) {
         if (isQuoted) {
-          append(seq, c);
-        } else if (size > 0) {
+          append(value);
+        } else if (!token.isEmpty()) {
           break;
         }
       } else if (c == QUOTE && previousChar != BACKSLASH) {
-        if (size == 0) {    // Start Quote
+        if (token.isEmpty()) {    // Start Quote
           isQuoted = true;
         } else {            // End Quote
           break;
@@ -53,7 +55,7 @@ public class AtomOrStringParser implements ByteBufParser<String> {
         buffer.readerIndex(buffer.readerIndex() - 1);
         break;
       } else {
-        append(seq, c);
+        append(value);
       }
 
       // Always ignore any characters after a backslash
@@ -64,16 +66,15 @@ public class AtomOrStringParser implements ByteBufParser<String> {
       }
     }
 
-    return seq.toString();
+    return token;
   }
 
-  private void append(AppendableCharSequence seq, char c) {
-    if (size >= maxStringLength) {
+  private void append(byte value) {
+    if (token.length() >= maxStringLength) {
       throw new TooLongFrameException("String is larger than " + maxStringLength + " bytes.");
     }
 
-    size++;
-    seq.append(c);
+    token.append(value);
   }
 
 }
@@ -3,7 +3,6 @@ package com.hubspot.imap.utils.parsers.string;
 import java.nio.charset.StandardCharsets;
 import java.util.Optional;
 
-import com.hubspot.imap.utils.SoftReferencedAppendableCharSequence;
 import com.hubspot.imap.utils.parsers.ByteBufParser;
 
 import io.netty.buffer.ByteBuf;
@@ -23,10 +22,11 @@ public class BufferedBodyParser implements ByteBufParser<Optional<String>> {
   private int size;
   private int pos;
   private ByteBuf buf;
+  private int literalSize;
 
-  public BufferedBodyParser(SoftReferencedAppendableCharSequence sequenceRef) {
-    this.stringParser = new AtomOrStringParser(sequenceRef, 10000);
-    this.sizeParser = new LiteralStringSizeParser(sequenceRef);
+  public BufferedBodyParser() {
+    this.stringParser = new AtomOrStringParser(10000);
+    this.sizeParser = new LiteralStringSizeParser();
 
     this.expectedSize = -1;
     this.size = 0;
@@ -56,6 +56,7 @@ public class BufferedBodyParser implements ByteBufParser<Optional<String>> {
           state = State.PARSE_SIZE;
           continue;
         case PARSE_STRING:
+          literalSize = -1;
           return Optional.of(stringParser.parse(in));
         case PARSE_SIZE:
           if (buf == null) {
@@ -78,6 +79,7 @@ public class BufferedBodyParser implements ByteBufParser<Optional<String>> {
           }
 
           String result = buf.toString(StandardCharsets.UTF_8);
+          literalSize = expectedSize;
           reset();
 
           return Optional.of(result);
@@ -86,6 +88,13 @@ public class BufferedBodyParser implements ByteBufParser<Optional<String>> {
 
   }
 
+  /**
+   * @return the size in bytes of the last literal parsed, or -1 if the last body was a quoted string.
+   */
+  public int getLiteralSize() {
+    return literalSize;
+  }
+
   private void reset() {
     if (buf != null) {
       buf.release();
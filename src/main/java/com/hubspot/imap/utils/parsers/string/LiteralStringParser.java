@@ -16,8 +16,8 @@ public class LiteralStringParser implements ByteBufParser<String> {
 
   public LiteralStringParser(SoftReferencedAppendableCharSequence sequenceRef, int maxLineLength) {
     this.sequenceRef = sequenceRef;
-    this.stringParser = new AtomOrStringParser(sequenceRef, maxLineLength);
-    this.sizeParser = new LiteralStringSizeParser(sequenceRef);
+    this.stringParser = new AtomOrStringParser(maxLineLength);
+    this.sizeParser = new LiteralStringSizeParser();
 
     this.expectedSize = -1;
     this.size = 0;
@@ -1,25 +1,15 @@
 package com.hubspot.imap.utils.parsers.string;
 
-import com.hubspot.imap.utils.SoftReferencedAppendableCharSequence;
 import com.hubspot.imap.utils.parsers.ByteBufParser;
 
 import io.netty.buffer.ByteBuf;
-import io.netty.util.internal.AppendableCharSequence;
 
 class LiteralStringSizeParser implements ByteBufParser<Integer> {
 
-  SoftReferencedAppendableCharSequence sequenceRef;
-
-  public LiteralStringSizeParser(SoftReferencedAppendableCharSequence sequenceRef) {
-    this.sequenceRef = sequenceRef;
-  }
-
   @Override
   public Integer parse(ByteBuf in) {
-    AppendableCharSequence seq = sequenceRef.get();
-
-    seq.reset();
     boolean foundStart = false;
+    int size = 0;
 
     for (;;) {
       char c = ((char) in.readUnsignedByte());
@@ -27,9 +17,14 @@ class LiteralStringSizeParser implements ByteBufParser<Integer> {
       if (c == '{') {
         foundStart = true;
       } else if (c == '}') {
-        return Integer.parseInt(seq.toString());
+        return size;
       } else if (foundStart) {
-        seq.append(c);
+        int digit = c - '0';
+        if (digit < 0 || digit > 9 || size > (Integer.MAX_VALUE - digit) / 10) {
+          throw new NumberFormatException("Invalid literal size at: " + c);
+        }
+
+        size = size * 10 + digit;
       }
     }
   }
@@ -1,30 +1,49 @@
 package com.hubspot.imap.utils.parsers.string;
 
-import com.hubspot.imap.utils.SoftReferencedAppendableCharSequence;
+import com.hubspot.imap.utils.AsciiToken;
+import com.hubspot.imap.utils.parsers.ByteBufParser;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufProcessor;
 import io.netty.handler.codec.TooLongFrameException;
 
-public class WordParser extends BaseStringParser {
+public class WordParser implements ByteBufParser<String>, ByteBufProcessor {
+  private final AsciiToken token;
   private final int maxWordLength;
 
-  public WordParser(SoftReferencedAppendableCharSequence seq, int maxWordLength) {
-    super(seq);
+  public WordParser(int maxWordLength) {
+    this.token = new AsciiToken();
     this.maxWordLength = maxWordLength;
   }
 
+  @Override
+  public String parse(ByteBuf buffer) {
+    return parseToken(buffer).toString();
+  }
+
+  /**
+   * @return the next word, valid until the next call to this parser.
+   */
+  public AsciiToken parseToken(ByteBuf buffer) {
+    token.reset();
+    int i = buffer.forEachByte(this);
+    buffer.readerIndex(i + 1);
+
+    return token;
+  }
+
   @Override
   public boolean process(byte value) throws Exception {
     char nextByte = (char) value;
     if (Character.isWhitespace(nextByte)) {
-      return size == 0;
+      return token.isEmpty();
     } else {
-      if (size >= maxWordLength) {
+      if (token.length() >= maxWordLength) {
         throw new TooLongFrameException(
             "Word is larger than " + maxWordLength +
                 " bytes.");
       }
-      size++;
-      seq.append(nextByte);
+      token.append(value);
       return true;
     }
   }
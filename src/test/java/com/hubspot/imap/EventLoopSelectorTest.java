@@ -0,0 +1,46 @@
+package com.hubspot.imap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+
+public class EventLoopSelectorTest {
+  private static final EventLoopGroup GROUP = new NioEventLoopGroup(4);
+
+  @AfterClass
+  public static void shutdown() {
+    GROUP.shutdownGracefully();
+  }
+
+  @Test
+  public void testByUserName_pinsAccountToOneLoop() throws Exception {
+    EventLoopSelector selector = EventLoopSelector.byUserName();
+
+    EventLoop first = selector.select("inbox", "user@example.com", GROUP);
+    assertThat(selector.select("sent", "user@example.com", GROUP)).isSameAs(first);
+    assertThat(selector.select("all-mail", "user@example.com", GROUP)).isSameAs(first);
+  }
+
+  @Test
+  public void testPartitioned_keepsBulkClientsOffInteractiveLoops() throws Exception {
+    EventLoopSelector selector = EventLoopSelector.partitioned(name -> name.startsWith("backfill"), 1);
+    List<EventLoop> loops = EventLoopSelector.eventLoops(GROUP);
+
+    Set<EventLoop> interactive = new HashSet<>();
+    for (int i = 0; i < 100; i++) {
+      assertThat(selector.select("backfill-" + i, "user" + i + "@example.com", GROUP)).isSameAs(loops.get(0));
+      interactive.add(selector.select("push-" + i, "user" + i + "@example.com", GROUP));
+    }
+
+    assertThat(interactive).doesNotContain(loops.get(0)).hasSize(3);
+  }
+}
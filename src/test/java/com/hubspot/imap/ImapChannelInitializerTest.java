@@ -0,0 +1,94 @@
+package com.hubspot.imap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.KeyStore;
+import java.security.cert.CertificateFactory;
+import java.util.Optional;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.codahale.metrics.MetricRegistry;
+import com.hubspot.imap.client.ImapClient;
+import com.hubspot.imap.server.FakeImapServer;
+import com.hubspot.imap.server.FakeMailboxConfig;
+
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.util.SelfSignedCertificate;
+
+public class ImapChannelInitializerTest {
+  private static final String USER = "test@example.org";
+  private static final String PASSWORD = "hunter2";
+  private static final String TRUST_STORE_PASSWORD = "changeit";
+
+  private static SelfSignedCertificate certificate;
+  private static File trustStore;
+  private static FakeImapServer server;
+
+  @BeforeClass
+  public static void startServer() throws Exception {
+    certificate = new SelfSignedCertificate("localhost");
+
+    // The factory trusts the default trust store, which reads these properties whenever it is initialized
+    KeyStore keyStore = KeyStore.getInstance("JKS");
+    keyStore.load(null, null);
+    try (InputStream in = new FileInputStream(certificate.certificate())) {
+      keyStore.setCertificateEntry("fake-imap-server", CertificateFactory.getInstance("X.509").generateCertificate(in));
+    }
+    trustStore = File.createTempFile("fake-imap-server", ".jks");
+    try (OutputStream out = new FileOutputStream(trustStore)) {
+      keyStore.store(out, TRUST_STORE_PASSWORD.toCharArray());
+    }
+    System.setProperty("javax.net.ssl.trustStore", trustStore.getAbsolutePath());
+    System.setProperty("javax.net.ssl.trustStorePassword", TRUST_STORE_PASSWORD);
+
+    server = new FakeImapServer()
+        .addUser(USER, PASSWORD)
+        .addMailbox(FakeMailboxConfig.builder()
+            .messageCount(10)
+            .build())
+        .useSsl(SslContextBuilder.forServer(certificate.certificate(), certificate.privateKey()).build())
+        .start();
+  }
+
+  @AfterClass
+  public static void stopServer() {
+    System.clearProperty("javax.net.ssl.trustStore");
+    System.clearProperty("javax.net.ssl.trustStorePassword");
+
+    server.close();
+    trustStore.delete();
+    certificate.delete();
+  }
+
+  @Test
+  public void testGivenSecondConnection_resumesSession() throws Exception {
+    MetricRegistry metricRegistry = new MetricRegistry();
+    ImapClientFactory clientFactory = new ImapClientFactory(server.configurationBuilder().build(), Optional.of(metricRegistry));
+
+    try {
+      connectAndLogin(clientFactory);
+      connectAndLogin(clientFactory);
+    } finally {
+      clientFactory.close();
+    }
+
+    assertThat(metricRegistry.meter("imap.tls.handshakes.full").getCount()).isEqualTo(1);
+    assertThat(metricRegistry.meter("imap.tls.handshakes.resumed").getCount()).isEqualTo(1);
+  }
+
+  private static void connectAndLogin(ImapClientFactory clientFactory) throws Exception {
+    try (ImapClient client = clientFactory.connect(USER, PASSWORD)) {
+      client.login();
+      client.awaitLogin();
+      assertThat(client.isLoggedIn()).isTrue();
+    }
+  }
+}
@@ -0,0 +1,406 @@
+package com.hubspot.imap.load;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.codahale.metrics.UniformReservoir;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.hubspot.imap.ImapClientFactory;
+import com.hubspot.imap.client.FolderOpenMode;
+import com.hubspot.imap.client.ImapClient;
+import com.hubspot.imap.protocol.command.fetch.items.FetchDataItem.FetchDataItemType;
+import com.hubspot.imap.protocol.response.ResponseCode;
+import com.hubspot.imap.protocol.response.tagged.FetchResponse;
+import com.hubspot.imap.protocol.response.tagged.OpenResponse;
+import com.hubspot.imap.server.FakeImapServer;
+import com.hubspot.imap.server.FakeMailboxConfig;
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+import io.netty.channel.ChannelFuture;
+
+/**
+ * Drives many clients from a single {@link ImapClientFactory} against a {@link FakeImapServer} in the same JVM. Each
+ * client connects, logs in and selects INBOX, then fetches random ranges of headers until the run ends.
+ * <p>
+ * Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.hubspot.imap.load.LoadHarness}
+ * and {@code -Dload.*} properties (see {@link LoadHarnessConfigIF}). Every client uses two sockets, raise
+ * {@code ulimit -n} first for large runs. Client and server share the machine, so the numbers are a ceiling for the
+ * client, not a prediction of what a remote server will allow.
+ */
+public class LoadHarness {
+  private static final Logger LOGGER = LoggerFactory.getLogger(LoadHarness.class);
+
+  private static final String USER = "load@example.org";
+  private static final String PASSWORD = "load";
+  private static final String FOLDER = "INBOX";
+  private static final String SERVER_THREAD_PREFIX = "fake-imap-server";
+  private static final String[] CLIENT_THREAD_PREFIXES = {"nioEventLoopGroup", "epollEventLoopGroup"};
+  private static final String EXECUTOR_THREAD_PREFIX = "imap-promise-executor";
+  private static final int RESERVOIR_SIZE = 1 << 16;
+
+  private final LoadHarnessConfig config;
+  private final MetricRegistry registry;
+  private final Timer loginTimer;
+  private final Timer selectTimer;
+  private final Timer fetchTimer;
+  private final AtomicLong fetchErrors;
+  private final AtomicLong messagesFetched;
+  private final ScheduledExecutorService thinkTimeExecutor;
+
+  private volatile boolean running;
+  private volatile boolean measuring;
+
+  public LoadHarness(LoadHarnessConfig config) {
+    this.config = config;
+    this.registry = new MetricRegistry();
+    this.loginTimer = registry.register("load.login", new Timer(new UniformReservoir(RESERVOIR_SIZE)));
+    this.selectTimer = registry.register("load.select", new Timer(new UniformReservoir(RESERVOIR_SIZE)));
+    this.fetchTimer = registry.register("load.fetch", new Timer(new UniformReservoir(RESERVOIR_SIZE)));
+    this.fetchErrors = new AtomicLong();
+    this.messagesFetched = new AtomicLong();
+    this.thinkTimeExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+        .setDaemon(true)
+        .setNameFormat("load-think-time-%d")
+        .build());
+  }
+
+  public static void main(String[] args) throws Exception {
+    LoadHarnessConfig defaults = LoadHarnessConfig.builder().build();
+    LoadHarnessConfig config = LoadHarnessConfig.builder()
+        .clients(Integer.getInteger("load.clients", defaults.clients()))
+        .connectConcurrency(Integer.getInteger("load.connectConcurrency", defaults.connectConcurrency()))
+        .warmupSeconds(Integer.getInteger("load.warmupSeconds", defaults.warmupSeconds()))
+        .durationSeconds(Integer.getInteger("load.durationSeconds", defaults.durationSeconds()))
+        .clientThreads(Integer.getInteger("load.clientThreads", defaults.clientThreads()))
+        .serverThreads(Integer.getInteger("load.serverThreads", defaults.serverThreads()))
+        .mailboxSize(Integer.getInteger("load.mailboxSize", defaults.mailboxSize()))
+        .maxMessageSize(Integer.getInteger("load.maxMessageSize", defaults.maxMessageSize()))
+        .fetchBatchSize(Integer.getInteger("load.fetchBatchSize", defaults.fetchBatchSize()))
+        .thinkTimeMs(Integer.getInteger("load.thinkTimeMs", defaults.thinkTimeMs()))
+        .useEpoll(Boolean.parseBoolean(System.getProperty("load.useEpoll", String.valueOf(defaults.useEpoll()))))
+        .build();
+
+    LOGGER.info("Running {}", config);
+    System.out.print(new LoadHarness(config).run().format());
+    System.exit(0);
+  }
+
+  public LoadReport run() throws Exception {
+    LoadReport.Builder report = LoadReport.builder().config(config);
+
+    try (FakeImapServer server = new FakeImapServer(config.serverThreads())
+        .addMailbox(FakeMailboxConfig.builder()
+            .name(FOLDER)
+            .messageCount(config.mailboxSize())
+            .maxMessageSize(config.maxMessageSize())
+            .build())
+        .start()) {
+      long heapBefore = usedHeapAfterGc();
+
+      ImapClientFactory clientFactory = new ImapClientFactory(server.configurationBuilder()
+          .numEventLoopThreads(config.clientThreads())
+          .useEpoll(config.useEpoll())
+          .build(), Optional.of(registry));
+
+      try {
+        long connectStart = System.nanoTime();
+        List<ImapClient> clients = connectAll(clientFactory);
+        report.connectPhaseMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - connectStart))
+            .connectedClients(clients.size())
+            .failedClients(config.clients() - clients.size())
+            .heapBytesPerConnection(clients.isEmpty() ? 0 : (usedHeapAfterGc() - heapBefore) / clients.size())
+            .loginLatency(loginTimer.getSnapshot())
+            .selectLatency(selectTimer.getSnapshot());
+
+        CountDownLatch stopped = new CountDownLatch(clients.size());
+        running = true;
+        clients.forEach(client -> fetchNext(client, stopped));
+
+        TimeUnit.SECONDS.sleep(config.warmupSeconds());
+
+        GcMonitor gcMonitor = new GcMonitor();
+        ThreadCpu clientCpu = ThreadCpu.matching(CLIENT_THREAD_PREFIXES);
+        ThreadCpu executorCpu = ThreadCpu.matching(EXECUTOR_THREAD_PREFIX);
+        ThreadCpu serverCpu = ThreadCpu.matching(SERVER_THREAD_PREFIX);
+        long bytesReadStart = registry.meter("imap.bytes.read").getCount();
+        long windowStart = System.nanoTime();
+        measuring = true;
+
+        TimeUnit.SECONDS.sleep(config.durationSeconds());
+
+        measuring = false;
+        long windowNanos = System.nanoTime() - windowStart;
+        report.measuredNanos(windowNanos)
+            .bytesRead(registry.meter("imap.bytes.read").getCount() - bytesReadStart)
+            .fetches(fetchTimer.getCount())
+            .fetchErrors(fetchErrors.get())
+            .messagesFetched(messagesFetched.get())
+            .fetchLatency(fetchTimer.getSnapshot())
+            .clientEventLoopThreads(clientCpu.threads())
+            .clientEventLoopUtilization(clientCpu.utilizationSince(windowNanos))
+            .clientExecutorThreads(executorCpu.threads())
+            .clientExecutorUtilization(executorCpu.utilizationSince(windowNanos))
+            .serverEventLoopThreads(serverCpu.threads())
+            .serverEventLoopUtilization(serverCpu.utilizationSince(windowNanos))
+            .gcCount(gcMonitor.count())
+            .gcMillis(gcMonitor.totalMillis())
+            .maxGcMillis(gcMonitor.maxMillis());
+        gcMonitor.close();
+
+        running = false;
+        if (!stopped.await(30, TimeUnit.SECONDS)) {
+          LOGGER.warn("{} clients did not finish their last fetch", stopped.getCount());
+        }
+
+        clients.forEach(ImapClient::closeAsync);
+      } finally {
+        clientFactory.close();
+        thinkTimeExecutor.shutdownNow();
+      }
+    }
+
+    return report.build();
+  }
+
+  private List<ImapClient> connectAll(ImapClientFactory clientFactory) throws InterruptedException {
+    Semaphore inFlight = new Semaphore(config.connectConcurrency());
+    CountDownLatch done = new CountDownLatch(config.clients());
+    List<ImapClient> connected = new ArrayList<>(config.clients());
+    AtomicInteger failures = new AtomicInteger();
+
+    for (int i = 0; i < config.clients(); i++) {
+      inFlight.acquire();
+
+      long connectStart = System.nanoTime();
+      ImapClient client = clientFactory.create("load-" + i, USER, PASSWORD, Optional.empty());
+      Runnable finish = () -> {
+        inFlight.release();
+        done.countDown();
+      };
+
+      ChannelFuture connectFuture = client.connect();
+      connectFuture.addListener(connect -> {
+        if (!connect.isSuccess()) {
+          LOGGER.debug("Connect failed", connect.cause());
+          failures.incrementAndGet();
+          finish.run();
+          return;
+        }
+
+        client.login().addListener(login -> {
+          if (!login.isSuccess()) {
+            LOGGER.debug("Login failed", login.cause());
+            failures.incrementAndGet();
+            client.closeAsync();
+            finish.run();
+            return;
+          }
+
+          loginTimer.update(System.nanoTime() - connectStart, TimeUnit.NANOSECONDS);
+          long selectStart = System.nanoTime();
+          client.open(FOLDER, FolderOpenMode.READ).addListener(open -> {
+            if (open.isSuccess() && ((OpenResponse) open.getNow()).getCode() == ResponseCode.OK) {
+              selectTimer.update(System.nanoTime() - selectStart, TimeUnit.NANOSECONDS);
+              synchronized (connected) {
+                connected.add(client);
+              }
+            } else {
+              LOGGER.debug("Select failed", open.cause());
+              failures.incrementAndGet();
+              client.closeAsync();
+            }
+
+            finish.run();
+          });
+        });
+      });
+    }
+
+    done.await();
+    if (failures.get() > 0) {
+      LOGGER.warn("{} of {} clients failed to connect", failures.get(), config.clients());
+    }
+
+    return connected;
+  }
+
+  private void fetchNext(ImapClient client, CountDownLatch stopped) {
+    if (!running) {
+      stopped.countDown();
+      return;
+    }
+
+    int batch = Math.min(config.fetchBatchSize(), config.mailboxSize());
+    long start = 1 + ThreadLocalRandom.current().nextInt(config.mailboxSize() - batch + 1);
+    long sent = System.nanoTime();
+
+    client.fetch(start, Optional.of(start + batch - 1),
+        FetchDataItemType.UID,
+        FetchDataItemType.FLAGS,
+        FetchDataItemType.INTERNALDATE,
+        FetchDataItemType.RFC822_SIZE,
+        FetchDataItemType.ENVELOPE).addListener(fetch -> {
+          if (fetch.isSuccess()) {
+            if (measuring) {
+              fetchTimer.update(System.nanoTime() - sent, TimeUnit.NANOSECONDS);
+              messagesFetched.addAndGet(((FetchResponse) fetch.getNow()).getMessages().size());
+            }
+          } else {
+            LOGGER.debug("Fetch failed", fetch.cause());
+            if (measuring) {
+              fetchErrors.incrementAndGet();
+            }
+
+            if (!client.isConnected()) {
+              stopped.countDown();
+              return;
+            }
+          }
+
+          if (config.thinkTimeMs() > 0) {
+            thinkTimeExecutor.schedule(() -> fetchNext(client, stopped), config.thinkTimeMs(), TimeUnit.MILLISECONDS);
+          } else {
+            fetchNext(client, stopped);
+          }
+        });
+  }
+
+  private static long usedHeapAfterGc() throws InterruptedException {
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+      TimeUnit.MILLISECONDS.sleep(100);
+    }
+
+    return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+  }
+
+  /**
+   * CPU time of a fixed set of threads, picked by name prefix when created.
+   */
+  private static class ThreadCpu {
+    private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+
+    private final long[] threadIds;
+    private final long startNanos;
+
+    private ThreadCpu(long[] threadIds) {
+      this.threadIds = threadIds;
+      this.startNanos = cpuNanos();
+    }
+
+    static ThreadCpu matching(String... prefixes) {
+      if (THREAD_MX_BEAN.isThreadCpuTimeSupported() && !THREAD_MX_BEAN.isThreadCpuTimeEnabled()) {
+        THREAD_MX_BEAN.setThreadCpuTimeEnabled(true);
+      }
+
+      return new ThreadCpu(Thread.getAllStackTraces().keySet().stream()
+          .filter(thread -> {
+            for (String prefix : prefixes) {
+              if (thread.getName().startsWith(prefix)) {
+                return true;
+              }
+            }
+            return false;
+          })
+          .mapToLong(Thread::getId)
+          .toArray());
+    }
+
+    int threads() {
+      return threadIds.length;
+    }
+
+    double utilizationSince(long wallNanos) {
+      if (threadIds.length == 0 || wallNanos == 0) {
+        return 0;
+      }
+
+      return (cpuNanos() - startNanos) / ((double) wallNanos * threadIds.length);
+    }
+
+    private long cpuNanos() {
+      long total = 0;
+      for (long threadId : threadIds) {
+        total += Math.max(0, THREAD_MX_BEAN.getThreadCpuTime(threadId));
+      }
+
+      return total;
+    }
+  }
+
+  /**
+   * Collection counts and times from the GC MX beans, plus the longest single collection from GC notifications.
+   */
+  private static class GcMonitor implements NotificationListener, AutoCloseable {
+    private final List<GarbageCollectorMXBean> collectors;
+    private final long startCount;
+    private final long startMillis;
+    private final AtomicLong maxMillis;
+
+    GcMonitor() {
+      this.collectors = ManagementFactory.getGarbageCollectorMXBeans();
+      this.startCount = collectors.stream().mapToLong(GarbageCollectorMXBean::getCollectionCount).sum();
+      this.startMillis = collectors.stream().mapToLong(GarbageCollectorMXBean::getCollectionTime).sum();
+      this.maxMillis = new AtomicLong();
+
+      for (GarbageCollectorMXBean collector : collectors) {
+        if (collector instanceof NotificationEmitter) {
+          ((NotificationEmitter) collector).addNotificationListener(this, null, null);
+        }
+      }
+    }
+
+    @Override
+    public void handleNotification(Notification notification, Object handback) {
+      if (GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+        long duration = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData())
+            .getGcInfo()
+            .getDuration();
+        maxMillis.accumulateAndGet(duration, Math::max);
+      }
+    }
+
+    long count() {
+      return collectors.stream().mapToLong(GarbageCollectorMXBean::getCollectionCount).sum() - startCount;
+    }
+
+    long totalMillis() {
+      return collectors.stream().mapToLong(GarbageCollectorMXBean::getCollectionTime).sum() - startMillis;
+    }
+
+    long maxMillis() {
+      return maxMillis.get();
+    }
+
+    @Override
+    public void close() throws Exception {
+      for (GarbageCollectorMXBean collector : collectors) {
+        if (collector instanceof NotificationEmitter) {
+          ((NotificationEmitter) collector).removeNotificationListener(this);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,87 @@
+package com.hubspot.imap.load;
+
+import org.immutables.value.Value;
+import org.immutables.value.Value.Default;
+import org.immutables.value.Value.Immutable;
+import org.immutables.value.Value.Style.ImplementationVisibility;
+
+/**
+ * Settings for a {@link LoadHarness} run. {@link LoadHarness#main(String[])} reads each of these from a system property
+ * named {@code load.<name>}, e.g. {@code -Dload.clients=20000}.
+ */
+@Immutable
+@Value.Style(
+    typeAbstract = {"*IF"},
+    typeImmutable = "*",
+    visibility = ImplementationVisibility.SAME
+)
+public interface LoadHarnessConfigIF {
+  @Default
+  default int clients() {
+    return 1000;
+  }
+
+  /**
+   * How many clients may be between connect and a finished SELECT at once. Keeps the connect storm from overflowing
+   * the server's accept backlog.
+   */
+  @Default
+  default int connectConcurrency() {
+    return 200;
+  }
+
+  @Default
+  default int warmupSeconds() {
+    return 10;
+  }
+
+  @Default
+  default int durationSeconds() {
+    return 30;
+  }
+
+  /**
+   * Client event loop threads, 0 for netty's default of 2 per core.
+   */
+  @Default
+  default int clientThreads() {
+    return 0;
+  }
+
+  @Default
+  default int serverThreads() {
+    return Runtime.getRuntime().availableProcessors();
+  }
+
+  @Default
+  default int mailboxSize() {
+    return 5000;
+  }
+
+  @Default
+  default int maxMessageSize() {
+    return 64 * 1024;
+  }
+
+  /**
+   * Messages per FETCH. Every loop fetches a random range of this many messages.
+   */
+  @Default
+  default int fetchBatchSize() {
+    return 50;
+  }
+
+  /**
+   * Pause between a FETCH completing and the next one being sent, per client. 0 keeps every client busy all the time,
+   * real sync workers mostly sit idle.
+   */
+  @Default
+  default int thinkTimeMs() {
+    return 0;
+  }
+
+  @Default
+  default boolean useEpoll() {
+    return false;
+  }
+}
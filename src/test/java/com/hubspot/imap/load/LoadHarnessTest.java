@@ -0,0 +1,32 @@
+package com.hubspot.imap.load;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+
+public class LoadHarnessTest {
+
+  @Test
+  public void testSmallRunReportsEveryClient() throws Exception {
+    LoadReport report = new LoadHarness(LoadHarnessConfig.builder()
+        .clients(50)
+        .connectConcurrency(10)
+        .warmupSeconds(1)
+        .durationSeconds(2)
+        .clientThreads(2)
+        .serverThreads(2)
+        .mailboxSize(200)
+        .fetchBatchSize(20)
+        .build()).run();
+
+    assertThat(report.connectedClients()).isEqualTo(50);
+    assertThat(report.failedClients()).isZero();
+    assertThat(report.fetchErrors()).isZero();
+    assertThat(report.fetches()).isGreaterThan(0);
+    assertThat(report.messagesFetched()).isEqualTo(report.fetches() * 20);
+    assertThat(report.bytesRead()).isGreaterThan(0);
+    assertThat(report.clientEventLoopThreads()).isEqualTo(2);
+    assertThat(report.serverEventLoopThreads()).isEqualTo(2);
+    assertThat(report.fetchLatency().get99thPercentile()).isGreaterThan(0);
+  }
+}
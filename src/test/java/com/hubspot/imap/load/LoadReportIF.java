@@ -0,0 +1,135 @@
+package com.hubspot.imap.load;
+
+import java.util.concurrent.TimeUnit;
+
+import org.immutables.value.Value;
+import org.immutables.value.Value.Immutable;
+import org.immutables.value.Value.Style.ImplementationVisibility;
+
+import com.codahale.metrics.Snapshot;
+
+/**
+ * Results of a {@link LoadHarness} run. Throughput, latency, CPU and GC numbers cover only the measured window, heap
+ * and login/select latency cover the connect phase.
+ */
+@Immutable
+@Value.Style(
+    typeAbstract = {"*IF"},
+    typeImmutable = "*",
+    visibility = ImplementationVisibility.SAME
+)
+public interface LoadReportIF {
+  LoadHarnessConfig config();
+
+  int connectedClients();
+
+  int failedClients();
+
+  long connectPhaseMillis();
+
+  long measuredNanos();
+
+  long fetches();
+
+  long fetchErrors();
+
+  long messagesFetched();
+
+  long bytesRead();
+
+  /**
+   * Latency snapshots are in nanoseconds. Login is measured from the start of the TCP connect.
+   */
+  Snapshot loginLatency();
+
+  Snapshot selectLatency();
+
+  Snapshot fetchLatency();
+
+  /**
+   * Growth of the heap after a full GC, from before the first connect to after the last SELECT, divided by the number
+   * of connected clients.
+   */
+  long heapBytesPerConnection();
+
+  int clientEventLoopThreads();
+
+  /**
+   * CPU time used by the event loop threads over wall time times thread count, so 1.0 means every thread was busy for
+   * the whole window.
+   */
+  double clientEventLoopUtilization();
+
+  /**
+   * The promise executor runs the client's handlers after decoding, see {@code ImapClient#configureChannel}.
+   */
+  int clientExecutorThreads();
+
+  double clientExecutorUtilization();
+
+  int serverEventLoopThreads();
+
+  double serverEventLoopUtilization();
+
+  long gcCount();
+
+  long gcMillis();
+
+  /**
+   * The longest single collection reported by the JVM. For concurrent collectors this is the whole cycle, not only the
+   * stop the world part.
+   */
+  long maxGcMillis();
+
+  default double fetchesPerSecond() {
+    return perSecond(fetches());
+  }
+
+  default double messagesPerSecond() {
+    return perSecond(messagesFetched());
+  }
+
+  default double bytesReadPerSecond() {
+    return perSecond(bytesRead());
+  }
+
+  default String format() {
+    double seconds = measuredNanos() / (double) TimeUnit.SECONDS.toNanos(1);
+    StringBuilder builder = new StringBuilder();
+    builder.append(String.format("clients             %d connected, %d failed in %d ms (%d per connect batch)%n",
+        connectedClients(), failedClients(), connectPhaseMillis(), config().connectConcurrency()));
+    builder.append(String.format("window              %.1f s, %d messages per fetch, %d ms think time%n",
+        seconds, config().fetchBatchSize(), config().thinkTimeMs()));
+    builder.append(String.format("throughput          %.0f fetch/s, %.0f msg/s, %.1f MB/s read, %d errors%n",
+        fetchesPerSecond(), messagesPerSecond(), bytesReadPerSecond() / (1024 * 1024), fetchErrors()));
+    builder.append(String.format("per event loop      %.0f fetch/s, %.0f msg/s%n",
+        fetchesPerSecond() / clientEventLoopThreads(), messagesPerSecond() / clientEventLoopThreads()));
+    builder.append(formatLatency("fetch", fetchLatency()));
+    builder.append(formatLatency("login", loginLatency()));
+    builder.append(formatLatency("select", selectLatency()));
+    builder.append(String.format("heap                %.1f KB per connection%n", heapBytesPerConnection() / 1024.0));
+    builder.append(String.format("client event loop   %d threads, %.1f%% busy%n",
+        clientEventLoopThreads(), clientEventLoopUtilization() * 100));
+    builder.append(String.format("client executor     %d threads, %.1f%% busy%n",
+        clientExecutorThreads(), clientExecutorUtilization() * 100));
+    builder.append(String.format("server event loop   %d threads, %.1f%% busy%n",
+        serverEventLoopThreads(), serverEventLoopUtilization() * 100));
+    builder.append(String.format("gc                  %d collections, %d ms total, %d ms max%n",
+        gcCount(), gcMillis(), maxGcMillis()));
+
+    return builder.toString();
+  }
+
+  default double perSecond(long count) {
+    return count * (double) TimeUnit.SECONDS.toNanos(1) / measuredNanos();
+  }
+
+  static String formatLatency(String name, Snapshot snapshot) {
+    return String.format("%-19s p50 %.2f ms, p99 %.2f ms, p999 %.2f ms, max %.2f ms%n",
+        name,
+        snapshot.getMedian() / 1e6,
+        snapshot.get99thPercentile() / 1e6,
+        snapshot.get999thPercentile() / 1e6,
+        snapshot.getMax() / 1e6);
+  }
+}
@@ -0,0 +1,108 @@
+package com.hubspot.imap.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.codahale.metrics.MetricRegistry;
+import com.hubspot.imap.ImapClientFactory;
+import com.hubspot.imap.client.FolderOpenMode;
+import com.hubspot.imap.client.ImapClient;
+import com.hubspot.imap.protocol.command.fetch.items.BodyPeekFetchDataItem;
+import com.hubspot.imap.protocol.response.tagged.FetchResponse;
+import com.hubspot.imap.protocol.response.tagged.OpenResponse;
+import com.hubspot.imap.protocol.response.tagged.TaggedResponse;
+import com.hubspot.imap.server.FakeImapServer;
+import com.hubspot.imap.server.FakeMailboxConfig;
+
+import io.netty.util.concurrent.Future;
+
+public class ImapMetricsTest {
+  private static final String USER = "test@example.org";
+  private static final String PASSWORD = "hunter2";
+
+  private static FakeImapServer server;
+
+  private MetricRegistry metricRegistry;
+  private ImapClientFactory clientFactory;
+
+  @BeforeClass
+  public static void startServer() throws Exception {
+    server = new FakeImapServer()
+        .addUser(USER, PASSWORD)
+        .addMailbox(FakeMailboxConfig.builder()
+            .messageCount(10)
+            .build())
+        .start();
+  }
+
+  @AfterClass
+  public static void stopServer() {
+    server.close();
+  }
+
+  @Before
+  public void setup() {
+    metricRegistry = new MetricRegistry();
+    clientFactory = new ImapClientFactory(server.configurationBuilder().build(), Optional.of(metricRegistry));
+  }
+
+  @After
+  public void teardown() {
+    clientFactory.close();
+  }
+
+  @Test
+  public void testGivenSession_recordsMetrics() throws Exception {
+    ImapClient client = clientFactory.connect(USER, PASSWORD);
+    try {
+      // The connection is counted once its channel is configured, which can finish after connect returns
+      awaitCondition(() -> metricRegistry.counter("imap.connections.active").getCount() == 1);
+
+      // Sent back to back, so the EXAMINE and FETCH wait in the pending write queue behind the command before them
+      Future<TaggedResponse> login = client.login();
+      Future<OpenResponse> open = client.open("INBOX", FolderOpenMode.READ);
+      Future<FetchResponse> fetch = client.fetch(1, Optional.of(5L), new BodyPeekFetchDataItem());
+
+      login.get(10, TimeUnit.SECONDS);
+      open.get(10, TimeUnit.SECONDS);
+      assertThat(fetch.get(10, TimeUnit.SECONDS).getMessages()).hasSize(5);
+    } finally {
+      client.close();
+    }
+
+    assertThat(metricRegistry.timer("imap.commands.LOGIN").getCount()).isEqualTo(1);
+    assertThat(metricRegistry.timer("imap.commands.EXAMINE").getCount()).isEqualTo(1);
+    assertThat(metricRegistry.timer("imap.commands.FETCH").getCount()).isEqualTo(1);
+    assertThat(metricRegistry.timer("imap.pending-write-queue.wait").getCount()).isGreaterThanOrEqualTo(2);
+
+    assertThat(metricRegistry.meter("imap.bytes.read").getCount()).isGreaterThan(0);
+    assertThat(metricRegistry.meter("imap.bytes.written").getCount()).isGreaterThan(0);
+    assertThat(metricRegistry.histogram("imap.literal.size").getCount()).isEqualTo(5);
+    assertThat(metricRegistry.histogram("imap.literal.size").getSnapshot().getMin()).isGreaterThan(0);
+
+    assertThat(metricRegistry.timer("imap.decode.TAGGED").getCount()).isGreaterThanOrEqualTo(3);
+    assertThat(metricRegistry.timer("imap.decode.FETCH").getCount()).isEqualTo(5);
+
+    awaitCondition(() -> metricRegistry.counter("imap.connections.active").getCount() == 0);
+  }
+
+  private static void awaitCondition(BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 10000;
+    while (!condition.getAsBoolean()) {
+      if (System.currentTimeMillis() > deadline) {
+        throw new AssertionError("Timed out waiting for condition");
+      }
+
+      Thread.sleep(10);
+    }
+  }
+}
@@ -0,0 +1,81 @@
+package com.hubspot.imap.protocol;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.net.HostAndPort;
+import com.hubspot.imap.ImapChannelAttrs;
+import com.hubspot.imap.ImapConfiguration;
+import com.hubspot.imap.ImapConfigurationIF.AuthType;
+import com.hubspot.imap.client.ImapClientState;
+import com.hubspot.imap.protocol.command.BaseImapCommand;
+import com.hubspot.imap.protocol.command.ImapCommandType;
+import com.hubspot.imap.protocol.extension.gmail.GMailLabel.StringLabel;
+import com.hubspot.imap.protocol.extension.gmail.GMailLabel.SystemLabel;
+import com.hubspot.imap.protocol.message.ImapMessage;
+import com.hubspot.imap.protocol.response.tagged.TaggedResponse;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.concurrent.ImmediateEventExecutor;
+
+public class ResponseDecoderTest {
+  private static final ImapConfiguration CONFIGURATION = ImapConfiguration.builder()
+      .hostAndPort(HostAndPort.fromParts("localhost", 993))
+      .authType(AuthType.PASSWORD)
+      .build();
+
+  private ImapClientState clientState;
+  private EmbeddedChannel channel;
+
+  @Before
+  public void setup() {
+    clientState = new ImapClientState("test", ImmediateEventExecutor.INSTANCE);
+    channel = new EmbeddedChannel(new ResponseDecoder(CONFIGURATION, clientState, ImmediateEventExecutor.INSTANCE));
+    channel.attr(ImapChannelAttrs.CONFIGURATION).set(CONFIGURATION);
+  }
+
+  @After
+  public void tearDown() {
+    channel.finish();
+  }
+
+  @Test
+  public void testGmailSystemLabels_areSystemLabels() throws Exception {
+    clientState.setCurrentCommand(new BaseImapCommand(ImapCommandType.FETCH));
+
+    ImapMessage message = decodeMessages(
+        "* 1 FETCH (UID 7 X-GM-LABELS (\"\\\\Inbox\" \"\\\\Sent\" Receipts))\r\n" +
+        "A1 OK Success\r\n").get(0);
+
+    assertThat(message.getGMailLabels()).containsOnly(SystemLabel.INBOX, SystemLabel.SENT, new StringLabel("Receipts"));
+  }
+
+  @Test
+  public void testGmailImportantLabel_isNotASystemLabel() throws Exception {
+    clientState.setCurrentCommand(new BaseImapCommand(ImapCommandType.FETCH));
+
+    ImapMessage message = decodeMessages(
+        "* 1 FETCH (UID 7 X-GM-LABELS (\"\\\\Inbox\" \"\\\\Important\"))\r\n" +
+        "A1 OK Success\r\n").get(0);
+
+    assertThat(message.getGMailLabels()).containsOnly(SystemLabel.INBOX, new StringLabel("\\Important"));
+  }
+
+  private List<ImapMessage> decodeMessages(String transcript) {
+    channel.writeInbound(Unpooled.wrappedBuffer(transcript.getBytes(StandardCharsets.US_ASCII)));
+
+    TaggedResponse response = ((TaggedResponse) channel.readInbound());
+    return response.getUntagged().stream()
+        .filter(o -> o instanceof ImapMessage)
+        .map(o -> ((ImapMessage) o))
+        .collect(Collectors.toList());
+  }
+}
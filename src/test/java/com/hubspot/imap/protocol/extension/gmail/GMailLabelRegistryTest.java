@@ -0,0 +1,44 @@
+package com.hubspot.imap.protocol.extension.gmail;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.hubspot.imap.protocol.extension.gmail.GMailLabel.StringLabel;
+import com.hubspot.imap.protocol.extension.gmail.GMailLabel.SystemLabel;
+
+public class GMailLabelRegistryTest {
+
+  @Test
+  public void testGivenSystemLabel_returnsEnum() throws Exception {
+    // As sent by Gmail, with the backslash escaped
+    assertThat(GMailLabel.get("\\\\Inbox")).isEqualTo(SystemLabel.INBOX);
+    assertThat(GMailLabel.get("\\\\Draft")).isEqualTo(SystemLabel.DRAFTS);
+    assertThat(GMailLabel.get("\\\\Important")).isEqualTo(new StringLabel("\\Important"));
+  }
+
+  @Test
+  public void testGivenSameName_returnsSameInstance() throws Exception {
+    GMailLabelRegistry registry = new GMailLabelRegistry();
+
+    GMailLabel label = registry.get("Receipts");
+    assertThat(registry.get(new String("Receipts"))).isSameAs(label);
+    assertThat(registry.get("\\Receipts")).isSameAs(label);
+    assertThat(registry.size()).isEqualTo(1);
+  }
+
+  @Test
+  public void testSet_containsEachLabelOnce() throws Exception {
+    GMailLabelRegistry registry = new GMailLabelRegistry();
+
+    GMailLabelSet labels = registry.toSet(Arrays.asList("\\\\Inbox", "Receipts", "\\\\Sent", "Receipts"));
+
+    assertThat(labels).hasSize(3);
+    assertThat(labels).containsOnly(SystemLabel.INBOX, SystemLabel.SENT, new StringLabel("Receipts"));
+    assertThat(labels.contains(SystemLabel.DRAFTS)).isFalse();
+    assertThat(labels.contains(new StringLabel("Travel"))).isFalse();
+    assertThat(registry.toSet(Arrays.asList("Receipts", "\\\\Sent", "\\\\Inbox"))).isEqualTo(labels);
+  }
+}
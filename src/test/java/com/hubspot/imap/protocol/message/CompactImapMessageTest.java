@@ -0,0 +1,65 @@
+package com.hubspot.imap.protocol.message;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class CompactImapMessageTest {
+
+  @Test
+  public void testFetchedItems_matchBuilder() throws Exception {
+    ImapMessage expected = fill(new ImapMessage.Builder()).build();
+    ImapMessage compact = fill(new CompactImapMessage()).build();
+
+    assertThat(compact.getMessageNumber()).isEqualTo(expected.getMessageNumber());
+    assertThat(compact.getUid()).isEqualTo(expected.getUid());
+    assertThat(compact.getSize()).isEqualTo(expected.getSize());
+    assertThat(compact.getGmailMessageId()).isEqualTo(expected.getGmailMessageId());
+    assertThat(compact.getInternalDate()).isEqualTo(expected.getInternalDate());
+    assertThat(compact.getFlags()).isEqualTo(expected.getFlags());
+  }
+
+  @Test
+  public void testFlags_areSplitIntoMaskAndKeywords() throws Exception {
+    CompactImapMessage message = new CompactImapMessage()
+        .setFlagStrings(Arrays.asList("\\Seen", "\\Flagged", "$Forwarded"));
+
+    assertThat(message.hasFlag(StandardMessageFlag.SEEN)).isTrue();
+    assertThat(message.hasFlag(StandardMessageFlag.DELETED)).isFalse();
+    assertThat(message.getFlags()).containsOnly(
+        StandardMessageFlag.SEEN, StandardMessageFlag.FLAGGED, StandardMessageFlag.fromName("$Forwarded"));
+  }
+
+  @Test
+  public void testUnfetchedItem_throws() throws Exception {
+    CompactImapMessage message = new CompactImapMessage().setUid(0);
+    assertThat(message.getUid()).isEqualTo(0);
+
+    try {
+      message.getSize();
+      fail("size was not fetched");
+    } catch (UnfetchedFieldException expected) {
+      // expected
+    }
+
+    try {
+      message.getFlags();
+      fail("flags were not fetched");
+    } catch (UnfetchedFieldException expected) {
+      // expected
+    }
+  }
+
+  private static ImapMessageBuilder fill(ImapMessageBuilder builder) {
+    return builder
+        .setMessageNumber(12)
+        .setUid(4000)
+        .setSize(2048)
+        .setGmailMessageId(1234567890123L)
+        .setInternalDate("17-Jul-1996 02:44:25 -0700")
+        .setFlagStrings(Arrays.asList("\\Seen", "\\Answered", "Work"));
+  }
+}
@@ -0,0 +1,101 @@
+package com.hubspot.imap.protocol.message;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+
+import com.hubspot.imap.utils.AsciiToken;
+
+public class FlagSnapshotTest {
+
+  private static FlagSnapshot.Builder addMessage(FlagSnapshot.Builder builder, long uid, String... flags) {
+    builder.startMessage().setUid(uid).startFlags();
+    for (String flag : flags) {
+      builder.addFlag(flag);
+    }
+    return builder.endMessage();
+  }
+
+  @Test
+  public void testGivenSystemFlagsAndKeywords_doesSplitThem() throws Exception {
+    FlagSnapshot snapshot = addMessage(new FlagSnapshot.Builder(), 10, "\\Seen", "\\FLAGGED", "$Forwarded", "Junk").build();
+
+    assertThat(snapshot.size()).isEqualTo(1);
+    assertThat(snapshot.getFlags(0)).containsOnly(StandardMessageFlag.SEEN, StandardMessageFlag.FLAGGED);
+    assertThat(snapshot.getKeywords(0)).containsOnly("$Forwarded", "Junk");
+  }
+
+  @Test
+  public void testGivenUnsortedAndDuplicateRows_doesSortAndKeepLast() throws Exception {
+    FlagSnapshot.Builder builder = new FlagSnapshot.Builder();
+    addMessage(builder, 5, "\\Seen");
+    addMessage(builder, 3);
+    addMessage(builder, 3, "\\Deleted");
+    builder.startMessage().startFlags().addFlag("\\Seen").endMessage(); // No UID, dropped
+    FlagSnapshot snapshot = builder.build();
+
+    assertThat(snapshot.size()).isEqualTo(2);
+    assertThat(snapshot.getUid(0)).isEqualTo(3);
+    assertThat(snapshot.getFlags(0)).containsOnly(StandardMessageFlag.DELETED);
+    assertThat(snapshot.indexOf(5)).isEqualTo(1);
+    assertThat(snapshot.indexOf(4)).isNegative();
+  }
+
+  @Test
+  public void testDiff() throws Exception {
+    FlagSnapshot.Builder previousBuilder = new FlagSnapshot.Builder();
+    addMessage(previousBuilder, 1, "\\Seen");
+    addMessage(previousBuilder, 2, "Work");
+    addMessage(previousBuilder, 3);
+    FlagSnapshot previous = previousBuilder.build();
+
+    FlagSnapshot.Builder currentBuilder = new FlagSnapshot.Builder(previous.getKeywordTable());
+    addMessage(currentBuilder, 1, "\\Seen");
+    addMessage(currentBuilder, 2, "Home");
+    addMessage(currentBuilder, 4);
+    FlagSnapshotDiff diff = currentBuilder.build().diff(previous);
+
+    assertThat(diff.getAddedUids()).containsExactly(4L);
+    assertThat(diff.getRemovedUids()).containsExactly(3L);
+    assertThat(diff.getChangedUids()).containsExactly(2L);
+  }
+
+  @Test
+  public void testGivenDifferentKeywordTables_doesCompareKeywordNames() throws Exception {
+    FlagSnapshot previous = addMessage(addMessage(new FlagSnapshot.Builder(), 1, "B"), 2, "A", "B").build();
+    FlagSnapshot current = addMessage(addMessage(new FlagSnapshot.Builder(), 1, "B"), 2, "B", "A").build();
+
+    assertThat(current.diff(previous).isEmpty()).isTrue();
+  }
+
+  @Test
+  public void testGivenTokens_doesMatchStringFlags() throws Exception {
+    FlagSnapshot.Builder builder = new FlagSnapshot.Builder();
+    addMessage(builder, 1, "Work");
+    builder.startMessage().setUid(2).startFlags()
+        .addFlag(new AsciiToken("\\Seen"))
+        .addFlag(new AsciiToken("Work"))
+        .addFlag(new AsciiToken("Home"))
+        .endMessage();
+    FlagSnapshot snapshot = builder.build();
+
+    assertThat(snapshot.getFlags(1)).containsOnly(StandardMessageFlag.SEEN);
+    assertThat(snapshot.getKeywords(1)).containsOnly("Work", "Home");
+    assertThat(snapshot.getKeywordTable().size()).isEqualTo(2);
+  }
+
+  @Test
+  public void testReset_dropsRowsAndKeepsKeywords() throws Exception {
+    FlagSnapshot.Builder builder = new FlagSnapshot.Builder();
+    addMessage(builder, 5, "Work");
+    addMessage(builder, 3);
+    builder.reset();
+    addMessage(builder, 4, "Work");
+    FlagSnapshot snapshot = builder.build();
+
+    assertThat(snapshot.size()).isEqualTo(1);
+    assertThat(snapshot.getUid(0)).isEqualTo(4);
+    assertThat(snapshot.getKeywords(0)).containsOnly("Work");
+    assertThat(snapshot.getKeywordTable().size()).isEqualTo(1);
+  }
+}
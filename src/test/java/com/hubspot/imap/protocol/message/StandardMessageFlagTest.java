@@ -0,0 +1,44 @@
+package com.hubspot.imap.protocol.message;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+
+import com.hubspot.imap.utils.AsciiToken;
+
+public class StandardMessageFlagTest {
+
+  @Test
+  public void testGivenSystemFlag_doesIgnoreCaseAndPrefix() throws Exception {
+    assertThat(StandardMessageFlag.fromName("\\Seen")).isEqualTo(StandardMessageFlag.SEEN);
+    assertThat(StandardMessageFlag.fromName("\\dRaFt")).isEqualTo(StandardMessageFlag.DRAFT);
+    assertThat(StandardMessageFlag.fromName(new AsciiToken("\\Deleted"))).isEqualTo(StandardMessageFlag.DELETED);
+    assertThat(StandardMessageFlag.getFlag("\\Answered").get()).isEqualTo(StandardMessageFlag.ANSWERED);
+  }
+
+  @Test
+  public void testGivenKeyword_doesShareOneInstance() throws Exception {
+    MessageFlag fromToken = StandardMessageFlag.fromName(new AsciiToken("$Phishing"));
+    MessageFlag fromString = StandardMessageFlag.fromName("$Phishing");
+
+    assertThat(fromToken).isInstanceOf(StringMessageFlag.class);
+    assertThat(fromToken).isSameAs(fromString);
+    assertThat(fromToken.getString()).isEqualTo("\"Phishing\"");
+  }
+
+  @Test
+  public void testGivenKeywordLikeSystemFlag_isKeyword() throws Exception {
+    assertThat(StandardMessageFlag.fromName("Seenish")).isInstanceOf(StringMessageFlag.class);
+    assertThat(StandardMessageFlag.fromName("\\")).isInstanceOf(StringMessageFlag.class);
+    assertThat(StandardMessageFlag.fromName("Junk")).isEqualTo(new StringMessageFlag("Junk"));
+  }
+
+  @Test
+  public void testSystemFlagMask_agreesWithFromName() throws Exception {
+    for (String name : new String[] {"\\Seen", "Seen", "$Seen", "\\fLaGgEd", "Seenish", "Junk", "\\", ""}) {
+      MessageFlag flag = StandardMessageFlag.fromName(name);
+      int expected = flag instanceof StandardMessageFlag ? ((StandardMessageFlag) flag).getMask() : 0;
+      assertThat(StandardMessageFlag.getSystemFlagMask(name)).as(name).isEqualTo(expected);
+    }
+  }
+}
@@ -0,0 +1,18 @@
+package com.hubspot.imap.server;
+
+import java.util.List;
+
+/**
+ * Replaces how {@link FakeImapServer} handles a command, e.g. to fail a SELECT, delay a FETCH or drop the connection
+ * halfway through a response.
+ */
+@FunctionalInterface
+public interface CommandOverride {
+  /**
+   * @param session the connection the command arrived on
+   * @param tag     the command tag, to be used in the tagged response
+   * @param args    the command arguments, quoted strings unquoted and parenthesized lists kept whole
+   * @return true if the command was handled, false to fall through to the default behavior
+   */
+  boolean handle(FakeImapSession session, String tag, List<String> args) throws Exception;
+}
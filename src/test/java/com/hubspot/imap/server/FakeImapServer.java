@@ -0,0 +1,188 @@
+package com.hubspot.imap.server;
+
+import java.io.Closeable;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.net.HostAndPort;
+import com.hubspot.imap.ImapConfiguration;
+import com.hubspot.imap.ImapConfigurationIF.AuthType;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.LineBasedFrameDecoder;
+import io.netty.handler.codec.string.StringDecoder;
+import io.netty.handler.ssl.SslContext;
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+/**
+ * An in-process IMAP server for tests and benchmarks. It listens on localhost, speaks plain text unless given a TLS
+ * context with {@link #useSsl(SslContext)} and serves {@link FakeMailbox}es of generated messages.
+ * <p>
+ * Supported: CAPABILITY, LOGIN, AUTHENTICATE XOAUTH2, ENABLE, LIST, SELECT, EXAMINE, FETCH, SEARCH, STORE, EXPUNGE, NOOP, IDLE
+ * and LOGOUT, each with the UID variant where one exists. FETCH knows the items this client can parse (including the
+ * Gmail extensions). Anything else gets a BAD response, or can be scripted with {@link #override(String, CommandOverride)}.
+ * <p>
+ * If no users are added every login succeeds. With users, the password doubles as the XOAUTH2 token.
+ */
+public class FakeImapServer implements Closeable {
+  private static final int CLOSE_TIMEOUT_SEC = 5;
+
+  private final EventLoopGroup eventLoopGroup;
+  private final Map<String, FakeMailbox> mailboxes;
+  private final Map<String, String> users;
+  private final Map<String, CommandOverride> overrides;
+  private final AtomicInteger openSessions;
+
+  private SslContext sslContext;
+  private Channel serverChannel;
+
+  public FakeImapServer() {
+    this(1);
+  }
+
+  /**
+   * @param eventLoopThreads threads are named {@code fake-imap-server-*}, so they can be told apart from the client's
+   *                         event loop in thread dumps and CPU measurements.
+   */
+  public FakeImapServer(int eventLoopThreads) {
+    this.eventLoopGroup = new NioEventLoopGroup(eventLoopThreads, new DefaultThreadFactory("fake-imap-server", true));
+    this.mailboxes = new ConcurrentHashMap<>();
+    this.users = new ConcurrentHashMap<>();
+    this.overrides = new ConcurrentHashMap<>();
+    this.openSessions = new AtomicInteger(0);
+  }
+
+  public FakeImapServer addMailbox(FakeMailboxConfig config) {
+    return addMailbox(new FakeMailbox(config));
+  }
+
+  public FakeImapServer addMailbox(FakeMailbox mailbox) {
+    mailboxes.put(mailbox.getName(), mailbox);
+    return this;
+  }
+
+  public FakeImapServer addUser(String userName, String password) {
+    users.put(userName, password);
+    return this;
+  }
+
+  /**
+   * @param command the command name as sent, including the UID prefix (e.g. "UID FETCH")
+   */
+  public FakeImapServer override(String command, CommandOverride override) {
+    overrides.put(command.toUpperCase(), override);
+    return this;
+  }
+
+  public FakeImapServer clearOverrides() {
+    overrides.clear();
+    return this;
+  }
+
+  /**
+   * Serves TLS with the given server context, for example one built from a {@code SelfSignedCertificate}. Must be
+   * called before {@link #start()}.
+   */
+  public FakeImapServer useSsl(SslContext sslContext) {
+    this.sslContext = sslContext;
+    return this;
+  }
+
+  public FakeImapServer start() throws InterruptedException {
+    ServerBootstrap bootstrap = new ServerBootstrap()
+        .group(eventLoopGroup)
+        .channel(NioServerSocketChannel.class)
+        .option(ChannelOption.SO_BACKLOG, 4096)
+        .childOption(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
+        .childHandler(new ChannelInitializer<SocketChannel>() {
+          @Override
+          protected void initChannel(SocketChannel channel) throws Exception {
+            if (sslContext != null) {
+              channel.pipeline().addLast(sslContext.newHandler(channel.alloc()));
+            }
+
+            channel.pipeline()
+                .addLast(new LineBasedFrameDecoder(64 * 1024))
+                .addLast(new StringDecoder(StandardCharsets.UTF_8))
+                .addLast(new FakeImapSession(FakeImapServer.this));
+          }
+        });
+
+    serverChannel = bootstrap.bind("127.0.0.1", 0).sync().channel();
+    return this;
+  }
+
+  public HostAndPort getHostAndPort() {
+    return HostAndPort.fromParts("127.0.0.1", ((InetSocketAddress) serverChannel.localAddress()).getPort());
+  }
+
+  /**
+   * @return a client configuration pointing at this server, with TLS if the server uses it.
+   */
+  public ImapConfiguration.Builder configurationBuilder() {
+    return ImapConfiguration.builder()
+        .hostAndPort(getHostAndPort())
+        .authType(AuthType.PASSWORD)
+        .useSsl(sslContext != null);
+  }
+
+  public Optional<FakeMailbox> getMailbox(String name) {
+    return Optional.ofNullable(mailboxes.get(name));
+  }
+
+  public Map<String, FakeMailbox> getMailboxes() {
+    return mailboxes;
+  }
+
+  public int getOpenSessions() {
+    return openSessions.get();
+  }
+
+  boolean authenticate(String userName, String password) {
+    return users.isEmpty() || password.equals(users.get(userName));
+  }
+
+  Optional<CommandOverride> getOverride(String command) {
+    return Optional.ofNullable(overrides.get(command));
+  }
+
+  AtomicInteger openSessionCounter() {
+    return openSessions;
+  }
+
+  /**
+   * Stops listening and shuts the event loops down, failing instead of hanging the test run if they don't terminate in
+   * time.
+   */
+  @Override
+  public void close() {
+    if (serverChannel != null && !serverChannel.close().awaitUninterruptibly(CLOSE_TIMEOUT_SEC, TimeUnit.SECONDS)) {
+      throw new IllegalStateException("Fake IMAP server channel did not close within " + CLOSE_TIMEOUT_SEC + "s");
+    }
+
+    // Waits on the loops themselves. The group's termination future is completed through the global executor, whose
+    // thread an assertion on Netty 4.0 under -ea can kill, and would then never complete.
+    eventLoopGroup.shutdownGracefully(0, 2, TimeUnit.SECONDS);
+    try {
+      if (!eventLoopGroup.awaitTermination(CLOSE_TIMEOUT_SEC, TimeUnit.SECONDS)) {
+        throw new IllegalStateException("Fake IMAP server event loops did not terminate within " + CLOSE_TIMEOUT_SEC + "s");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while stopping the fake IMAP server", e);
+    }
+  }
+}
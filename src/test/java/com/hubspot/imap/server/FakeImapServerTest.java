@@ -0,0 +1,471 @@
+package com.hubspot.imap.server;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.hubspot.imap.EventLoopSelector;
+import com.hubspot.imap.ImapClientFactory;
+import com.hubspot.imap.ImapConfigurationIF.AuthType;
+import com.hubspot.imap.client.FolderOpenMode;
+import com.hubspot.imap.client.ImapClient;
+import com.hubspot.imap.protocol.command.StoreCommand.StoreAction;
+import com.hubspot.imap.protocol.command.fetch.items.BodyPeekFetchDataItem;
+import com.hubspot.imap.protocol.command.fetch.items.FetchDataItem.FetchDataItemType;
+import com.hubspot.imap.protocol.command.search.keys.KeywordSearchKey;
+import com.hubspot.imap.protocol.exceptions.AuthenticationFailedException;
+import com.hubspot.imap.protocol.exceptions.ConnectionClosedException;
+import com.hubspot.imap.protocol.message.ImapMessage;
+import com.hubspot.imap.protocol.message.StandardMessageFlag;
+import com.hubspot.imap.protocol.response.ResponseCode;
+import com.hubspot.imap.protocol.response.tagged.FetchResponse;
+import com.hubspot.imap.protocol.response.tagged.FlagSyncResponse;
+import com.hubspot.imap.protocol.response.tagged.OpenResponse;
+import com.hubspot.imap.protocol.response.tagged.StreamingFetchResponse;
+
+import io.netty.util.concurrent.Future;
+
+public class FakeImapServerTest {
+  private static final String USER = "test@example.org";
+  private static final String PASSWORD = "hunter2";
+  private static final int MESSAGE_COUNT = 500;
+
+  private static FakeImapServer server;
+  private static ImapClientFactory clientFactory;
+
+  private ImapClient client;
+
+  @BeforeClass
+  public static void startServer() throws Exception {
+    server = new FakeImapServer()
+        .addUser(USER, PASSWORD)
+        .addMailbox(FakeMailboxConfig.builder()
+            .messageCount(MESSAGE_COUNT)
+            .addKeywords("$Forwarded", "Work")
+            .maxUidGap(3)
+            .build())
+        .start();
+    clientFactory = new ImapClientFactory(server.configurationBuilder().build());
+  }
+
+  @AfterClass
+  public static void stopServer() {
+    clientFactory.close();
+    server.close();
+  }
+
+  @Before
+  public void connect() throws Exception {
+    client = clientFactory.connect(USER, PASSWORD);
+    client.login();
+    client.awaitLogin();
+  }
+
+  @After
+  public void disconnect() {
+    server.clearOverrides();
+    client.close();
+  }
+
+  @Test
+  public void testFetchHeaders() throws Exception {
+    OpenResponse openResponse = client.open("INBOX", FolderOpenMode.READ).get(10, TimeUnit.SECONDS);
+    assertThat(openResponse.getCode()).isEqualTo(ResponseCode.OK);
+    assertThat(openResponse.getExists()).isEqualTo(MESSAGE_COUNT);
+
+    FetchResponse response = client.fetch(1, Optional.empty(),
+        FetchDataItemType.UID,
+        FetchDataItemType.FLAGS,
+        FetchDataItemType.INTERNALDATE,
+        FetchDataItemType.RFC822_SIZE,
+        FetchDataItemType.ENVELOPE,
+        FetchDataItemType.X_GM_MSGID).get(10, TimeUnit.SECONDS);
+
+    assertThat(response.getCode()).isEqualTo(ResponseCode.OK);
+    assertThat(response.getMessages()).hasSize(MESSAGE_COUNT);
+
+    ImapMessage message = response.getMessages().iterator().next();
+    FakeMailbox.FakeMessage expected = server.getMailbox("INBOX").get().get(((int) message.getMessageNumber()));
+    assertThat(message.getUid()).isEqualTo(expected.getUid());
+    assertThat(message.getSize()).isEqualTo(expected.getSize());
+    assertThat(message.getEnvelope().getSubject()).isEqualTo(expected.getSubject());
+    assertThat(message.getInternalDate().toEpochSecond()).isEqualTo(expected.getInternalDate().toEpochSecond());
+  }
+
+  @Test
+  public void testFetchCompactMessagesWithLazyEnvelopes() throws Exception {
+    ImapClient compactClient = clientFactory.connect("compact", USER, PASSWORD, Optional.of(server.configurationBuilder()
+        .useCompactMessages(true)
+        .useLazyEnvelopes(true)
+        .lazyEnvelopeChunkSize(1024)
+        .build()));
+    try {
+      compactClient.login();
+      compactClient.open("INBOX", FolderOpenMode.READ).get(10, TimeUnit.SECONDS);
+
+      FetchResponse response = compactClient.fetch(1, Optional.empty(),
+          FetchDataItemType.UID,
+          FetchDataItemType.FLAGS,
+          FetchDataItemType.INTERNALDATE,
+          FetchDataItemType.ENVELOPE).get(10, TimeUnit.SECONDS);
+
+      assertThat(response.getMessages()).hasSize(MESSAGE_COUNT);
+      for (ImapMessage message : response.getMessages()) {
+        FakeMailbox.FakeMessage expected = server.getMailbox("INBOX").get().get(((int) message.getMessageNumber()));
+        assertThat(message.getUid()).isEqualTo(expected.getUid());
+        assertThat(message.getInternalDateEpochMillis()).isEqualTo(expected.getInternalDate().toInstant().toEpochMilli());
+        assertThat(message.getEnvelope().getSubject()).isEqualTo(expected.getSubject());
+      }
+    } finally {
+      compactClient.close();
+    }
+  }
+
+  @Test
+  public void testFetchBody() throws Exception {
+    client.open("INBOX", FolderOpenMode.READ).get(10, TimeUnit.SECONDS);
+
+    FetchResponse response = client.fetch(1, Optional.of(5L), new BodyPeekFetchDataItem()).get(10, TimeUnit.SECONDS);
+
+    assertThat(response.getMessages()).hasSize(5);
+    for (ImapMessage message : response.getMessages()) {
+      assertThat(message.getBody().getMessageId()).startsWith("<");
+    }
+  }
+
+  @Test
+  public void testStoreThenSyncFlags() throws Exception {
+    client.open("INBOX", FolderOpenMode.WRITE).get(10, TimeUnit.SECONDS);
+
+    FlagSyncResponse first = client.syncFlags(Optional.empty()).get(10, TimeUnit.SECONDS);
+    assertThat(first.getSnapshot().size()).isEqualTo(MESSAGE_COUNT);
+
+    long uid = first.getSnapshot().getUid(10);
+    client.uidstore(StoreAction.ADD_FLAGS, uid, Optional.empty(), StandardMessageFlag.FLAGGED).get(10, TimeUnit.SECONDS);
+    client.uidstore(StoreAction.REMOVE_FLAGS, uid, Optional.empty(), StandardMessageFlag.FLAGGED).get(10, TimeUnit.SECONDS);
+    client.uidstore(StoreAction.ADD_FLAGS, uid, Optional.empty(), StandardMessageFlag.DRAFT).get(10, TimeUnit.SECONDS);
+
+    FlagSyncResponse second = client.syncFlags(Optional.of(first.getSnapshot())).get(10, TimeUnit.SECONDS);
+    assertThat(second.getDiff().get().getChangedUids()).containsExactly(uid);
+    assertThat(second.getSnapshot().hasFlag(10, StandardMessageFlag.DRAFT)).isTrue();
+
+    client.uidstore(StoreAction.REMOVE_FLAGS, uid, Optional.empty(), StandardMessageFlag.DRAFT).get(10, TimeUnit.SECONDS);
+  }
+
+  @Test
+  public void testSearchKeyword() throws Exception {
+    client.open("INBOX", FolderOpenMode.READ).get(10, TimeUnit.SECONDS);
+
+    long expected = server.getMailbox("INBOX").get().getMessages().stream()
+        .filter(message -> message.getFlags().contains("Work"))
+        .count();
+
+    assertThat(expected).isGreaterThan(0);
+    assertThat(client.uidsearch(new KeywordSearchKey("Work")).get(10, TimeUnit.SECONDS).getMessageIds()).hasSize((int) expected);
+  }
+
+  @Test
+  public void testOverride() throws Exception {
+    server.override("EXAMINE", (session, tag, args) -> {
+      session.writeTagged(tag, "NO", "[UNAVAILABLE] Try again later");
+      return true;
+    });
+
+    assertThat(client.open("INBOX", FolderOpenMode.READ).get(10, TimeUnit.SECONDS).getCode()).isEqualTo(ResponseCode.NO);
+  }
+
+  @Test
+  public void testXOAuth2Failure() throws Exception {
+    ImapClient oauthClient = clientFactory.connect("oauth", USER, "wrong-token",
+        Optional.of(server.configurationBuilder().authType(AuthType.XOAUTH2).build()));
+    try {
+      oauthClient.login().get(10, TimeUnit.SECONDS);
+    } catch (ExecutionException e) {
+      assertThat(e.getCause()).isInstanceOf(AuthenticationFailedException.class);
+      return;
+    } finally {
+      oauthClient.close();
+    }
+
+    throw new AssertionError("Login should have failed");
+  }
+
+  @Test
+  public void testOpenSession() throws Exception {
+    ImapClient sessionClient = clientFactory.create("session", USER, PASSWORD, Optional.empty());
+    try {
+      OpenResponse openResponse = sessionClient.openSession("INBOX", FolderOpenMode.READ, "CONDSTORE").get(10, TimeUnit.SECONDS);
+      assertThat(openResponse.getCode()).isEqualTo(ResponseCode.OK);
+      assertThat(openResponse.getExists()).isEqualTo(MESSAGE_COUNT);
+      assertThat(sessionClient.isLoggedIn()).isTrue();
+
+      FetchResponse response = sessionClient.fetch(1, Optional.of(5L), FetchDataItemType.UID).get(10, TimeUnit.SECONDS);
+      assertThat(response.getMessages()).hasSize(5);
+    } finally {
+      sessionClient.close();
+    }
+  }
+
+  @Test
+  public void testOpenSessionXOAuth2Failure() throws Exception {
+    ImapClient sessionClient = clientFactory.create("session-oauth", USER, "wrong-token",
+        Optional.of(server.configurationBuilder().authType(AuthType.XOAUTH2).build()));
+    try {
+      sessionClient.openSession("INBOX", FolderOpenMode.READ).get(10, TimeUnit.SECONDS);
+      throw new AssertionError("Session should have failed");
+    } catch (ExecutionException e) {
+      assertThat(e.getCause()).isInstanceOf(AuthenticationFailedException.class);
+      assertThat(sessionClient.isLoggedIn()).isFalse();
+    } finally {
+      sessionClient.close();
+    }
+  }
+
+  @Test
+  public void testHibernateAndResume() throws Exception {
+    ImapClient hibernatingClient = clientFactory.connect("hibernating", USER, PASSWORD, Optional.of(server.configurationBuilder()
+        .hibernateAfterIdleMs(100)
+        .build()));
+    try {
+      hibernatingClient.login().get(10, TimeUnit.SECONDS);
+      hibernatingClient.open("INBOX", FolderOpenMode.READ).get(10, TimeUnit.SECONDS);
+      int openSessions = server.getOpenSessions();
+
+      awaitCondition(() -> hibernatingClient.isHibernated() && !hibernatingClient.isConnected());
+      awaitCondition(() -> server.getOpenSessions() == openSessions - 1);
+
+      // Only succeeds if the folder was selected again
+      FetchResponse response = hibernatingClient.fetch(1, Optional.of(5L), FetchDataItemType.UID).get(10, TimeUnit.SECONDS);
+      assertThat(response.getCode()).isEqualTo(ResponseCode.OK);
+      assertThat(response.getMessages()).hasSize(5);
+      assertThat(hibernatingClient.isHibernated()).isFalse();
+      assertThat(hibernatingClient.isLoggedIn()).isTrue();
+    } finally {
+      hibernatingClient.close();
+    }
+  }
+
+  @Test
+  public void testReconnectReplaysFetch() throws Exception {
+    ImapClient reconnectingClient = connectReconnectingClient();
+    try {
+      AtomicBoolean dropped = new AtomicBoolean();
+      server.override("FETCH", (session, tag, args) -> {
+        if (dropped.compareAndSet(false, true)) {
+          session.close();
+          return true;
+        }
+
+        return false;
+      });
+
+      FetchResponse response = reconnectingClient.fetch(1, Optional.of(5L), FetchDataItemType.UID).get(10, TimeUnit.SECONDS);
+      assertThat(dropped.get()).isTrue();
+      assertThat(response.getCode()).isEqualTo(ResponseCode.OK);
+      assertThat(response.getMessages()).hasSize(5);
+      assertThat(reconnectingClient.isReconnecting()).isFalse();
+    } finally {
+      reconnectingClient.close();
+    }
+  }
+
+  @Test
+  public void testReconnectStartsFlagSyncOver() throws Exception {
+    ImapClient reconnectingClient = connectReconnectingClient();
+    try {
+      AtomicBoolean dropped = new AtomicBoolean();
+      server.override("UID FETCH", (session, tag, args) -> {
+        if (dropped.compareAndSet(false, true)) {
+          // A row for a message that is gone by the time the command is replayed
+          session.writeAndFlush("* 1 FETCH (UID 999999 FLAGS (\\Seen))");
+          session.close();
+          return true;
+        }
+
+        return false;
+      });
+
+      FlagSyncResponse response = reconnectingClient.syncFlags(Optional.empty()).get(10, TimeUnit.SECONDS);
+      assertThat(dropped.get()).isTrue();
+      assertThat(response.getSnapshot().indexOf(999999)).isNegative();
+      assertThat(response.getSnapshot().size()).isEqualTo(MESSAGE_COUNT);
+    } finally {
+      reconnectingClient.close();
+    }
+  }
+
+  @Test
+  public void testReconnectFailsInFlightStore() throws Exception {
+    ImapClient reconnectingClient = connectReconnectingClient();
+    try {
+      server.override("UID STORE", (session, tag, args) -> {
+        session.close();
+        return true;
+      });
+
+      try {
+        reconnectingClient.uidstore(StoreAction.ADD_FLAGS, 1, Optional.empty(), StandardMessageFlag.FLAGGED).get(10, TimeUnit.SECONDS);
+        throw new AssertionError("STORE should have failed");
+      } catch (ExecutionException e) {
+        assertThat(e.getCause()).isInstanceOf(ConnectionClosedException.class);
+      }
+
+      server.clearOverrides();
+      FetchResponse response = reconnectingClient.fetch(1, Optional.of(5L), FetchDataItemType.UID).get(10, TimeUnit.SECONDS);
+      assertThat(response.getMessages()).hasSize(5);
+    } finally {
+      reconnectingClient.close();
+    }
+  }
+
+  @Test
+  public void testHandleResponsesOnEventLoop() throws Exception {
+    ImapClient eventLoopClient = clientFactory.connect("event-loop", USER, PASSWORD, Optional.of(server.configurationBuilder()
+        .handleResponsesOnEventLoop(true)
+        .build()));
+    try {
+      eventLoopClient.login().get(10, TimeUnit.SECONDS);
+      eventLoopClient.open("INBOX", FolderOpenMode.READ).get(10, TimeUnit.SECONDS);
+
+      // Queued behind each other, each is written from the event loop when the one before it completes
+      List<Future<FetchResponse>> fetches = new ArrayList<>();
+      for (long i = 1; i <= 5; i++) {
+        fetches.add(eventLoopClient.fetch(i, Optional.of(i), FetchDataItemType.UID));
+      }
+
+      AtomicReference<String> listenerThread = new AtomicReference<>();
+      fetches.get(0).addListener(future -> listenerThread.set(Thread.currentThread().getName()));
+
+      for (Future<FetchResponse> fetch : fetches) {
+        assertThat(fetch.get(10, TimeUnit.SECONDS).getMessages()).hasSize(1);
+      }
+
+      awaitCondition(() -> listenerThread.get() != null);
+      assertThat(listenerThread.get()).startsWith("imap-promise-executor");
+
+      // The BYE is handled on the event loop, which closes the client without waiting for itself
+      server.override("NOOP", (session, tag, args) -> {
+        session.writeAndFlush("* BYE Shutting down");
+        return true;
+      });
+      eventLoopClient.noop();
+      awaitCondition(() -> eventLoopClient.isClosed() && !eventLoopClient.isConnected());
+    } finally {
+      eventLoopClient.close();
+    }
+  }
+
+  @Test
+  public void testCallbackExecutor() throws Exception {
+    ExecutorService callbackExecutor = Executors.newCachedThreadPool(new ThreadFactoryBuilder().setNameFormat("callback-%d").build());
+    ImapClientFactory callbackFactory = new ImapClientFactory(server.configurationBuilder().build(), Optional.empty(),
+        EventLoopSelector.roundRobin(), Optional.of(callbackExecutor));
+    try (ImapClient callbackClient = callbackFactory.connect(USER, PASSWORD)) {
+      callbackClient.login().get(10, TimeUnit.SECONDS);
+
+      AtomicReference<String> openListenerThread = new AtomicReference<>();
+      callbackClient.getState().addOpenEventListener(event -> openListenerThread.set(Thread.currentThread().getName()));
+      callbackClient.open("INBOX", FolderOpenMode.READ).get(10, TimeUnit.SECONDS);
+
+      StreamingFetchResponse<String> response = callbackClient.fetch(1, Optional.of(5L),
+          message -> Thread.currentThread().getName(), FetchDataItemType.UID).get(10, TimeUnit.SECONDS);
+
+      assertThat(response.getMessageConsumerFutures()).hasSize(5);
+      for (Future<String> consumerFuture : response.getMessageConsumerFutures()) {
+        assertThat(consumerFuture.get(10, TimeUnit.SECONDS)).startsWith("callback-");
+      }
+
+      awaitCondition(() -> openListenerThread.get() != null);
+      assertThat(openListenerThread.get()).startsWith("callback-");
+    } finally {
+      callbackFactory.close();
+      callbackExecutor.shutdown();
+    }
+  }
+
+  @Test
+  public void testLogoutDoesNotReconnect() throws Exception {
+    ImapClient reconnectingClient = connectReconnectingClient();
+    try {
+      int openSessions = server.getOpenSessions();
+
+      reconnectingClient.logout().get(10, TimeUnit.SECONDS);
+      awaitCondition(() -> !reconnectingClient.isConnected() && server.getOpenSessions() == openSessions - 1);
+
+      // Well past the reconnect backoff
+      Thread.sleep(200);
+      assertThat(reconnectingClient.isReconnecting()).isFalse();
+      assertThat(server.getOpenSessions()).isEqualTo(openSessions - 1);
+    } finally {
+      reconnectingClient.close();
+    }
+  }
+
+  @Test
+  public void testCloseWhileReconnecting() throws Exception {
+    ImapClient reconnectingClient = connectReconnectingClient();
+    try {
+      int openSessions = server.getOpenSessions();
+      server.override("FETCH", (session, tag, args) -> {
+        session.close();
+        return true;
+      });
+      // The reconnect stalls at the login
+      server.override("LOGIN", (session, tag, args) -> true);
+
+      Future<FetchResponse> fetch = reconnectingClient.fetch(1, Optional.of(5L), FetchDataItemType.UID);
+      awaitCondition(() -> reconnectingClient.isReconnecting() && server.getOpenSessions() == openSessions);
+
+      reconnectingClient.closeNow();
+      try {
+        fetch.get(10, TimeUnit.SECONDS);
+        throw new AssertionError("FETCH should have failed");
+      } catch (ExecutionException e) {
+        assertThat(e.getCause()).isInstanceOf(ConnectionClosedException.class);
+      }
+
+      awaitCondition(() -> server.getOpenSessions() == openSessions - 1);
+      Thread.sleep(200);
+      assertThat(server.getOpenSessions()).isEqualTo(openSessions - 1);
+    } finally {
+      reconnectingClient.close();
+    }
+  }
+
+  private static ImapClient connectReconnectingClient() throws Exception {
+    ImapClient reconnectingClient = clientFactory.connect("reconnecting", USER, PASSWORD, Optional.of(server.configurationBuilder()
+        .reconnectAttempts(3)
+        .reconnectBackoffMs(10)
+        .build()));
+    reconnectingClient.login().get(10, TimeUnit.SECONDS);
+    reconnectingClient.open("INBOX", FolderOpenMode.WRITE).get(10, TimeUnit.SECONDS);
+    return reconnectingClient;
+  }
+
+  private static void awaitCondition(BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 10000;
+    while (!condition.getAsBoolean()) {
+      if (System.currentTimeMillis() > deadline) {
+        throw new AssertionError("Timed out waiting for condition");
+      }
+
+      Thread.sleep(10);
+    }
+  }
+}
@@ -0,0 +1,722 @@
+package com.hubspot.imap.server;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.BiPredicate;
+
+import com.google.common.base.Joiner;
+import com.google.common.io.BaseEncoding;
+import com.hubspot.imap.server.FakeMailbox.FakeMessage;
+import com.hubspot.imap.utils.formats.ImapDateFormat;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.handler.ssl.SslHandler;
+
+/**
+ * One connection to the {@link FakeImapServer}. All state is only touched from the channel's event loop.
+ */
+public class FakeImapSession extends SimpleChannelInboundHandler<String> {
+  private static final String CAPABILITIES = "IMAP4rev1 ENABLE UNSELECT IDLE NAMESPACE QUOTA ID XLIST CHILDREN X-GM-EXT-1 UIDPLUS AUTH=XOAUTH2 AUTH=PLAIN";
+  private static final String SYSTEM_FLAGS = "\\Answered \\Flagged \\Draft \\Deleted \\Seen";
+  private static final String XOAUTH2_ERROR = BaseEncoding.base64().encode(
+      "{\"status\":\"400\",\"schemes\":\"Bearer\",\"scope\":\"https://mail.google.com/\"}".getBytes(StandardCharsets.UTF_8));
+  private static final DateTimeFormatter SEARCH_DATE_FORMAT = new DateTimeFormatterBuilder()
+      .parseCaseInsensitive()
+      .appendPattern("d-MMM-yyyy")
+      .toFormatter(Locale.US);
+  private static final Joiner SPACE_JOINER = Joiner.on(' ');
+
+  private final FakeImapServer server;
+
+  private ChannelHandlerContext ctx;
+  private boolean authenticated;
+  private Optional<String> pendingAuthenticateTag = Optional.empty();
+  private Optional<String> idleTag = Optional.empty();
+  private FakeMailbox selected;
+  private boolean readOnly;
+  private int reportedExists;
+  private Runnable mailboxListener;
+
+  FakeImapSession(FakeImapServer server) {
+    this.server = server;
+  }
+
+  @Override
+  public void channelActive(ChannelHandlerContext ctx) throws Exception {
+    this.ctx = ctx;
+    server.openSessionCounter().incrementAndGet();
+
+    writeAndFlush("* OK [CAPABILITY " + CAPABILITIES + "] Fake IMAP ready");
+    super.channelActive(ctx);
+  }
+
+  @Override
+  public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+    server.openSessionCounter().decrementAndGet();
+    unselect();
+
+    super.channelInactive(ctx);
+  }
+
+  @Override
+  public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
+    ctx.close();
+  }
+
+  @Override
+  protected void channelRead0(ChannelHandlerContext ctx, String line) throws Exception {
+    if (idleTag.isPresent()) {
+      if (line.trim().equalsIgnoreCase("DONE")) {
+        writeTagged(idleTag.get(), "OK", "IDLE terminated (Success)");
+        idleTag = Optional.empty();
+        flush();
+      }
+      return;
+    }
+
+    if (pendingAuthenticateTag.isPresent()) {
+      writeTagged(pendingAuthenticateTag.get(), "NO", "[AUTHENTICATIONFAILED] Invalid credentials (Failure)");
+      pendingAuthenticateTag = Optional.empty();
+      flush();
+      return;
+    }
+
+    List<String> tokens = tokenize(line);
+    if (tokens.size() < 2) {
+      writeAndFlush("* BAD Invalid tag");
+      return;
+    }
+
+    String tag = tokens.get(0);
+    String command = tokens.get(1).toUpperCase();
+    int argsStart = 2;
+    boolean uid = false;
+    if (command.equals("UID") && tokens.size() > 2) {
+      uid = true;
+      command = "UID " + tokens.get(2).toUpperCase();
+      argsStart = 3;
+    }
+    List<String> args = tokens.subList(argsStart, tokens.size());
+
+    try {
+      Optional<CommandOverride> override = server.getOverride(command);
+      if (!override.isPresent() || !override.get().handle(this, tag, args)) {
+        handle(tag, uid ? command.substring(4) : command, args, uid);
+      }
+    } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+      writeTagged(tag, "BAD", "Could not parse command: " + e.getMessage());
+    }
+
+    flush();
+  }
+
+  private void handle(String tag, String command, List<String> args, boolean uid) {
+    switch (command) {
+      case "CAPABILITY":
+        write("* CAPABILITY " + CAPABILITIES);
+        writeTagged(tag, "OK", "Thats all she wrote! (Success)");
+        return;
+      case "NOOP":
+        sendUpdates();
+        writeTagged(tag, "OK", "Success");
+        return;
+      case "LOGOUT":
+        write("* BYE LOGOUT Requested");
+        writeTagged(tag, "OK", "73 good day (Success)");
+        SslHandler sslHandler = ctx.pipeline().get(SslHandler.class);
+        if (sslHandler != null) {
+          // Only send close_notify and leave closing to the client. A JDK engine closed before it has read the peer's
+          // close_notify invalidates its session, so closing here would stop the next connection from resuming it.
+          ctx.flush();
+          sslHandler.engine().closeOutbound();
+          ctx.flush();
+          return;
+        }
+
+        ctx.writeAndFlush(ctx.alloc().buffer(0)).addListener(ChannelFutureListener.CLOSE);
+        return;
+      case "LOGIN":
+        login(tag, args.get(0), args.get(1));
+        return;
+      case "AUTHENTICATE":
+        authenticate(tag, args);
+        return;
+      default:
+        break;
+    }
+
+    if (!authenticated) {
+      writeTagged(tag, "BAD", "Command not allowed in the not authenticated state");
+      return;
+    }
+
+    switch (command) {
+      case "LIST":
+        server.getMailboxes().keySet().stream().sorted().forEach(name -> write("* LIST (\\HasNoChildren) \"/\" " + quote(name)));
+        writeTagged(tag, "OK", "Success");
+        return;
+      case "ENABLE":
+        // No extension that can be enabled is supported
+        write("* ENABLED");
+        writeTagged(tag, "OK", "Success");
+        return;
+      case "SELECT":
+      case "EXAMINE":
+        select(tag, args.get(0), command.equals("EXAMINE"));
+        return;
+      default:
+        break;
+    }
+
+    if (selected == null) {
+      writeTagged(tag, "BAD", "Command not allowed in the authenticated state");
+      return;
+    }
+
+    switch (command) {
+      case "FETCH":
+        fetch(tag, args.get(0), args.get(1), uid);
+        return;
+      case "SEARCH":
+        search(tag, args, uid);
+        return;
+      case "STORE":
+        store(tag, args, uid);
+        return;
+      case "EXPUNGE":
+        expunge(tag);
+        return;
+      case "IDLE":
+        idleTag = Optional.of(tag);
+        write("+ idling");
+        sendUpdates();
+        return;
+      default:
+        writeTagged(tag, "BAD", "Unknown command " + command);
+    }
+  }
+
+  private void login(String tag, String userName, String password) {
+    if (server.authenticate(userName, password)) {
+      authenticated = true;
+      writeTagged(tag, "OK", userName + " authenticated (Success)");
+    } else {
+      writeTagged(tag, "NO", "[AUTHENTICATIONFAILED] Invalid credentials (Failure)");
+    }
+  }
+
+  private void authenticate(String tag, List<String> args) {
+    if (!args.get(0).equalsIgnoreCase("XOAUTH2") || args.size() < 2) {
+      writeTagged(tag, "NO", "Unsupported mechanism");
+      return;
+    }
+
+    // user={user}^Aauth=Bearer {token}^A^A
+    String[] parts = new String(BaseEncoding.base64().decode(args.get(1)), StandardCharsets.UTF_8).split("\u0001");
+    String userName = parts[0].substring("user=".length());
+    String token = parts.length > 1 ? parts[1].substring("auth=Bearer ".length()) : "";
+
+    if (server.authenticate(userName, token)) {
+      authenticated = true;
+      writeTagged(tag, "OK", userName + " authenticated (Success)");
+    } else {
+      pendingAuthenticateTag = Optional.of(tag);
+      write("+ " + XOAUTH2_ERROR);
+    }
+  }
+
+  private void select(String tag, String name, boolean examine) {
+    unselect();
+
+    Optional<FakeMailbox> mailbox = server.getMailbox(name);
+    if (!mailbox.isPresent()) {
+      writeTagged(tag, "NO", "[NONEXISTENT] Unknown Mailbox: " + name + " (Failure)");
+      return;
+    }
+
+    selected = mailbox.get();
+    readOnly = examine;
+    mailboxListener = () -> ctx.channel().eventLoop().execute(() -> {
+      if (idleTag.isPresent()) {
+        sendUpdates();
+        flush();
+      }
+    });
+    selected.addListener(mailboxListener);
+
+    synchronized (selected) {
+      reportedExists = selected.size();
+
+      write("* FLAGS (" + SYSTEM_FLAGS + ")");
+      write("* OK [PERMANENTFLAGS (" + SYSTEM_FLAGS + " \\*)] Flags permitted.");
+      write("* OK [UIDVALIDITY " + selected.getUidValidity() + "] UIDs valid.");
+      write("* " + reportedExists + " EXISTS");
+      write("* 0 RECENT");
+      write("* OK [UIDNEXT " + selected.getUidNext() + "] Predicted next UID.");
+    }
+
+    writeTagged(tag, "OK", (examine ? "[READ-ONLY] " : "[READ-WRITE] ") + name + " selected. (Success)");
+  }
+
+  private void unselect() {
+    if (selected != null) {
+      selected.removeListener(mailboxListener);
+      selected = null;
+      mailboxListener = null;
+    }
+  }
+
+  private void sendUpdates() {
+    if (selected == null) {
+      return;
+    }
+
+    int exists = selected.size();
+    if (exists != reportedExists) {
+      reportedExists = exists;
+      write("* " + exists + " EXISTS");
+    }
+  }
+
+  private void fetch(String tag, String set, String itemList, boolean uid) {
+    List<String> items = new ArrayList<>();
+    for (String item : tokenize(unparenthesize(itemList))) {
+      switch (item.toUpperCase()) {
+        case "ALL":
+          items.addAll(Arrays.asList("FLAGS", "INTERNALDATE", "RFC822.SIZE", "ENVELOPE"));
+          break;
+        case "FAST":
+          items.addAll(Arrays.asList("FLAGS", "INTERNALDATE", "RFC822.SIZE"));
+          break;
+        case "FULL":
+          items.addAll(Arrays.asList("FLAGS", "INTERNALDATE", "RFC822.SIZE", "ENVELOPE", "BODY"));
+          break;
+        case "UID":
+        case "FLAGS":
+        case "INTERNALDATE":
+        case "RFC822.SIZE":
+        case "ENVELOPE":
+        case "BODY[]":
+        case "BODY.PEEK[]":
+        case "RFC822":
+        case "X-GM-MSGID":
+        case "X-GM-THRID":
+        case "X-GM-LABELS":
+          items.add(item.toUpperCase());
+          break;
+        default:
+          writeTagged(tag, "BAD", "Unsupported FETCH item " + item);
+          return;
+      }
+    }
+
+    if (uid && !items.contains("UID")) {
+      items.add(0, "UID");
+    }
+
+    for (int sequenceNumber : resolve(set, uid)) {
+      FakeMessage message = selected.get(sequenceNumber);
+
+      ByteBuf buf = ctx.alloc().buffer();
+      writeAscii(buf, "* " + sequenceNumber + " FETCH (");
+      for (int i = 0; i < items.size(); i++) {
+        if (i > 0) {
+          writeAscii(buf, " ");
+        }
+        writeItem(buf, items.get(i), message);
+      }
+      writeAscii(buf, ")\r\n");
+
+      ctx.write(buf);
+    }
+
+    writeTagged(tag, "OK", "Success");
+  }
+
+  private void writeItem(ByteBuf buf, String item, FakeMessage message) {
+    switch (item) {
+      case "UID":
+        writeAscii(buf, "UID " + message.getUid());
+        break;
+      case "FLAGS":
+        writeAscii(buf, "FLAGS (" + flagString(message) + ")");
+        break;
+      case "INTERNALDATE":
+        writeAscii(buf, "INTERNALDATE \"" + ImapDateFormat.toImapDateWithTimeString(message.getInternalDate()) + "\"");
+        break;
+      case "RFC822.SIZE":
+        writeAscii(buf, "RFC822.SIZE " + message.getSize());
+        break;
+      case "ENVELOPE":
+        writeAscii(buf, "ENVELOPE (" + SPACE_JOINER.join(
+            quote(DateTimeFormatter.RFC_1123_DATE_TIME.format(message.getInternalDate())),
+            quote(message.getSubject()),
+            address(message.getFrom()),
+            address(message.getFrom()),
+            address(message.getFrom()),
+            address(message.getTo()),
+            "NIL",
+            "NIL",
+            "NIL",
+            quote(message.getMessageId())) + ")");
+        break;
+      case "X-GM-MSGID":
+        writeAscii(buf, "X-GM-MSGID " + message.getGmailMessageId());
+        break;
+      case "X-GM-THRID":
+        writeAscii(buf, "X-GM-THRID " + message.getGmailThreadId());
+        break;
+      case "X-GM-LABELS":
+        writeAscii(buf, "X-GM-LABELS (\"\\\\Inbox\")");
+        break;
+      case "BODY[]":
+      case "BODY.PEEK[]":
+      case "RFC822":
+        if (!item.equals("BODY.PEEK[]") && !readOnly) {
+          message.getFlags().add("\\Seen");
+        }
+
+        byte[] body = message.getBody();
+        writeAscii(buf, (item.equals("RFC822") ? "RFC822" : "BODY[]") + " {" + body.length + "}\r\n");
+        buf.writeBytes(body);
+        break;
+      default:
+        throw new IllegalArgumentException(item);
+    }
+  }
+
+  private void search(String tag, List<String> args, boolean uid) {
+    List<String> keys = args;
+    if (!keys.isEmpty() && keys.get(0).equalsIgnoreCase("CHARSET")) {
+      keys = keys.subList(2, keys.size());
+    }
+
+    BiPredicate<Integer, FakeMessage> predicate = parseSearchKeys(new ArrayList<>(keys));
+
+    StringBuilder response = new StringBuilder("* SEARCH");
+    synchronized (selected) {
+      for (int sequenceNumber = 1; sequenceNumber <= selected.size(); sequenceNumber++) {
+        FakeMessage message = selected.get(sequenceNumber);
+        if (predicate.test(sequenceNumber, message)) {
+          response.append(' ').append(uid ? message.getUid() : sequenceNumber);
+        }
+      }
+    }
+
+    write(response.toString());
+    writeTagged(tag, "OK", "SEARCH completed (Success)");
+  }
+
+  /**
+   * Consumes every key in {@code keys}, all of which have to match.
+   */
+  private BiPredicate<Integer, FakeMessage> parseSearchKeys(List<String> keys) {
+    BiPredicate<Integer, FakeMessage> predicate = (sequenceNumber, message) -> true;
+    while (!keys.isEmpty()) {
+      predicate = predicate.and(parseSearchKey(keys));
+    }
+
+    return predicate;
+  }
+
+  private BiPredicate<Integer, FakeMessage> parseSearchKey(List<String> keys) {
+    String key = keys.remove(0);
+    if (key.startsWith("(")) {
+      return parseSearchKeys(tokenize(unparenthesize(key)));
+    }
+
+    switch (key.toUpperCase()) {
+      case "ALL":
+        return (sequenceNumber, message) -> true;
+      case "UID": {
+        Set<Integer> matches = new TreeSet<>(resolve(keys.remove(0), true));
+        return (sequenceNumber, message) -> matches.contains(sequenceNumber);
+      }
+      case "SEEN":
+        return hasFlag("\\Seen");
+      case "UNSEEN":
+        return hasFlag("\\Seen").negate();
+      case "ANSWERED":
+        return hasFlag("\\Answered");
+      case "UNANSWERED":
+        return hasFlag("\\Answered").negate();
+      case "FLAGGED":
+        return hasFlag("\\Flagged");
+      case "UNFLAGGED":
+        return hasFlag("\\Flagged").negate();
+      case "DELETED":
+        return hasFlag("\\Deleted");
+      case "UNDELETED":
+        return hasFlag("\\Deleted").negate();
+      case "KEYWORD":
+        return hasFlag(keys.remove(0));
+      case "UNKEYWORD":
+        return hasFlag(keys.remove(0)).negate();
+      case "SINCE": {
+        LocalDate date = LocalDate.parse(keys.remove(0), SEARCH_DATE_FORMAT);
+        return (sequenceNumber, message) -> !message.getInternalDate().toLocalDate().isBefore(date);
+      }
+      case "BEFORE": {
+        LocalDate date = LocalDate.parse(keys.remove(0), SEARCH_DATE_FORMAT);
+        return (sequenceNumber, message) -> message.getInternalDate().toLocalDate().isBefore(date);
+      }
+      case "ON": {
+        LocalDate date = LocalDate.parse(keys.remove(0), SEARCH_DATE_FORMAT);
+        return (sequenceNumber, message) -> message.getInternalDate().toLocalDate().isEqual(date);
+      }
+      case "LARGER": {
+        long size = Long.parseLong(keys.remove(0));
+        return (sequenceNumber, message) -> message.getSize() > size;
+      }
+      case "SMALLER": {
+        long size = Long.parseLong(keys.remove(0));
+        return (sequenceNumber, message) -> message.getSize() < size;
+      }
+      case "NOT":
+        return parseSearchKey(keys).negate();
+      case "OR":
+        return parseSearchKey(keys).or(parseSearchKey(keys));
+      default:
+        if (Character.isDigit(key.charAt(0)) || key.charAt(0) == '*') {
+          Set<Integer> matches = new TreeSet<>(resolve(key, false));
+          return (sequenceNumber, message) -> matches.contains(sequenceNumber);
+        }
+
+        throw new IllegalArgumentException("Unsupported SEARCH key " + key);
+    }
+  }
+
+  private static BiPredicate<Integer, FakeMessage> hasFlag(String flag) {
+    return (sequenceNumber, message) -> message.getFlags().stream().anyMatch(flag::equalsIgnoreCase);
+  }
+
+  private void store(String tag, List<String> args, boolean uid) {
+    if (readOnly) {
+      writeTagged(tag, "NO", "STORE attempt on READ-ONLY folder (Failure)");
+      return;
+    }
+
+    String action = args.get(1).toUpperCase();
+    boolean silent = action.endsWith(".SILENT");
+    if (silent) {
+      action = action.substring(0, action.length() - ".SILENT".length());
+    }
+
+    List<String> flags = new ArrayList<>();
+    for (String arg : args.subList(2, args.size())) {
+      flags.addAll(tokenize(unparenthesize(arg)));
+    }
+
+    for (int sequenceNumber : resolve(args.get(0), uid)) {
+      FakeMessage message = selected.get(sequenceNumber);
+      synchronized (message.getFlags()) {
+        switch (action) {
+          case "FLAGS":
+            message.getFlags().clear();
+            message.getFlags().addAll(flags);
+            break;
+          case "+FLAGS":
+            message.getFlags().addAll(flags);
+            break;
+          case "-FLAGS":
+            message.getFlags().removeAll(flags);
+            break;
+          default:
+            writeTagged(tag, "BAD", "Unknown STORE action " + action);
+            return;
+        }
+      }
+
+      if (!silent) {
+        write("* " + sequenceNumber + " FETCH (" + (uid ? "UID " + message.getUid() + " " : "") + "FLAGS (" + flagString(message) + "))");
+      }
+    }
+
+    writeTagged(tag, "OK", "Success");
+  }
+
+  private void expunge(String tag) {
+    if (readOnly) {
+      writeTagged(tag, "NO", "EXPUNGE attempt on READ-ONLY folder (Failure)");
+      return;
+    }
+
+    for (int sequenceNumber : selected.expunge()) {
+      write("* " + sequenceNumber + " EXPUNGE");
+      reportedExists--;
+    }
+
+    writeTagged(tag, "OK", "Success");
+  }
+
+  /**
+   * @return the sequence numbers, ascending, of the messages in a sequence set like "1:5,9,12:*".
+   */
+  private List<Integer> resolve(String set, boolean uid) {
+    Set<Integer> sequenceNumbers = new TreeSet<>();
+
+    synchronized (selected) {
+      int size = selected.size();
+      if (size == 0) {
+        return Collections.emptyList();
+      }
+
+      long max = uid ? selected.get(size).getUid() : size;
+      for (String range : set.split(",")) {
+        String[] bounds = range.split(":");
+        long first = bounds[0].equals("*") ? max : Long.parseLong(bounds[0]);
+        long last = bounds.length == 1 ? first : bounds[1].equals("*") ? max : Long.parseLong(bounds[1]);
+        long low = Math.min(first, last);
+        long high = Math.max(first, last);
+
+        if (uid) {
+          for (int i = selected.lowerBound(low); i < size && selected.get(i + 1).getUid() <= high; i++) {
+            sequenceNumbers.add(i + 1);
+          }
+        } else {
+          for (long i = Math.max(low, 1); i <= Math.min(high, size); i++) {
+            sequenceNumbers.add((int) i);
+          }
+        }
+      }
+    }
+
+    return new ArrayList<>(sequenceNumbers);
+  }
+
+  private static String flagString(FakeMessage message) {
+    synchronized (message.getFlags()) {
+      return SPACE_JOINER.join(message.getFlags());
+    }
+  }
+
+  private static String address(String[] address) {
+    return "((" + quote(address[0]) + " NIL " + quote(address[1]) + " " + quote(address[2]) + "))";
+  }
+
+  private static String quote(String value) {
+    return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+  }
+
+  private static String unparenthesize(String value) {
+    if (value.startsWith("(") && value.endsWith(")")) {
+      return value.substring(1, value.length() - 1);
+    }
+
+    return value;
+  }
+
+  /**
+   * Splits a command line on spaces. Quoted strings are unquoted, parenthesized lists and bracketed sections (as in
+   * BODY[HEADER.FIELDS (FROM)]) are kept as one token.
+   */
+  static List<String> tokenize(String line) {
+    List<String> tokens = new ArrayList<>();
+    StringBuilder token = new StringBuilder();
+    int depth = 0;
+    boolean quoted = false;
+    boolean wasQuoted = false;
+
+    for (int i = 0; i < line.length(); i++) {
+      char c = line.charAt(i);
+      if (quoted) {
+        if (c == '\\' && i + 1 < line.length()) {
+          if (depth > 0) {
+            token.append(c);
+          }
+          token.append(line.charAt(++i));
+        } else if (c == '"') {
+          quoted = false;
+          if (depth > 0) {
+            token.append(c);
+          }
+        } else {
+          token.append(c);
+        }
+      } else if (c == '"') {
+        quoted = true;
+        wasQuoted = depth == 0;
+        if (depth > 0) {
+          token.append(c);
+        }
+      } else if (c == '(' || c == '[') {
+        depth++;
+        token.append(c);
+      } else if (c == ')' || c == ']') {
+        depth--;
+        token.append(c);
+      } else if (c == ' ' && depth == 0) {
+        if (token.length() > 0 || wasQuoted) {
+          tokens.add(token.toString());
+        }
+        token.setLength(0);
+        wasQuoted = false;
+      } else {
+        token.append(c);
+      }
+    }
+
+    if (token.length() > 0 || wasQuoted) {
+      tokens.add(token.toString());
+    }
+
+    return tokens;
+  }
+
+  public ChannelHandlerContext getContext() {
+    return ctx;
+  }
+
+  public Optional<FakeMailbox> getSelected() {
+    return Optional.ofNullable(selected);
+  }
+
+  /**
+   * Writes a line, CRLF is appended. Call {@link #flush()} to send it.
+   */
+  public void write(String line) {
+    ByteBuf buf = ctx.alloc().buffer(line.length() + 2);
+    writeAscii(buf, line);
+    writeAscii(buf, "\r\n");
+    ctx.write(buf);
+  }
+
+  public void writeTagged(String tag, String code, String message) {
+    write(tag + " " + code + " " + message);
+  }
+
+  public void writeAndFlush(String line) {
+    write(line);
+    flush();
+  }
+
+  public void flush() {
+    ctx.flush();
+  }
+
+  public void close() {
+    ctx.close();
+  }
+
+  private static void writeAscii(ByteBuf buf, String value) {
+    buf.writeBytes(value.getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Override
+  public String toString() {
+    return "FakeImapSession{selected=" + Optional.ofNullable(selected).map(FakeMailbox::getName).orElse("none") + "}";
+  }
+}
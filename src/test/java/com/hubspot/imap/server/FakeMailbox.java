@@ -0,0 +1,309 @@
+package com.hubspot.imap.server;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * A folder of generated messages. Bodies are not kept in memory, they are regenerated from the seed and UID on every
+ * fetch, so mailboxes of millions of messages are cheap.
+ * <p>
+ * All methods that read or change the message list synchronize on the mailbox. Sessions register a listener to hear
+ * about messages delivered or expunged by someone else.
+ */
+public class FakeMailbox {
+  private static final String[] NAMES = {"Peter", "Jessica", "Ana", "Wei", "Rahul", "Maria", "Tom", "Fatima", "Lars", "Yuki"};
+  private static final String[] SURNAMES = {"Casinelli", "Huang", "Silva", "Kumar", "Schmidt", "Nakamura", "Rossi", "Novak"};
+  private static final String[] DOMAINS = {"hubspot.com", "gmail.com", "example.org", "corp.example.net"};
+  private static final String[] WORDS = ("quarterly review meeting notes invoice update follow up lunch tomorrow project " +
+      "launch plan draft feedback weekly sync design proposal release candidate travel itinerary reminder").split(" ");
+  private static final ZonedDateTime NEWEST = ZonedDateTime.of(2016, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+
+  private final FakeMailboxConfig config;
+  private final Random random;
+  private final List<FakeMessage> messages;
+  private final List<Runnable> listeners;
+
+  private long nextUid;
+
+  public FakeMailbox(FakeMailboxConfig config) {
+    this.config = config;
+    this.random = new Random(config.seed());
+    this.messages = new ArrayList<>(config.messageCount());
+    this.listeners = new CopyOnWriteArrayList<>();
+    this.nextUid = config.firstUid();
+
+    for (int i = 0; i < config.messageCount(); i++) {
+      messages.add(newMessage(config.messageCount() - i));
+    }
+  }
+
+  public String getName() {
+    return config.name();
+  }
+
+  public long getUidValidity() {
+    return config.uidValidity();
+  }
+
+  public synchronized long getUidNext() {
+    return nextUid;
+  }
+
+  public synchronized int size() {
+    return messages.size();
+  }
+
+  /**
+   * @param sequenceNumber 1 based, like IMAP
+   */
+  public synchronized FakeMessage get(int sequenceNumber) {
+    return messages.get(sequenceNumber - 1);
+  }
+
+  /**
+   * @return the 0 based index of the first message with a UID of at least {@code uid}, or {@link #size()} if there is
+   * none.
+   */
+  public synchronized int lowerBound(long uid) {
+    int low = 0;
+    int high = messages.size();
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (messages.get(mid).getUid() < uid) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+
+    return low;
+  }
+
+  public synchronized List<FakeMessage> getMessages() {
+    return new ArrayList<>(messages);
+  }
+
+  /**
+   * Adds new messages to the end of the mailbox and notifies listeners.
+   */
+  public void deliver(int count) {
+    synchronized (this) {
+      for (int i = 0; i < count; i++) {
+        messages.add(newMessage(0));
+      }
+    }
+
+    listeners.forEach(Runnable::run);
+  }
+
+  /**
+   * Removes messages flagged \Deleted.
+   *
+   * @return the sequence numbers removed, highest first, so that each one is still valid when sent in order.
+   */
+  public List<Integer> expunge() {
+    List<Integer> expunged = new ArrayList<>();
+    synchronized (this) {
+      for (int i = messages.size() - 1; i >= 0; i--) {
+        if (messages.get(i).getFlags().contains("\\Deleted")) {
+          messages.remove(i);
+          expunged.add(i + 1);
+        }
+      }
+    }
+
+    if (!expunged.isEmpty()) {
+      listeners.forEach(Runnable::run);
+    }
+
+    return expunged;
+  }
+
+  public void addListener(Runnable listener) {
+    listeners.add(listener);
+  }
+
+  public void removeListener(Runnable listener) {
+    listeners.remove(listener);
+  }
+
+  private FakeMessage newMessage(int minutesOld) {
+    long uid = nextUid;
+    nextUid += 1 + (config.maxUidGap() > 1 ? random.nextInt(config.maxUidGap()) : 0);
+
+    double logMin = Math.log(config.minMessageSize());
+    double logMax = Math.log(Math.max(config.minMessageSize(), config.maxMessageSize()));
+    int size = (int) Math.exp(logMin + random.nextDouble() * (logMax - logMin));
+
+    Set<String> flags = new LinkedHashSet<>();
+    addIf(flags, "\\Seen", config.seenRatio());
+    addIf(flags, "\\Answered", config.answeredRatio());
+    addIf(flags, "\\Flagged", config.flaggedRatio());
+    addIf(flags, "\\Deleted", config.deletedRatio());
+    for (String keyword : config.keywords()) {
+      addIf(flags, keyword, config.keywordRatio());
+    }
+
+    return new FakeMessage(uid,
+        size,
+        NEWEST.minusMinutes(minutesOld).toEpochSecond(),
+        flags,
+        address(),
+        address(),
+        subject(),
+        random.nextLong() & Long.MAX_VALUE,
+        config.seed());
+  }
+
+  private void addIf(Set<String> flags, String flag, double ratio) {
+    if (random.nextDouble() < ratio) {
+      flags.add(flag);
+    }
+  }
+
+  private String[] address() {
+    String name = NAMES[random.nextInt(NAMES.length)];
+    String surname = SURNAMES[random.nextInt(SURNAMES.length)];
+    return new String[] {
+        name + " " + surname,
+        (name.charAt(0) + surname).toLowerCase(),
+        DOMAINS[random.nextInt(DOMAINS.length)]
+    };
+  }
+
+  private String subject() {
+    StringBuilder subject = new StringBuilder();
+    int words = 2 + random.nextInt(8);
+    for (int i = 0; i < words; i++) {
+      subject.append(i == 0 ? "" : " ").append(WORDS[random.nextInt(WORDS.length)]);
+    }
+
+    return subject.toString();
+  }
+
+  public static class FakeMessage {
+    private final long uid;
+    private final int size;
+    private final long internalDateEpochSecond;
+    private final Set<String> flags;
+    private final String[] from;
+    private final String[] to;
+    private final String subject;
+    private final long gmailMessageId;
+    private final long seed;
+
+    FakeMessage(long uid,
+                int size,
+                long internalDateEpochSecond,
+                Set<String> flags,
+                String[] from,
+                String[] to,
+                String subject,
+                long gmailMessageId,
+                long seed) {
+      this.uid = uid;
+      this.internalDateEpochSecond = internalDateEpochSecond;
+      this.flags = Collections.synchronizedSet(flags);
+      this.from = from;
+      this.to = to;
+      this.subject = subject;
+      this.gmailMessageId = gmailMessageId;
+      this.seed = seed;
+      this.size = Math.max(size, headers().length + 2);
+    }
+
+    public long getUid() {
+      return uid;
+    }
+
+    public int getSize() {
+      return size;
+    }
+
+    public ZonedDateTime getInternalDate() {
+      return Instant.ofEpochSecond(internalDateEpochSecond).atZone(ZoneOffset.UTC);
+    }
+
+    /**
+     * Live view of the flags, STORE changes this set.
+     */
+    public Set<String> getFlags() {
+      return flags;
+    }
+
+    public String[] getFrom() {
+      return from;
+    }
+
+    public String[] getTo() {
+      return to;
+    }
+
+    public String getSubject() {
+      return subject;
+    }
+
+    public String getMessageId() {
+      return String.format("<%d.%d@fake.imap>", uid, seed);
+    }
+
+    public long getGmailMessageId() {
+      return gmailMessageId;
+    }
+
+    public long getGmailThreadId() {
+      return gmailMessageId - (gmailMessageId % 4);
+    }
+
+    /**
+     * @return an RFC 822 message of exactly {@link #getSize()} bytes
+     */
+    public byte[] getBody() {
+      byte[] headers = headers();
+      byte[] body = new byte[size];
+      System.arraycopy(headers, 0, body, 0, headers.length);
+
+      Random random = new Random(seed ^ uid);
+      int position = headers.length;
+      int lineLength = 0;
+      while (position < size - 2) {
+        if (lineLength >= 72 && position < size - 4) {
+          body[position++] = '\r';
+          body[position++] = '\n';
+          lineLength = 0;
+        } else {
+          byte[] word = WORDS[random.nextInt(WORDS.length)].getBytes(StandardCharsets.US_ASCII);
+          for (int i = 0; i <= word.length && position < size - 2; i++, lineLength++) {
+            body[position++] = i < word.length ? word[i] : (byte) ' ';
+          }
+        }
+      }
+
+      body[size - 2] = '\r';
+      body[size - 1] = '\n';
+
+      return body;
+    }
+
+    private byte[] headers() {
+      return ("Date: " + DateTimeFormatter.RFC_1123_DATE_TIME.format(getInternalDate()) + "\r\n" +
+          "From: " + from[0] + " <" + from[1] + "@" + from[2] + ">\r\n" +
+          "To: " + to[0] + " <" + to[1] + "@" + to[2] + ">\r\n" +
+          "Subject: " + subject + "\r\n" +
+          "Message-ID: " + getMessageId() + "\r\n" +
+          "MIME-Version: 1.0\r\n" +
+          "Content-Type: text/plain; charset=US-ASCII\r\n" +
+          "\r\n").getBytes(StandardCharsets.US_ASCII);
+    }
+  }
+}
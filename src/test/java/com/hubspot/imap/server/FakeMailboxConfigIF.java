@@ -0,0 +1,97 @@
+package com.hubspot.imap.server;
+
+import java.util.List;
+
+import org.immutables.value.Value;
+import org.immutables.value.Value.Default;
+import org.immutables.value.Value.Immutable;
+import org.immutables.value.Value.Style.ImplementationVisibility;
+
+/**
+ * Shape of a synthetic mailbox served by {@link FakeImapServer}. Messages are generated from {@link #seed()}, so the
+ * same config always produces the same mailbox.
+ */
+@Immutable
+@Value.Style(
+    typeAbstract = {"*IF"},
+    typeImmutable = "*",
+    visibility = ImplementationVisibility.SAME
+)
+public interface FakeMailboxConfigIF {
+  @Default
+  default String name() {
+    return "INBOX";
+  }
+
+  @Default
+  default int messageCount() {
+    return 100;
+  }
+
+  /**
+   * Message sizes (RFC822.SIZE) are log-uniformly distributed between the min and max, like a real mailbox where most
+   * messages are small and a few are huge.
+   */
+  @Default
+  default int minMessageSize() {
+    return 2 * 1024;
+  }
+
+  @Default
+  default int maxMessageSize() {
+    return 64 * 1024;
+  }
+
+  @Default
+  default double seenRatio() {
+    return 0.8;
+  }
+
+  @Default
+  default double answeredRatio() {
+    return 0.1;
+  }
+
+  @Default
+  default double flaggedRatio() {
+    return 0.05;
+  }
+
+  @Default
+  default double deletedRatio() {
+    return 0;
+  }
+
+  /**
+   * Each keyword is set on a message with probability {@link #keywordRatio()}.
+   */
+  List<String> keywords();
+
+  @Default
+  default double keywordRatio() {
+    return 0.1;
+  }
+
+  @Default
+  default long uidValidity() {
+    return 1;
+  }
+
+  @Default
+  default long firstUid() {
+    return 1;
+  }
+
+  /**
+   * UIDs increase by a random step between 1 and this, to simulate expunged messages.
+   */
+  @Default
+  default int maxUidGap() {
+    return 1;
+  }
+
+  @Default
+  default long seed() {
+    return 42;
+  }
+}
@@ -0,0 +1,272 @@
+package com.hubspot.imap.sync;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.hubspot.imap.ImapClientFactory;
+import com.hubspot.imap.client.FolderOpenMode;
+import com.hubspot.imap.client.ImapClient;
+import com.hubspot.imap.protocol.command.fetch.items.FetchDataItem;
+import com.hubspot.imap.protocol.command.fetch.items.FetchDataItem.FetchDataItemType;
+import com.hubspot.imap.protocol.exceptions.CommandFailedException;
+import com.hubspot.imap.protocol.message.ImapMessage;
+import com.hubspot.imap.protocol.message.UnfetchedFieldException;
+import com.hubspot.imap.protocol.response.tagged.StreamingFetchResponse;
+import com.hubspot.imap.server.FakeImapServer;
+import com.hubspot.imap.server.FakeMailbox.FakeMessage;
+import com.hubspot.imap.server.FakeMailboxConfig;
+
+import io.netty.util.concurrent.Future;
+
+public class AdaptiveFetcherTest {
+  private static final String USER = "test@example.org";
+  private static final String PASSWORD = "hunter2";
+  private static final long BYTE_BUDGET = 40 * 1024;
+  private static final long LAST_UID = 1_000_000;
+  private static final List<FetchDataItem> ITEMS = Collections.singletonList(FetchDataItemType.UID);
+
+  private static FakeImapServer server;
+  private static ImapClientFactory clientFactory;
+  private static List<FakeMessage> messages;
+
+  private ImapClient client;
+
+  @BeforeClass
+  public static void startServer() throws Exception {
+    // Sizes between 2KB and 64KB, so some messages are over the byte budget on their own
+    server = new FakeImapServer()
+        .addUser(USER, PASSWORD)
+        .addMailbox(FakeMailboxConfig.builder()
+            .messageCount(60)
+            .maxUidGap(3)
+            .build())
+        .start();
+    clientFactory = new ImapClientFactory(server.configurationBuilder().build());
+    messages = server.getMailbox("INBOX").get().getMessages();
+  }
+
+  @AfterClass
+  public static void stopServer() {
+    clientFactory.close();
+    server.close();
+  }
+
+  @Before
+  public void connect() throws Exception {
+    client = clientFactory.connect(USER, PASSWORD);
+    client.login();
+    client.open("INBOX", FolderOpenMode.READ).get(10, TimeUnit.SECONDS);
+  }
+
+  @After
+  public void disconnect() {
+    server.clearOverrides();
+    client.close();
+  }
+
+  @Test
+  public void testBatches_fillWindowWithinByteBudget() throws Exception {
+    AimdBatchWindow window = newWindow(10, TimeUnit.SECONDS);
+    List<Batch> batches = recordBatches(window);
+
+    List<StreamingFetchResponse<Long>> responses = new AdaptiveFetcher(client, window)
+        .uidfetch(1, LAST_UID, AdaptiveFetcherTest::uid, ITEMS)
+        .get(10, TimeUnit.SECONDS);
+
+    assertThat(responses).hasSize(batches.size());
+
+    List<Long> fetched = new ArrayList<>();
+    for (StreamingFetchResponse<Long> response : responses) {
+      for (Future<Long> uid : response.getMessageConsumerFutures()) {
+        fetched.add(uid.get(10, TimeUnit.SECONDS));
+      }
+    }
+    assertThat(fetched).containsExactlyElementsOf(uids(0, messages.size()));
+
+    boolean fetchedOversizedAlone = false;
+    int position = 0;
+    for (int i = 0; i < batches.size(); i++) {
+      Batch batch = batches.get(i);
+      int start = position;
+      int end = indexOf(batch.stopUid) + 1;
+      assertThat(messages.get(start).getUid()).isEqualTo(batch.startUid);
+
+      long bytes = sizeOf(start, end);
+      if (end - start == 1) {
+        fetchedOversizedAlone |= bytes > BYTE_BUDGET;
+      } else {
+        assertThat(bytes).isLessThanOrEqualTo(BYTE_BUDGET);
+      }
+
+      // A batch ends at the message window, the byte budget or the end of the range, whichever comes first
+      assertThat(end - start).isLessThanOrEqualTo(batch.messageWindow);
+      if (end < messages.size() && end - start < batch.messageWindow) {
+        assertThat(bytes + messages.get(end).getSize()).isGreaterThan(BYTE_BUDGET);
+      }
+
+      // Local batches are far below the target latency, so only a batch that filled its window grows it
+      int nextWindow = i + 1 < batches.size() ? batches.get(i + 1).messageWindow : window.getMessageWindow();
+      assertThat(nextWindow).isEqualTo(end - start == batch.messageWindow ? batch.messageWindow + 5 : batch.messageWindow);
+
+      position = end;
+    }
+
+    assertThat(fetchedOversizedAlone).isTrue();
+  }
+
+  @Test
+  public void testGivenFullBatches_growsWindow() throws Exception {
+    AimdBatchWindow window = new AimdBatchWindow(10, 1, 100, 5, 0.5, 10, TimeUnit.SECONDS, Long.MAX_VALUE);
+    List<Batch> batches = recordBatches(window);
+
+    new AdaptiveFetcher(client, window)
+        .uidfetch(1, LAST_UID, AdaptiveFetcherTest::uid, ITEMS)
+        .get(10, TimeUnit.SECONDS);
+
+    // 60 messages in batches of 10, 15 and 20, then the remaining 15 which don't fill the window of 25
+    assertThat(batches).extracting(batch -> batch.messageWindow).containsExactly(10, 15, 20, 25);
+    assertThat(indexOf(batches.get(2).stopUid)).isEqualTo(44);
+    assertThat(window.getMessageWindow()).isEqualTo(25);
+  }
+
+  @Test
+  public void testGivenFailedBatch_shrinksWindowAndFails() throws Exception {
+    AimdBatchWindow window = newWindow(10, TimeUnit.SECONDS);
+    AtomicInteger batches = new AtomicInteger(0);
+    server.override("UID FETCH", (session, tag, args) -> {
+      if (!isScan(args)) {
+        batches.incrementAndGet();
+        session.writeTagged(tag, "NO", "Temporary failure");
+        return true;
+      }
+
+      return false;
+    });
+
+    try {
+      new AdaptiveFetcher(client, window)
+          .uidfetch(1, LAST_UID, AdaptiveFetcherTest::uid, ITEMS)
+          .get(10, TimeUnit.SECONDS);
+      fail("Expected the fetch to fail");
+    } catch (ExecutionException e) {
+      assertThat(e.getCause()).isInstanceOf(CommandFailedException.class);
+    }
+
+    assertThat(batches.get()).isEqualTo(1);
+    assertThat(window.getMessageWindow()).isEqualTo(5);
+  }
+
+  @Test
+  public void testGivenBatchQueuedBehindSlowCommand_doesNotCountQueueTime() throws Exception {
+    // A batch whose queue wait counted as latency would be over target and shrink the window
+    AimdBatchWindow window = newWindow(200, TimeUnit.MILLISECONDS);
+    server.override("NOOP", (session, tag, args) -> {
+      session.getContext().executor().schedule(() -> session.writeAndFlush(tag + " OK NOOP completed"), 500, TimeUnit.MILLISECONDS);
+      return true;
+    });
+    server.override("UID FETCH", (session, tag, args) -> {
+      if (isScan(args)) {
+        // Queued behind the scan, so it is written before the first batch
+        client.noop();
+      }
+
+      return false;
+    });
+
+    long firstUid = messages.get(0).getUid();
+    new AdaptiveFetcher(client, window)
+        .uidfetch(firstUid, firstUid, AdaptiveFetcherTest::uid, ITEMS)
+        .get(10, TimeUnit.SECONDS);
+
+    assertThat(window.getLastLatency(TimeUnit.MILLISECONDS)).isLessThan(200);
+    assertThat(window.getMessageWindow()).isEqualTo(10);
+  }
+
+  private static AimdBatchWindow newWindow(long targetLatency, TimeUnit unit) {
+    return new AimdBatchWindow(10, 1, 100, 5, 0.5, targetLatency, unit, BYTE_BUDGET);
+  }
+
+  /**
+   * Records the range of every batch, and the message window it was sized with. The window can't change while a batch
+   * is in flight, the next one is only sent once this one completes.
+   */
+  private static List<Batch> recordBatches(AimdBatchWindow window) {
+    List<Batch> batches = new CopyOnWriteArrayList<>();
+    server.override("UID FETCH", (session, tag, args) -> {
+      if (!isScan(args)) {
+        String[] range = args.get(0).split(":");
+        batches.add(new Batch(Long.parseLong(range[0]), Long.parseLong(range[1]), window.getMessageWindow()));
+      }
+
+      return false;
+    });
+
+    return batches;
+  }
+
+  private static boolean isScan(List<String> args) {
+    return args.get(1).contains("RFC822.SIZE");
+  }
+
+  private static Long uid(ImapMessage message) {
+    try {
+      return message.getUid();
+    } catch (UnfetchedFieldException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private static int indexOf(long uid) {
+    for (int i = 0; i < messages.size(); i++) {
+      if (messages.get(i).getUid() == uid) {
+        return i;
+      }
+    }
+
+    throw new AssertionError("No message with UID " + uid);
+  }
+
+  private static long sizeOf(int start, int end) {
+    long bytes = 0;
+    for (int i = start; i < end; i++) {
+      bytes += messages.get(i).getSize();
+    }
+
+    return bytes;
+  }
+
+  private static List<Long> uids(int start, int end) {
+    List<Long> uids = new ArrayList<>();
+    for (int i = start; i < end; i++) {
+      uids.add(messages.get(i).getUid());
+    }
+
+    return uids;
+  }
+
+  private static final class Batch {
+    private final long startUid;
+    private final long stopUid;
+    private final int messageWindow;
+
+    Batch(long startUid, long stopUid, int messageWindow) {
+      this.startUid = startUid;
+      this.stopUid = stopUid;
+      this.messageWindow = messageWindow;
+    }
+  }
+}
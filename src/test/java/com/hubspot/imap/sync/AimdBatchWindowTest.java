@@ -0,0 +1,64 @@
+package com.hubspot.imap.sync;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class AimdBatchWindowTest {
+  private static final long FAST = TimeUnit.SECONDS.toNanos(1);
+  private static final long SLOW = TimeUnit.SECONDS.toNanos(20);
+
+  private static AimdBatchWindow newWindow() {
+    return new AimdBatchWindow(100, 1, 1000, 25, 0.5, 10, TimeUnit.SECONDS, 64 * 1024 * 1024);
+  }
+
+  @Test
+  public void testGivenFastFullBatch_doesGrowAdditively() throws Exception {
+    AimdBatchWindow window = newWindow();
+    window.onSuccess(FAST, 1000, 100);
+    assertThat(window.getMessageWindow()).isEqualTo(125);
+  }
+
+  @Test
+  public void testGivenShortTailBatch_doesNotGrow() throws Exception {
+    AimdBatchWindow window = newWindow();
+    window.onSuccess(FAST, 1000, 3);
+    assertThat(window.getMessageWindow()).isEqualTo(100);
+  }
+
+  @Test
+  public void testGivenSlowBatchOrFailure_doesShrinkMultiplicatively() throws Exception {
+    AimdBatchWindow window = newWindow();
+    window.onSuccess(SLOW, 1000, 100);
+    assertThat(window.getMessageWindow()).isEqualTo(50);
+
+    window.onFailure();
+    assertThat(window.getMessageWindow()).isEqualTo(25);
+  }
+
+  @Test
+  public void testWindow_staysWithinBounds() throws Exception {
+    AimdBatchWindow window = newWindow();
+    for (int i = 0; i < 20; i++) {
+      window.onFailure();
+    }
+    assertThat(window.getMessageWindow()).isEqualTo(1);
+
+    for (int i = 0; i < 100; i++) {
+      window.onSuccess(FAST, 1000, window.getMessageWindow());
+    }
+    assertThat(window.getMessageWindow()).isEqualTo(1000);
+  }
+
+  @Test
+  public void testByteBudget_followsObservedThroughput() throws Exception {
+    AimdBatchWindow window = newWindow();
+    assertThat(window.getByteBudget()).isEqualTo(64 * 1024 * 1024);
+
+    // 1MB in 1s with a 10s target latency allows 10MB per batch
+    window.onSuccess(FAST, 1024 * 1024, 100);
+    assertThat(window.getByteBudget()).isEqualTo(10 * 1024 * 1024);
+  }
+}
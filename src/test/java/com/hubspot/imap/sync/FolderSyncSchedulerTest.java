@@ -0,0 +1,299 @@
+package com.hubspot.imap.sync;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.google.common.net.HostAndPort;
+import com.hubspot.imap.ImapClientFactory;
+import com.hubspot.imap.ImapConfiguration;
+import com.hubspot.imap.client.ImapClient;
+import com.hubspot.imap.protocol.exceptions.AuthenticationFailedException;
+import com.hubspot.imap.protocol.exceptions.FolderOpenFailedException;
+import com.hubspot.imap.server.FakeImapServer;
+import com.hubspot.imap.server.FakeMailboxConfig;
+
+import io.netty.util.concurrent.DefaultEventExecutorGroup;
+import io.netty.util.concurrent.EventExecutorGroup;
+import io.netty.util.concurrent.Future;
+
+public class FolderSyncSchedulerTest {
+  private static final String PASSWORD = "hunter2";
+  private static final int ACCOUNT_COUNT = 3;
+
+  private static FakeImapServer server;
+  private static ImapClientFactory clientFactory;
+
+  private final AtomicInteger logins = new AtomicInteger(0);
+  private final AtomicInteger running = new AtomicInteger(0);
+  private final AtomicInteger maxRunning = new AtomicInteger(0);
+  private final ConcurrentHashMap<String, AtomicInteger> runningByAccount = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<String, AtomicInteger> maxRunningByAccount = new ConcurrentHashMap<>();
+
+  private EventExecutorGroup taskExecutor;
+  private FolderSyncScheduler scheduler;
+
+  @BeforeClass
+  public static void startServer() throws Exception {
+    server = new FakeImapServer()
+        .addMailbox(FakeMailboxConfig.builder()
+            .messageCount(10)
+            .build());
+    for (int i = 0; i < ACCOUNT_COUNT; i++) {
+      server.addUser(account(i), PASSWORD);
+    }
+    server.start();
+
+    clientFactory = new ImapClientFactory(server.configurationBuilder().build());
+  }
+
+  @AfterClass
+  public static void stopServer() {
+    clientFactory.close();
+    server.close();
+  }
+
+  @Before
+  public void setup() {
+    taskExecutor = new DefaultEventExecutorGroup(1);
+    server.override("LOGIN", (session, tag, args) -> {
+      logins.incrementAndGet();
+      return false;
+    });
+  }
+
+  @After
+  public void closeScheduler() throws Exception {
+    if (scheduler != null) {
+      scheduler.close();
+    }
+
+    taskExecutor.shutdownGracefully(0, 1, TimeUnit.SECONDS);
+    server.clearOverrides();
+    // Every job has finished by now, so each connection must have been given back
+    awaitCondition(() -> server.getOpenSessions() == 0);
+  }
+
+  @Test
+  public void testGivenAccountLimit_doesNotExceedIt() throws Exception {
+    scheduler = new FolderSyncScheduler(clientFactory, 2, 10);
+
+    List<Future<Void>> futures = new ArrayList<>();
+    for (int i = 0; i < 6; i++) {
+      futures.add(scheduler.submit(job(account(0), PASSWORD).build()));
+    }
+    awaitAll(futures);
+
+    assertThat(maxRunning.get()).isEqualTo(2);
+    assertThat(logins.get()).isEqualTo(2);
+    assertThat(scheduler.getProgress(account(0)).getCompleted()).isEqualTo(6);
+    assertThat(scheduler.getProgress(account(0)).getActiveConnections()).isEqualTo(0);
+  }
+
+  @Test
+  public void testGivenHostLimit_sharesItBetweenAccounts() throws Exception {
+    scheduler = new FolderSyncScheduler(clientFactory, 2, 3);
+
+    List<Future<Void>> futures = new ArrayList<>();
+    for (int job = 0; job < 4; job++) {
+      for (int i = 0; i < ACCOUNT_COUNT; i++) {
+        futures.add(scheduler.submit(job(account(i), PASSWORD).build()));
+      }
+    }
+    awaitAll(futures);
+
+    assertThat(maxRunning.get()).isEqualTo(3);
+    for (int i = 0; i < ACCOUNT_COUNT; i++) {
+      assertThat(maxRunningByAccount.get(account(i)).get()).isBetween(1, 2);
+      assertThat(scheduler.getProgress(account(i)).getCompleted()).isEqualTo(4);
+    }
+    assertThat(scheduler.getProgress().getActiveConnections()).isEqualTo(0);
+  }
+
+  @Test
+  public void testJobFuture_completesOnPromiseExecutor() throws Exception {
+    scheduler = new FolderSyncScheduler(clientFactory, 1, 1);
+
+    CompletableFuture<String> listenerThread = new CompletableFuture<>();
+    scheduler.submit(job(account(0), PASSWORD).build())
+        .addListener(f -> listenerThread.complete(Thread.currentThread().getName()));
+
+    assertThat(listenerThread.get(10, TimeUnit.SECONDS)).startsWith("imap-promise-executor-");
+  }
+
+  @Test
+  public void testGivenSameTokenAndConfiguration_reusesConnection() throws Exception {
+    scheduler = new FolderSyncScheduler(clientFactory, 1, 1);
+
+    List<Future<Void>> futures = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      futures.add(scheduler.submit(job(account(0), PASSWORD).build()));
+    }
+    awaitAll(futures);
+
+    assertThat(logins.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void testGivenOtherToken_doesNotReuseConnection() throws Exception {
+    scheduler = new FolderSyncScheduler(clientFactory, 1, 1);
+
+    Future<Void> first = scheduler.submit(job(account(0), PASSWORD).setPriority(0).build());
+    Future<Void> second = scheduler.submit(job(account(0), "wrong").setPriority(1).build());
+
+    first.get(10, TimeUnit.SECONDS);
+    assertFailsWith(second, AuthenticationFailedException.class);
+    assertThat(logins.get()).isEqualTo(2);
+    assertThat(scheduler.getProgress(account(0)).getFailed()).isEqualTo(1);
+  }
+
+  @Test
+  public void testGivenOtherConfiguration_doesNotReuseConnection() throws Exception {
+    scheduler = new FolderSyncScheduler(clientFactory, 1, 1);
+
+    ImapConfiguration compact = server.configurationBuilder()
+        .useCompactMessages(true)
+        .build();
+
+    List<Future<Void>> futures = new ArrayList<>();
+    futures.add(scheduler.submit(job(account(0), PASSWORD).setPriority(0).build()));
+    futures.add(scheduler.submit(job(account(0), PASSWORD).setPriority(1).setConfiguration(compact).build()));
+    awaitAll(futures);
+
+    assertThat(logins.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void testGivenConnectFailure_closesClientAndFreesSlot() throws Exception {
+    List<ImapClient> clients = new CopyOnWriteArrayList<>();
+    ImapClientFactory recordingFactory = new ImapClientFactory(server.configurationBuilder().build()) {
+      @Override
+      public ImapClient create(String clientName, String userName, String authToken, Optional<ImapConfiguration> newConfig) {
+        ImapClient client = super.create(clientName, userName, authToken, newConfig);
+        clients.add(client);
+        return client;
+      }
+    };
+
+    try {
+      scheduler = new FolderSyncScheduler(recordingFactory, 1, 1);
+
+      int closedPort;
+      try (ServerSocket socket = new ServerSocket(0)) {
+        closedPort = socket.getLocalPort();
+      }
+      ImapConfiguration unreachable = server.configurationBuilder()
+          .hostAndPort(HostAndPort.fromParts("127.0.0.1", closedPort))
+          .build();
+
+      Future<Void> failed = scheduler.submit(job(account(0), PASSWORD).setPriority(0).setConfiguration(unreachable).build());
+      Future<Void> next = scheduler.submit(job(account(0), PASSWORD).setPriority(1).build());
+
+      assertFailsWith(failed, Exception.class);
+      next.get(10, TimeUnit.SECONDS);
+
+      awaitCondition(() -> clients.get(0).isClosed());
+      // Only the job that reached the server logged in
+      assertThat(logins.get()).isEqualTo(1);
+      assertThat(scheduler.getProgress(account(0)).getFailed()).isEqualTo(1);
+      assertThat(scheduler.getProgress(account(0)).getActiveConnections()).isEqualTo(0);
+    } finally {
+      scheduler.close();
+      awaitCondition(() -> server.getOpenSessions() == 0);
+      recordingFactory.close();
+    }
+  }
+
+  @Test
+  public void testGivenOpenFailure_failsJob() throws Exception {
+    scheduler = new FolderSyncScheduler(clientFactory, 1, 1);
+
+    Future<Void> future = scheduler.submit(job(account(0), PASSWORD).setFolderName("Missing").build());
+
+    assertFailsWith(future, FolderOpenFailedException.class);
+    assertThat(scheduler.getProgress(account(0)).getActiveConnections()).isEqualTo(0);
+  }
+
+  @Test
+  public void testGivenTaskFailure_failsJobAndRunsNext() throws Exception {
+    scheduler = new FolderSyncScheduler(clientFactory, 1, 1);
+
+    IllegalStateException failure = new IllegalStateException("Sync failed");
+    Future<Void> failed = scheduler.submit(job(account(0), PASSWORD).setPriority(0).setTask((client, openResponse) -> {
+      throw failure;
+    }).build());
+    Future<Void> next = scheduler.submit(job(account(0), PASSWORD).setPriority(1).build());
+
+    assertFailsWith(failed, IllegalStateException.class);
+    next.get(10, TimeUnit.SECONDS);
+
+    assertThat(scheduler.getProgress(account(0)).getCompleted()).isEqualTo(1);
+    assertThat(scheduler.getProgress(account(0)).getFailed()).isEqualTo(1);
+  }
+
+  private FolderSyncJob.Builder job(String account, String authToken) {
+    return new FolderSyncJob.Builder()
+        .setAccount(account)
+        .setAuthToken(authToken)
+        .setFolderName("INBOX")
+        .setTask((client, openResponse) -> {
+          AtomicInteger accountRunning = runningByAccount.computeIfAbsent(account, a -> new AtomicInteger(0));
+          AtomicInteger accountMax = maxRunningByAccount.computeIfAbsent(account, a -> new AtomicInteger(0));
+          maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+          accountMax.accumulateAndGet(accountRunning.incrementAndGet(), Math::max);
+
+          // Hold the connection long enough for the other jobs to queue up behind the limits
+          return taskExecutor.schedule(() -> null, 50, TimeUnit.MILLISECONDS).addListener(f -> {
+            running.decrementAndGet();
+            accountRunning.decrementAndGet();
+          });
+        });
+  }
+
+  private static String account(int i) {
+    return "account-" + i + "@example.org";
+  }
+
+  private static void awaitAll(List<Future<Void>> futures) throws Exception {
+    for (Future<Void> future : futures) {
+      future.get(10, TimeUnit.SECONDS);
+    }
+  }
+
+  private static void assertFailsWith(Future<Void> future, Class<? extends Throwable> type) throws Exception {
+    try {
+      future.get(10, TimeUnit.SECONDS);
+      fail("Expected the job to fail");
+    } catch (ExecutionException e) {
+      assertThat(e.getCause()).isInstanceOf(type);
+    }
+  }
+
+  private static void awaitCondition(BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 10000;
+    while (!condition.getAsBoolean()) {
+      if (System.currentTimeMillis() > deadline) {
+        throw new AssertionError("Timed out waiting for condition");
+      }
+
+      Thread.sleep(10);
+    }
+  }
+}
@@ -0,0 +1,33 @@
+package com.hubspot.imap.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+
+import com.hubspot.imap.protocol.command.fetch.items.FetchDataItem.FetchDataItemType;
+import com.hubspot.imap.protocol.response.untagged.UntaggedResponseType;
+
+public class EnumKeywordIndexTest {
+
+  @Test
+  public void testEveryKeyword_isFound() throws Exception {
+    for (FetchDataItemType type : FetchDataItemType.values()) {
+      if (type != FetchDataItemType.INVALID) {
+        assertThat(FetchDataItemType.getFetchType(new AsciiToken(type.toString()))).isEqualTo(type);
+        assertThat(FetchDataItemType.getFetchType(type.toString().toLowerCase())).isEqualTo(type);
+      }
+    }
+
+    assertThat(UntaggedResponseType.getResponseType("[UIDVALIDITY")).isEqualTo(UntaggedResponseType.UIDVALIDITY);
+    assertThat(UntaggedResponseType.getResponseType(new AsciiToken("exists"))).isEqualTo(UntaggedResponseType.EXISTS);
+  }
+
+  @Test
+  public void testUnknownWord_isInvalid() throws Exception {
+    assertThat(FetchDataItemType.getFetchType("RFC822.")).isEqualTo(FetchDataItemType.INVALID);
+    assertThat(FetchDataItemType.getFetchType("----")).isEqualTo(FetchDataItemType.INVALID);
+    assertThat(FetchDataItemType.getFetchType("")).isEqualTo(FetchDataItemType.INVALID);
+    assertThat(UntaggedResponseType.getResponseType("UIDVALIDITY")).isEqualTo(UntaggedResponseType.INVALID);
+    assertThat(UntaggedResponseType.getResponseType("EXISTSX")).isEqualTo(UntaggedResponseType.INVALID);
+  }
+}
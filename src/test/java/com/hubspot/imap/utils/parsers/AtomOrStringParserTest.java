@@ -9,12 +9,11 @@ import java.util.Arrays;
 
 import org.junit.Test;
 
-import com.hubspot.imap.utils.SoftReferencedAppendableCharSequence;
+import com.hubspot.imap.utils.AsciiToken;
 import com.hubspot.imap.utils.parsers.string.AtomOrStringParser;
 
 public class AtomOrStringParserTest {
-  private static final SoftReferencedAppendableCharSequence SEQUENCE_REF = new SoftReferencedAppendableCharSequence(1000);
-  private static final AtomOrStringParser PARSER = new AtomOrStringParser(SEQUENCE_REF, 1000);
+  private static final AtomOrStringParser PARSER = new AtomOrStringParser(1000);
 
   private static final byte[] UNQUOTED = "Unquoted".getBytes(StandardCharsets.UTF_8);
   private static final byte[] QUOTED = "\"This is quoted\"".getBytes(StandardCharsets.UTF_8);
@@ -39,4 +38,20 @@ public class AtomOrStringParserTest {
     String result = PARSER.parse(wrappedBuffer(ESCAPED_QUOTES));
     assertThat(result.getBytes(StandardCharsets.UTF_8)).isEqualTo(ESCAPED_QUOTES_RESULT);
   }
+
+  @Test
+  public void testGivenTokens_doesNotBuildStrings() throws Exception {
+    AsciiToken token = PARSER.parseToken(wrappedBuffer("\"INBOX\" 4294967295 ".getBytes(StandardCharsets.UTF_8)));
+    assertThat(token.contentEquals("INBOX")).isTrue();
+    assertThat(token.contentEqualsIgnoreCase("inbox")).isTrue();
+    assertThat(token.hashCode()).isEqualTo("INBOX".hashCode());
+    assertThat(token.isDigits()).isFalse();
+  }
+
+  @Test
+  public void testGivenNumberToken_doesParseLong() throws Exception {
+    AsciiToken token = PARSER.parseToken(wrappedBuffer("4294967295 ".getBytes(StandardCharsets.UTF_8)));
+    assertThat(token.isDigits()).isTrue();
+    assertThat(token.parseLong()).isEqualTo(4294967295L);
+  }
 }
@@ -1,6 +1,7 @@
 package com.hubspot.imap.utils.parsers;
 
 import com.google.common.collect.Lists;
+import com.hubspot.imap.utils.parsers.fetch.EnvelopeDateParser;
 import com.hubspot.imap.utils.parsers.fetch.EnvelopeParser;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -36,4 +37,10 @@ public class EnvelopeDateParserTest {
   public void testDoesParseWeirdFormats() throws Exception {
     assertThat(EnvelopeParser.parseDate(input)).isNotNull();
   }
+
+  @Test
+  public void testMatchesFormatter() throws Exception {
+    assertThat(EnvelopeDateParser.parseUncached(input).toInstant())
+        .isEqualTo(EnvelopeDateParser.parseWithFormatter(input).toInstant());
+  }
 }
@@ -0,0 +1,34 @@
+package com.hubspot.imap.utils.parsers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeParseException;
+
+import org.junit.Test;
+
+import com.hubspot.imap.utils.parsers.fetch.EnvelopeDateParser;
+
+public class EnvelopeDateToleranceTest {
+  private static final ZonedDateTime EXPECTED = ZonedDateTime.of(2015, 7, 21, 13, 48, 0, 0, ZoneOffset.ofHours(-4));
+
+  @Test
+  public void testDoesParseVariantsTheFormatterRejects() throws Exception {
+    assertThat(EnvelopeDateParser.parse("21 JUL 2015 13:48 -0400")).isEqualTo(EXPECTED);
+    assertThat(EnvelopeDateParser.parse("Tuesday, 21 July 2015 13:48:00 edt")).isEqualTo(EXPECTED);
+    assertThat(EnvelopeDateParser.parse("Tue 21 Jul 15 13:48:00 -0400 (EDT)")).isEqualTo(EXPECTED);
+    assertThat(EnvelopeDateParser.parse("\tTue, 21 Jul 2015\r\n 17:48:00 GMT").toInstant()).isEqualTo(EXPECTED.toInstant());
+  }
+
+  @Test
+  public void testRepeatedInput_returnsCachedValue() throws Exception {
+    String date = "Sat, 11 Jul 2015 22:38:40 +0000";
+    assertThat(EnvelopeDateParser.parse(new String(date))).isSameAs(EnvelopeDateParser.parse(new String(date)));
+  }
+
+  @Test(expected = DateTimeParseException.class)
+  public void testInvalidDate_throws() throws Exception {
+    EnvelopeDateParser.parse("Mon, 31 Feb 2015 10:00:00 +0000");
+  }
+}
@@ -8,10 +8,15 @@ import java.nio.charset.StandardCharsets;
 import org.junit.Test;
 
 import com.hubspot.imap.protocol.message.Envelope;
+import com.hubspot.imap.protocol.message.ImapAddress;
+import com.hubspot.imap.protocol.message.LazyEnvelope;
 import com.hubspot.imap.utils.SoftReferencedAppendableCharSequence;
 import com.hubspot.imap.utils.parsers.NestedArrayParser.Recycler;
 import com.hubspot.imap.utils.parsers.fetch.EnvelopeParser;
 import com.hubspot.imap.utils.parsers.string.AtomOrStringParser;
+import com.hubspot.imap.utils.parsers.string.LiteralStringParser;
+
+import io.netty.buffer.ByteBuf;
 
 public class EnvelopeParseTest {
 
@@ -20,7 +25,7 @@ public class EnvelopeParseTest {
 
   @Test
   public void testCanParseEnvelope() throws Exception {
-    NestedArrayParser.Recycler<String> arrayParserRecycler = new Recycler<>(new AtomOrStringParser(new SoftReferencedAppendableCharSequence(1000), 100000));
+    NestedArrayParser.Recycler<String> arrayParserRecycler = new Recycler<>(new AtomOrStringParser(100000));
     EnvelopeParser envelopeParser = new EnvelopeParser();
 
     NestedArrayParser<String> nestedArrayParser = arrayParserRecycler.get();
@@ -29,4 +34,67 @@ public class EnvelopeParseTest {
 
     assertThat(envelope.getSubject()).isNotEmpty();
   }
+
+  @Test
+  public void testSinglePass_matchesNestedLists() throws Exception {
+    AtomOrStringParser stringParser = new AtomOrStringParser(100000);
+    NestedArrayParser<String> nestedArrayParser = new Recycler<>(stringParser).get();
+    Envelope expected = new EnvelopeParser().parse(nestedArrayParser.parse(wrappedBuffer(TEST_ENVELOPE)));
+
+    ByteBuf in = wrappedBuffer(TEST_ENVELOPE);
+    Envelope envelope = new EnvelopeParser(stringParser).parse(in);
+
+    assertThat(envelope.getDate()).isEqualTo(expected.getDate());
+    assertThat(envelope.getSubject()).isEqualTo(expected.getSubject());
+    assertThat(envelope.getFrom()).isEqualTo(expected.getFrom());
+    assertThat(envelope.getSender()).isEqualTo(expected.getSender());
+    assertThat(envelope.getReplyTo()).isEqualTo(expected.getReplyTo());
+    assertThat(envelope.getTo()).isEqualTo(expected.getTo());
+    assertThat(envelope.getCc()).isEqualTo(expected.getCc()).isEmpty();
+    assertThat(envelope.getBcc()).isEqualTo(expected.getBcc());
+    assertThat(envelope.getInReplyTo()).isEqualTo(expected.getInReplyTo()).isNull();
+    assertThat(envelope.getMessageId()).isEqualTo(expected.getMessageId());
+    assertThat(in.toString(StandardCharsets.UTF_8)).isEqualTo(")\n");
+  }
+
+  @Test
+  public void testSinglePass_readsLiteralsAndLowerCaseNil() throws Exception {
+    LiteralStringParser stringParser = new LiteralStringParser(new SoftReferencedAppendableCharSequence(100), 100000);
+    byte[] envelope = ("(nil {5}\r\nHello ((NIL NIL \"undisclosed-recipients\" NIL)(NIL NIL NIL NIL)) nil nil " +
+        "((\"Ann\" NIL \"ann\" \"example.org\")) nil nil nil \"<1@example.org>\")").getBytes(StandardCharsets.UTF_8);
+
+    Envelope parsed = new EnvelopeParser(stringParser).parse(wrappedBuffer(envelope));
+
+    assertThat(parsed.getDateString()).isNull();
+    assertThat(parsed.getSubject()).isEqualTo("Hello");
+    assertThat(parsed.getFrom()).extracting(ImapAddress::getAddress).containsExactly("undisclosed-recipients", "");
+    assertThat(parsed.getSender()).isEmpty();
+    assertThat(parsed.getTo()).containsExactly(new ImapAddress.Builder().setPersonal("Ann").setAddress("ann@example.org"));
+    assertThat(parsed.getMessageId()).isEqualTo("<1@example.org>");
+  }
+
+  @Test
+  public void testLazyEnvelope_matchesSinglePass() throws Exception {
+    Envelope expected = new EnvelopeParser(new AtomOrStringParser(100000)).parse(wrappedBuffer(TEST_ENVELOPE));
+
+    byte[] padded = new byte[TEST_ENVELOPE.length + 3];
+    System.arraycopy(TEST_ENVELOPE, 0, padded, 3, TEST_ENVELOPE.length);
+    ByteBuf in = wrappedBuffer(TEST_ENVELOPE);
+    int[] fieldOffsets = new int[EnvelopeParser.FIELD_COUNT];
+    int length = EnvelopeParser.scan(in, fieldOffsets);
+
+    assertThat(in.readerIndex()).isEqualTo(0);
+    assertThat(length).isEqualTo(TEST_ENVELOPE.length - 2);
+
+    Envelope envelope = new LazyEnvelope(padded, 3, length, fieldOffsets);
+    assertThat(envelope.getMessageId()).isEqualTo(expected.getMessageId());
+    assertThat(envelope.getDate()).isEqualTo(expected.getDate());
+    assertThat(envelope.getSubject()).isEqualTo(expected.getSubject());
+    assertThat(envelope.getFrom()).isEqualTo(expected.getFrom());
+    assertThat(envelope.getReplyTo()).isEqualTo(expected.getReplyTo());
+    assertThat(envelope.getTo()).isEqualTo(expected.getTo());
+    assertThat(envelope.getCc()).isEmpty();
+    assertThat(envelope.getInReplyTo()).isNull();
+    assertThat(envelope.getFrom()).isSameAs(envelope.getFrom());
+  }
 }
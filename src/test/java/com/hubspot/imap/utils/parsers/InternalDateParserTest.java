@@ -0,0 +1,55 @@
+package com.hubspot.imap.utils.parsers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+
+import org.junit.Test;
+
+import com.hubspot.imap.utils.parsers.fetch.InternalDateParser;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+public class InternalDateParserTest {
+  private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("dd-MMM-yyyy HH:mm:ss Z");
+
+  @Test
+  public void testQuotedDate_matchesFormatter() throws Exception {
+    for (String date : new String[] {"17-Jul-1996 02:44:25 -0700", "29-Feb-2016 23:59:59 +0530", "01-Jan-1970 00:00:00 +0000"}) {
+      InternalDateParser parser = new InternalDateParser();
+      ByteBuf in = buf(" \"" + date + "\" UID 4");
+
+      assertThat(parser.parse(in)).isTrue();
+      assertThat(InternalDateParser.toZonedDateTime(parser.getEpochMillis(), parser.getOffsetSeconds()))
+          .isEqualTo(ZonedDateTime.parse(date, FORMATTER));
+      assertThat(in.toString(StandardCharsets.US_ASCII)).isEqualTo(" UID 4");
+    }
+  }
+
+  @Test
+  public void testSpacePaddedDay_isRead() throws Exception {
+    InternalDateParser parser = new InternalDateParser();
+
+    assertThat(parser.parse(buf("\" 4-aug-2015 17:02:29 +0000\""))).isTrue();
+    assertThat(InternalDateParser.toZonedDateTime(parser.getEpochMillis(), parser.getOffsetSeconds()))
+        .isEqualTo(ZonedDateTime.parse("04-Aug-2015 17:02:29 +0000", FORMATTER));
+  }
+
+  @Test
+  public void testOtherValues_areLeftUnread() throws Exception {
+    InternalDateParser parser = new InternalDateParser();
+    for (String value : new String[] {"NIL ", "\"31-Feb-2015 10:00:00 +0000\"", "\"17-Jul-1996 02:44 -0700\" UID 4"}) {
+      ByteBuf in = buf(value);
+
+      assertThat(parser.parse(in)).isFalse();
+      assertThat(in.readerIndex()).isEqualTo(0);
+    }
+  }
+
+  private static ByteBuf buf(String value) {
+    return Unpooled.wrappedBuffer(value.getBytes(StandardCharsets.US_ASCII));
+  }
+}